@@ -1,17 +1,21 @@
 package ar.edu.uade.catalogue.controller;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import ar.edu.uade.catalogue.model.Event;
-import ar.edu.uade.catalogue.service.KafkaMockService;
+import ar.edu.uade.catalogue.service.EventHistoryService;
 import org.springframework.web.bind.annotation.GetMapping;
 
 
@@ -21,17 +25,35 @@ import org.springframework.web.bind.annotation.GetMapping;
 public class EventController {
 
     @Autowired
-    KafkaMockService kafkaMockService;
+    EventHistoryService eventHistoryService;
 
+    // Últimos eventos con payload, acotado a events.history.max-page-size
     @GetMapping(value = "/getAll",produces = {MediaType.APPLICATION_JSON_VALUE})
     public ResponseEntity<List<Event>> getAll() {
         try{
-            List<Event> events = kafkaMockService.getAll();
+            List<Event> events = eventHistoryService.latest();
             return new ResponseEntity<>(events,HttpStatus.OK);
         }catch(EmptyResultDataAccessException e){
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         }
     }
-    
+
+    // Historial sin payload, paginado por keyset: el cursor de la respuesta va en "before"
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<EventHistoryService.EventPage> search(
+            @RequestParam(required = false) String entityType,
+            @RequestParam(required = false) Integer entityCode,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer before,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(eventHistoryService.search(entityType, entityCode, type, from, to, before, limit));
+    }
+
+    @GetMapping(value = "/{id}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Event> getById(@PathVariable Integer id) {
+        return ResponseEntity.ok(eventHistoryService.getById(id));
+    }
 
 }
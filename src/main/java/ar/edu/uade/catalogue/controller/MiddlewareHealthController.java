@@ -0,0 +1,46 @@
+package ar.edu.uade.catalogue.controller;
+
+import ar.edu.uade.catalogue.messaging.AckDispatcher;
+import ar.edu.uade.catalogue.messaging.MiddlewareCircuitBreaker;
+import ar.edu.uade.catalogue.messaging.MiddlewareRetryQueue;
+import ar.edu.uade.catalogue.model.OutboxEvent;
+import ar.edu.uade.catalogue.repository.OutboxEventRepository;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/health/middleware")
+public class MiddlewareHealthController {
+
+    private final MiddlewareCircuitBreaker breaker;
+    private final MiddlewareRetryQueue retryQueue;
+    private final OutboxEventRepository outboxRepo;
+    private final AckDispatcher ackDispatcher;
+
+    public MiddlewareHealthController(MiddlewareCircuitBreaker breaker, MiddlewareRetryQueue retryQueue,
+                                      OutboxEventRepository outboxRepo, AckDispatcher ackDispatcher) {
+        this.breaker = breaker;
+        this.retryQueue = retryQueue;
+        this.outboxRepo = outboxRepo;
+        this.ackDispatcher = ackDispatcher;
+    }
+
+    // Estado del circuito, profundidad de la cola de reintentos, lotes de ACK y backlog del outbox
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> middlewareHealth() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("breaker", breaker.snapshot());
+        map.put("retryQueue", retryQueue.snapshot());
+        map.put("acks", ackDispatcher.snapshot());
+        Map<String, Long> outbox = new LinkedHashMap<>();
+        outbox.put("pending", outboxRepo.countByStatus(OutboxEvent.Status.PENDING));
+        outbox.put("failed", outboxRepo.countByStatus(OutboxEvent.Status.FAILED));
+        map.put("outbox", outbox);
+        return ResponseEntity.ok(map);
+    }
+}
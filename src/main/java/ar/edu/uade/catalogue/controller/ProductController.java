@@ -1,6 +1,7 @@
 package ar.edu.uade.catalogue.controller;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -17,9 +18,16 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import ar.edu.uade.catalogue.model.DTO.BulkRepriceDTO;
 import ar.edu.uade.catalogue.model.DTO.ProductDTO;
 import ar.edu.uade.catalogue.model.DTO.ProductPatchDTO;
 import ar.edu.uade.catalogue.model.Product;
+import ar.edu.uade.catalogue.service.FlashSaleStockService;
+import ar.edu.uade.catalogue.service.ProductBulkService;
+import ar.edu.uade.catalogue.service.ProductBulkService.BulkPatchResult;
+import ar.edu.uade.catalogue.service.ProductBulkService.RepriceResult;
+import ar.edu.uade.catalogue.service.ProductBulkService.StockSyncResult;
+import ar.edu.uade.catalogue.service.FlashSaleStockService.FlashSaleStatus;
 import ar.edu.uade.catalogue.service.ProductService;
 import ar.edu.uade.catalogue.service.ProductService.BatchResult;
 
@@ -30,6 +38,12 @@ public class ProductController {
     @Autowired
     ProductService productService;
 
+    @Autowired
+    FlashSaleStockService flashSaleStockService;
+
+    @Autowired
+    ProductBulkService productBulkService;
+
     @GetMapping(value="/getAll",produces={MediaType.APPLICATION_JSON_VALUE})
     public ResponseEntity<List<Product>>getProducts(){
         try {
@@ -188,6 +202,28 @@ public class ProductController {
         }
     }
 
+    // PATCH masivo: array JSON o NDJSON de ProductPatchDTO (sin imágenes multipart)
+    @PatchMapping(value="/bulkUpdate", consumes={MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE}, produces={MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<BulkPatchResult> bulkUpdate(InputStream body) throws IOException {
+        BulkPatchResult result = productBulkService.patchProducts(body);
+        HttpStatus status = result.errors().isEmpty() ? HttpStatus.OK : HttpStatus.MULTI_STATUS;
+        return new ResponseEntity<>(result, status);
+    }
+
+    // Sincronización masiva de stock (depósito): array JSON o NDJSON de {productCode, stock | delta}
+    @PatchMapping(value="/bulkStock", consumes={MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE}, produces={MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StockSyncResult> bulkStock(InputStream body) throws IOException {
+        StockSyncResult result = productBulkService.applyStockAdjustments(body);
+        HttpStatus status = result.errors().isEmpty() ? HttpStatus.OK : HttpStatus.MULTI_STATUS;
+        return new ResponseEntity<>(result, status);
+    }
+
+    // Repricing masivo por categoría, marca o lista de códigos; dryRun=true sólo devuelve la vista previa
+    @PatchMapping(value="/bulkReprice", consumes={MediaType.APPLICATION_JSON_VALUE}, produces={MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<RepriceResult> bulkReprice(@RequestBody BulkRepriceDTO dto, @RequestParam(defaultValue = "false") boolean dryRun){
+        return new ResponseEntity<>(productBulkService.reprice(dto, dryRun), HttpStatus.OK);
+    }
+
     @PatchMapping(value="/updateUnitPrice/{id}",produces={MediaType.APPLICATION_JSON_VALUE})
     public ResponseEntity<Product>updatePrice(@PathVariable("id") Integer productCode, @RequestParam float newPrice){
         try {
@@ -220,6 +256,37 @@ public class ProductController {
         }
     }
 
+    // Pide un snapshot completo del producto por el canal de eventos (consumidores de deltas desincronizados)
+    @PostMapping(value="/snapshot/{id}", produces={MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Product> publishSnapshot(@PathVariable("id") Integer productCode){
+        try {
+            return new ResponseEntity<>(productService.publishSnapshot(productCode), HttpStatus.ACCEPTED);
+        } catch (EmptyResultDataAccessException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    // Flash sale: reparte el stock del producto en sub-contadores para soportar descuentos concurrentes
+    @PatchMapping(value="/flashSale/start/{id}", produces={MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<FlashSaleStatus> startFlashSale(@PathVariable("id") Integer productCode, @RequestParam(required = false) Integer stripes){
+        return new ResponseEntity<>(flashSaleStockService.start(productCode, stripes), HttpStatus.OK);
+    }
+
+    @PatchMapping(value="/flashSale/end/{id}", produces={MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<FlashSaleStatus> endFlashSale(@PathVariable("id") Integer productCode){
+        return new ResponseEntity<>(flashSaleStockService.end(productCode), HttpStatus.OK);
+    }
+
+    @GetMapping(value="/flashSale/{id}", produces={MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<FlashSaleStatus> getFlashSale(@PathVariable("id") Integer productCode){
+        return new ResponseEntity<>(flashSaleStockService.getStatus(productCode), HttpStatus.OK);
+    }
+
+    @GetMapping(value="/flashSale", produces={MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<List<FlashSaleStatus>> getFlashSales(){
+        return new ResponseEntity<>(flashSaleStockService.getAll(), HttpStatus.OK);
+    }
+
     @DeleteMapping(value="/delete/{id}")
     public ResponseEntity<Void>deleteProduct(@PathVariable("id") Integer id){
         boolean deleted = productService.deleteProduct(id);
@@ -0,0 +1,53 @@
+package ar.edu.uade.catalogue.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import ar.edu.uade.catalogue.model.Promotion;
+import ar.edu.uade.catalogue.model.DTO.PromotionDTO;
+import ar.edu.uade.catalogue.scheduler.PromotionScheduler;
+import ar.edu.uade.catalogue.service.PromotionService;
+
+@RestController
+@RequestMapping(value="/promotions")
+public class PromotionController {
+
+    @Autowired
+    PromotionService promotionService;
+
+    @Autowired
+    PromotionScheduler promotionScheduler;
+
+    @PostMapping(value="/create", consumes={MediaType.APPLICATION_JSON_VALUE}, produces={MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Promotion> createPromotion(@RequestBody PromotionDTO dto){
+        Promotion created = promotionService.create(dto);
+        promotionScheduler.schedule(created);
+        return new ResponseEntity<>(created, HttpStatus.CREATED);
+    }
+
+    @GetMapping(value="/getAll", produces={MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<List<Promotion>> getPromotions(){
+        return new ResponseEntity<>(promotionService.getAll(), HttpStatus.OK);
+    }
+
+    @GetMapping(value="/{id}", produces={MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Promotion> getPromotion(@PathVariable("id") Long id){
+        return new ResponseEntity<>(promotionService.getById(id), HttpStatus.OK);
+    }
+
+    @PatchMapping(value="/cancel/{id}", produces={MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Promotion> cancelPromotion(@PathVariable("id") Long id){
+        return new ResponseEntity<>(promotionService.cancel(id), HttpStatus.OK);
+    }
+}
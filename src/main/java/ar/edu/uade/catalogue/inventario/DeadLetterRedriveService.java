@@ -0,0 +1,175 @@
+package ar.edu.uade.catalogue.inventario;
+
+import ar.edu.uade.catalogue.messaging.DeadLetters;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Redrive de la DLQ: lee un lote acotado con un consumer group propio, devuelve cada record a su topic
+ * original (sin los headers de la falla anterior y con x-redrive-count) y confirma offsets sólo hasta
+ * el último record reenviado sin errores por partición. Lo que no se reenvió se vuelve a leer en el
+ * próximo redrive. Un record que ya volvió max-redrives veces a la DLQ se saltea para que no bloquee.
+ * Los eventos reenviados pasan por la idempotencia del consumer, así que repetir un redrive es seguro.
+ */
+@Service
+public class DeadLetterRedriveService {
+    private static final Logger log = LoggerFactory.getLogger(DeadLetterRedriveService.class);
+
+    public record Result(String dlqTopic, int polled, int redriven, int skipped, int failed, Map<String, Integer> byTargetTopic) {}
+
+    private final ConsumerFactory<Object, Object> consumerFactory;
+    private final KafkaTemplate<Object, Object> template;
+    private final ReentrantLock running = new ReentrantLock();
+
+    @Value("${inventario.kafka.internal-topic:inventario}")
+    private String internalTopic;
+    @Value("${inventario.kafka.dlq.topicSuffix:.dlq}")
+    private String dlqSuffix;
+    @Value("${spring.kafka.consumer.group-id:inventario-ms}")
+    private String groupId;
+    @Value("${inventario.kafka.dlq.redrive.batch-size:100}")
+    private int batchSize;
+    @Value("${inventario.kafka.dlq.redrive.max-redrives:3}")
+    private int maxRedrives;
+    @Value("${inventario.kafka.dlq.redrive.poll.ms:5000}")
+    private long pollMs;
+
+    public DeadLetterRedriveService(ConsumerFactory<Object, Object> consumerFactory,
+                                    @Qualifier("kafkaDeadLetterTemplate") KafkaTemplate<Object, Object> template) {
+        this.consumerFactory = consumerFactory;
+        this.template = template;
+    }
+
+    public Result redrive(String topic, Integer max) {
+        String dlq = topic == null || topic.isBlank() ? internalTopic + dlqSuffix : topic.trim();
+        if (!dlq.endsWith(dlqSuffix)) throw new IllegalArgumentException("El topic " + dlq + " no es una DLQ (sufijo " + dlqSuffix + ")");
+        int limit = max == null ? batchSize : max;
+        if (limit < 1 || limit > batchSize * 10) {
+            throw new IllegalArgumentException("max debe estar entre 1 y " + (batchSize * 10));
+        }
+        if (!running.tryLock()) throw new IllegalStateException("Ya hay un redrive de DLQ en curso");
+        try (Consumer<byte[], byte[]> consumer = createConsumer(limit)) {
+            consumer.subscribe(List.of(dlq));
+            List<ConsumerRecord<byte[], byte[]>> batch = poll(consumer, limit);
+            Result result = replay(dlq, consumer, batch);
+            log.info("[Inventario][DLQ] Redrive de {}: leídos={} reenviados={} salteados={} fallidos={}", dlq,
+                    result.polled(), result.redriven(), result.skipped(), result.failed());
+            return result;
+        } finally {
+            running.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Consumer<byte[], byte[]> createConsumer(int limit) {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        overrides.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Integer.toString(limit));
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        overrides.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        return (Consumer<byte[], byte[]>) (Consumer<?, ?>) consumerFactory.createConsumer(groupId + "-dlq-redrive", null, "-redrive", overrides);
+    }
+
+    // El primer poll puede volver vacío mientras el consumer se une al grupo: se insiste hasta pollMs
+    private List<ConsumerRecord<byte[], byte[]>> poll(Consumer<byte[], byte[]> consumer, int limit) {
+        List<ConsumerRecord<byte[], byte[]>> batch = new ArrayList<>(limit);
+        long deadline = System.currentTimeMillis() + pollMs;
+        while (batch.size() < limit) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) break;
+            var records = consumer.poll(Duration.ofMillis(Math.min(left, 500)));
+            if (records.isEmpty() && !batch.isEmpty()) break;
+            for (ConsumerRecord<byte[], byte[]> r : records) {
+                if (batch.size() >= limit) break;
+                batch.add(r);
+            }
+        }
+        return batch;
+    }
+
+    private Result replay(String dlq, Consumer<byte[], byte[]> consumer, List<ConsumerRecord<byte[], byte[]>> batch) {
+        List<CompletableFuture<SendResult<Object, Object>>> sends = new ArrayList<>(batch.size());
+        Map<String, Integer> byTarget = new LinkedHashMap<>();
+        int skipped = 0;
+        for (ConsumerRecord<byte[], byte[]> r : batch) {
+            int redrives = DeadLetters.redriveCount(r.headers());
+            if (redrives >= maxRedrives) {
+                skipped++;
+                log.error("[Inventario][DLQ] Record {}-{}@{} ya se reenvió {} veces; queda en la DLQ", r.topic(), r.partition(), r.offset(), redrives);
+                sends.add(CompletableFuture.completedFuture(null));
+                continue;
+            }
+            String target = DeadLetters.originalTopic(r, dlqSuffix);
+            RecordHeaders headers = new RecordHeaders();
+            for (Header h : r.headers()) {
+                if (!DeadLetters.isFailureHeader(h.key()) && !h.key().equals(DeadLetters.HEADER_REDRIVE_COUNT)) headers.add(h);
+            }
+            headers.add(DeadLetters.HEADER_REDRIVE_COUNT, Integer.toString(redrives + 1).getBytes(StandardCharsets.UTF_8));
+            CompletableFuture<SendResult<Object, Object>> send;
+            try {
+                send = template.send(new ProducerRecord<>(target, null, r.key(), r.value(), headers));
+            } catch (RuntimeException e) {
+                send = CompletableFuture.failedFuture(e);
+            }
+            sends.add(send);
+            byTarget.merge(target, 1, Integer::sum);
+        }
+
+        // Offsets: por partición, hasta antes del primer envío fallido
+        Map<TopicPartition, OffsetAndMetadata> commit = new HashMap<>();
+        Map<TopicPartition, Boolean> blocked = new HashMap<>();
+        int failed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            ConsumerRecord<byte[], byte[]> r = batch.get(i);
+            TopicPartition tp = new TopicPartition(r.topic(), r.partition());
+            boolean ok;
+            try {
+                sends.get(i).get(30, TimeUnit.SECONDS);
+                ok = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ok = false;
+            } catch (Exception e) {
+                ok = false;
+                log.warn("[Inventario][DLQ] No se pudo reenviar {}-{}@{}: {}", r.topic(), r.partition(), r.offset(), e.toString());
+            }
+            if (!ok) {
+                failed++;
+                blocked.put(tp, true);
+            } else if (!blocked.containsKey(tp)) {
+                commit.put(tp, new OffsetAndMetadata(r.offset() + 1));
+            }
+        }
+        if (!commit.isEmpty()) consumer.commitSync(commit);
+        int redriven = batch.size() - skipped - failed;
+        return new Result(dlq, batch.size(), redriven, skipped, failed, byTarget);
+    }
+}
@@ -1,28 +1,162 @@
 package ar.edu.uade.catalogue.inventario;
 
+import ar.edu.uade.catalogue.model.ConsumedEventLog.Status;
+import ar.edu.uade.catalogue.repository.ConsumedEventLogWriter;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.util.concurrent.TimeUnit;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Idempotencia compartida por los consumers, en tres niveles:
+ * <ol>
+ *   <li>Caffeine con los ids procesados recientemente: un "sí" sin ir a la base.</li>
+ *   <li>Bloom filter con los eventId que tienen fila en consumed_event_log: un "no" permite insertar
+ *       sin consultar antes, pero no alcanza para procesar. El filtro es de esta instancia y no ve lo
+ *       que otra procesó antes de un rebalance.</li>
+ *   <li>consumed_event_log (índice único de event_id): la respuesta durable. Cada evento nuevo se
+ *       reclama con un INSERT; si el índice lo rechaza se lee su estado.</li>
+ * </ol>
+ * El filtro se reconstruye al arrancar con las filas de los últimos rebuild.days. Mientras se
+ * reconstruye, {@link #mightExist} responde que sí y las consultas bajan a la base.
+ */
 @Service
 public class EventIdempotencyService {
-    private final Cache<String, Boolean> cache = Caffeine.newBuilder()
-            .expireAfterWrite(Duration.ofHours(24))
-            .maximumSize(100_000)
-            .build();
+    private static final Logger log = LoggerFactory.getLogger(EventIdempotencyService.class);
 
-    public boolean alreadyProcessed(String eventId) {
-        if (eventId == null || eventId.isBlank()) return false; // si no hay id, no aplicamos idempotencia
-        Boolean exists = cache.getIfPresent(eventId);
-        return exists != null && exists;
+    public record Snapshot(boolean filterReady, long filterEntries, int filterSlices, long cachedIds,
+                           long filterNegatives, long cacheHits, long durableLookups) {}
+
+    private final ConsumedEventLogWriter logWriter;
+    private final ScalableBloomFilter filter;
+    private final Cache<String, Boolean> cache;
+    private final long rebuildDays;
+
+    private volatile boolean filterReady;
+    private final AtomicLong filterNegatives = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong durableLookups = new AtomicLong();
+
+    public EventIdempotencyService(ConsumedEventLogWriter logWriter,
+                                   @Value("${inventario.idempotency.expected-insertions:100000}") long expectedInsertions,
+                                   @Value("${inventario.idempotency.fpp:0.01}") double fpp,
+                                   @Value("${inventario.idempotency.cache.max-size:100000}") long cacheMaxSize,
+                                   @Value("${inventario.idempotency.cache.ttl.hours:24}") long cacheTtlHours,
+                                   @Value("${inventario.idempotency.rebuild.days:7}") long rebuildDays) {
+        this.logWriter = logWriter;
+        this.filter = new ScalableBloomFilter(expectedInsertions, fpp);
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofHours(cacheTtlHours))
+                .maximumSize(cacheMaxSize)
+                .build();
+        this.rebuildDays = rebuildDays;
+    }
+
+    @PostConstruct
+    public void startRebuild() {
+        Thread t = new Thread(this::rebuild, "idempotency-rebuild");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            long loaded = logWriter.forEachEventIdSince(LocalDateTime.now().minusDays(rebuildDays), filter::put);
+            filterReady = true;
+            log.info("[Idempotencia] Bloom filter reconstruido con {} eventIds en {} ms", loaded, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // Sin filtro se sigue funcionando: cada consulta baja a la base
+            log.warn("[Idempotencia] No se pudo reconstruir el Bloom filter, se consulta la base: {}", e.toString());
+        }
     }
 
+    /**
+     * Reclama un evento del topic interno: true si hay que procesarlo. El INSERT contra el índice
+     * único decide aunque otra instancia lo haya tomado antes de un rebalance; una fila ya existente
+     * se vuelve a procesar salvo que esté PROCESSED (la entrega anterior falló o no terminó).
+     */
+    public boolean claim(String eventId, String eventType, String topic, Integer partition, Long offset) {
+        if (eventId == null || eventId.isBlank()) return true; // si no hay id, no aplicamos idempotencia
+        if (cache.getIfPresent(eventId) != null) {
+            cacheHits.incrementAndGet();
+            return false;
+        }
+        durableLookups.incrementAndGet();
+        boolean inserted;
+        try {
+            inserted = logWriter.claimWithoutAck(eventId, eventType, topic, partition, offset);
+        } catch (Exception e) {
+            // Sin log no hay idempotencia, pero se prioriza no frenar el consumo (como en ventas)
+            log.warn("[Idempotencia] No se pudo reclamar eventId={} en la base (se procesa igual): {}", eventId, e.toString());
+            return true;
+        }
+        filter.put(eventId);
+        if (inserted) return true;
+        boolean processed = logWriter.state(eventId).map(s -> s.status() == Status.PROCESSED).orElse(false);
+        if (processed) cache.put(eventId, Boolean.TRUE);
+        return !processed;
+    }
+
+    /** Sólo memoria: true si el evento se procesó hace poco. Un false no es definitivo. */
+    public boolean recentlyProcessed(String eventId) {
+        if (eventId == null || eventId.isBlank()) return false;
+        boolean hit = cache.getIfPresent(eventId) != null;
+        if (hit) cacheHits.incrementAndGet();
+        return hit;
+    }
+
+    /** false si el eventId seguro no tiene fila en consumed_event_log (se puede insertar sin consultar). */
+    public boolean mightExist(String eventId) {
+        if (eventId == null || !filterReady) return true;
+        boolean maybe = filter.mightContain(eventId);
+        if (!maybe) filterNegatives.incrementAndGet();
+        return maybe;
+    }
+
+    /** El eventId ya tiene fila (reclamada por un consumer). */
+    public void markClaimed(String eventId) {
+        if (eventId == null || eventId.isBlank()) return;
+        filter.put(eventId);
+    }
+
+    /** Procesado con su fila ya escrita por el llamador (consumer de ventas). */
     public void markProcessed(String eventId) {
         if (eventId == null || eventId.isBlank()) return;
+        filter.put(eventId);
         cache.put(eventId, Boolean.TRUE);
     }
-}
 
+    /** Procesado un evento reclamado con {@link #claim} (topic interno). */
+    public void recordProcessed(String eventId) {
+        if (eventId == null || eventId.isBlank()) return;
+        markProcessed(eventId);
+        complete(eventId, Status.PROCESSED, null);
+    }
+
+    /** Falló el procesamiento de un evento reclamado: la fila queda en ERROR y la próxima entrega lo reintenta. */
+    public void recordFailed(String eventId, String error) {
+        if (eventId == null || eventId.isBlank()) return;
+        complete(eventId, Status.ERROR, error);
+    }
+
+    private void complete(String eventId, Status status, String error) {
+        try {
+            logWriter.complete(eventId, status, error);
+        } catch (Exception e) {
+            log.warn("[Idempotencia] No se pudo registrar {} de eventId={} en la base: {}", status, eventId, e.toString());
+        }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(filterReady, filter.approximateCount(), filter.sliceCount(), cache.estimatedSize(),
+                filterNegatives.get(), cacheHits.get(), durableLookups.get());
+    }
+}
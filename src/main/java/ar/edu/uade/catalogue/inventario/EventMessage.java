@@ -1,6 +1,7 @@
 package ar.edu.uade.catalogue.inventario;
 
-import java.text.Normalizer;
+import ar.edu.uade.catalogue.messaging.EventTypeNormalizer;
+
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
@@ -71,10 +72,7 @@ public class EventMessage {
     }
 
     public String getNormalizedEventType() {
-        if (eventType == null) return "";
-        String s = Normalizer.normalize(eventType, Normalizer.Form.NFD)
-                .replaceAll("\\p{M}", ""); // remove diacritics
-        return s.toLowerCase().trim();
+        return EventTypeNormalizer.normalize(eventType);
     }
 
     @Override
@@ -17,6 +17,7 @@ public class InventarioConsumerMonitorService {
     private final ConcurrentHashMap<String, AtomicLong> handledByType = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, AtomicLong> errorsByType = new ConcurrentHashMap<>();
     private final AtomicLong duplicates = new AtomicLong(0);
+    private final ConcurrentHashMap<String, AtomicLong> deadLetteredByTopic = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, String> lastEventIdByType = new ConcurrentHashMap<>();
 
     @Value("${inventario.kafka.topic:inventario.events}")
@@ -29,8 +30,14 @@ public class InventarioConsumerMonitorService {
     private int maxAttempts;
     @Value("${inventario.kafka.error.backoff.ms:500}")
     private long backoffMs;
-    @Value("${inventario.kafka.dlq.enabled:false}")
+    @Value("${inventario.kafka.error.max-backoff.ms:10000}")
+    private long maxBackoffMs;
+    @Value("${inventario.kafka.dlq.enabled:true}")
     private boolean dlqEnabled;
+    @Value("${inventario.kafka.dlq.topicSuffix:.dlq}")
+    private String dlqSuffix;
+    @Value("${inventario.kafka.retry-topics.suffix:.retry}")
+    private String retrySuffix;
 
     public void incHandled(String type, String eventId) {
         handledByType.computeIfAbsent(type, t -> new AtomicLong()).incrementAndGet();
@@ -43,6 +50,11 @@ public class InventarioConsumerMonitorService {
 
     public void incDuplicate() { duplicates.incrementAndGet(); }
 
+    /** Record que agotó los reintentos (DLQ o descartado), por topic de origen. */
+    public void incDeadLettered(String topic) {
+        deadLetteredByTopic.computeIfAbsent(topic, t -> new AtomicLong()).incrementAndGet();
+    }
+
     public Map<String, Long> snapshotHandled() {
         return handledByType.entrySet().stream().collect(ConcurrentHashMap::new, (m,e)->m.put(e.getKey(), e.getValue().get()), Map::putAll);
     }
@@ -55,6 +67,8 @@ public class InventarioConsumerMonitorService {
         res.put("handledByType", snapshotHandled());
         res.put("errorsByType", snapshotErrors());
         res.put("duplicates", duplicates.get());
+        res.put("deadLetteredByTopic", deadLetteredByTopic.entrySet().stream()
+                .collect(ConcurrentHashMap::new, (m, e) -> m.put(e.getKey(), e.getValue().get()), Map::putAll));
         res.put("lastEventIds", Collections.unmodifiableMap(lastEventIdByType));
         res.put("uptimeMs", Instant.now().toEpochMilli() - startTime);
         Map<String, Object> cfg = new ConcurrentHashMap<>();
@@ -63,7 +77,10 @@ public class InventarioConsumerMonitorService {
         cfg.put("concurrency", concurrency);
         cfg.put("maxAttempts", maxAttempts);
         cfg.put("backoffMs", backoffMs);
+        cfg.put("maxBackoffMs", maxBackoffMs);
         cfg.put("dlqEnabled", dlqEnabled);
+        cfg.put("dlqTopicSuffix", dlqSuffix);
+        cfg.put("retryTopicSuffix", retrySuffix);
         res.put("config", cfg);
         return res;
     }
@@ -0,0 +1,24 @@
+package ar.edu.uade.catalogue.inventario;
+
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/inventario/dlq")
+public class InventarioDlqController {
+
+    private final DeadLetterRedriveService redriveService;
+
+    public InventarioDlqController(DeadLetterRedriveService redriveService) {
+        this.redriveService = redriveService;
+    }
+
+    // Reenvía a su topic original un lote de hasta max records de la DLQ (por defecto la del topic interno)
+    @PostMapping("/redrive")
+    public DeadLetterRedriveService.Result redrive(@RequestParam(required = false) String topic,
+                                                   @RequestParam(required = false) Integer max) {
+        return redriveService.redrive(topic, max);
+    }
+}
@@ -4,15 +4,28 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import ar.edu.uade.catalogue.messaging.DeadLetters;
+import ar.edu.uade.catalogue.messaging.EventTypeNormalizer;
+import ar.edu.uade.catalogue.messaging.KeyOrderedExecutor;
+import ar.edu.uade.catalogue.messaging.RedeliveryTracker;
 import ar.edu.uade.catalogue.service.ProductService;
 
 @Component
@@ -26,80 +39,165 @@ public class InventarioEventsListener {
     private final InventarioConsumerMonitorService monitor;
     private final ProductService productService;
     private final ObjectMapper objectMapper;
+    private final KeyOrderedExecutor keyOrderedExecutor;
 
-    public InventarioEventsListener(EventIdempotencyService idempotency, InventarioConsumerMonitorService monitor, ProductService productService, ObjectMapper objectMapper) {
+    @Value("${inventario.kafka.parallel.nack-sleep.ms:1000}")
+    private long nackSleepMs;
+    @Value("${inventario.kafka.parallel.max-redeliveries:5}")
+    private int maxRedeliveries;
+    private final RedeliveryTracker redeliveries = new RedeliveryTracker();
+    @Value("${inventario.kafka.dlq.topicSuffix:.dlq}")
+    private String dlqSuffix;
+
+    public InventarioEventsListener(EventIdempotencyService idempotency, InventarioConsumerMonitorService monitor, ProductService productService,
+                                    ObjectMapper objectMapper, KeyOrderedExecutor keyOrderedExecutor) {
         this.idempotency = idempotency;
         this.monitor = monitor;
         this.productService = productService;
         this.objectMapper = objectMapper;
+        this.keyOrderedExecutor = keyOrderedExecutor;
     }
 
+    /**
+     * Un error del handler sale sin ACK: el record pasa a los retry topics ({topic}.retry-0, -1, ...) con
+     * backoff exponencial y, agotados los intentos, a la DLQ con los headers de falla. La partición
+     * principal no se frena mientras tanto.
+     */
+    @RetryableTopic(attempts = "${inventario.kafka.error.maxAttempts:3}",
+            backoff = @Backoff(delayExpression = "${inventario.kafka.error.backoff.ms:500}",
+                    multiplierExpression = "${inventario.kafka.error.multiplier:2.0}",
+                    maxDelayExpression = "${inventario.kafka.error.max-backoff.ms:10000}"),
+            retryTopicSuffix = "${inventario.kafka.retry-topics.suffix:.retry}",
+            dltTopicSuffix = "${inventario.kafka.dlq.topicSuffix:.dlq}",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            autoCreateTopics = "${inventario.kafka.create-topics:false}",
+            kafkaTemplate = "kafkaDeadLetterTemplate",
+            exclude = DeserializationException.class)
     @KafkaListener(topics = "${inventario.kafka.internal-topic:inventario}",
-            groupId = "${spring.kafka.consumer.group-id:inventario-ms}")
+            groupId = "${spring.kafka.consumer.group-id:inventario-ms}",
+            autoStartup = "#{!${inventario.kafka.parallel.enabled:false}}")
     public void onMessage(ConsumerRecord<String, Object> record, Acknowledgment ack, @Payload(required = false) Object ignoredPayload) {
+        handle(record);
+        ack.acknowledge();
+    }
+
+    /** Último eslabón de los retry topics: el record ya quedó en la DLQ; se registra y se confirma. */
+    @DltHandler
+    public void onDeadLetter(ConsumerRecord<String, Object> record, Acknowledgment ack) {
+        monitor.incDeadLettered(DeadLetters.originalTopic(record, dlqSuffix));
+        log.error("[Inventario][DLQ] Record en {} partition={} offset={} motivo={}", record.topic(), record.partition(), record.offset(),
+                header(record, DeadLetters.HEADER_REASON));
+        if (ack != null) ack.acknowledge();
+    }
+
+    private static String header(ConsumerRecord<?, ?> record, String key) {
+        var h = record.headers().lastHeader(key);
+        return h == null ? null : new String(h.value(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Modo paralelo: el poll completo repartido en lanes por producto; un fallo frena sólo los eventos
+     * de su clave. Se confirman offsets hasta el primer record sin completar y el resto se reentrega
+     * (lo ya procesado lo descarta la idempotencia); agotadas las reentregas el record va a la DLQ.
+     */
+    @KafkaListener(id = "inventario-parallel", topics = "${inventario.kafka.internal-topic:inventario}",
+            groupId = "${spring.kafka.consumer.group-id:inventario-ms}",
+            containerFactory = "salesBatchListenerContainerFactory",
+            autoStartup = "${inventario.kafka.parallel.enabled:false}",
+            properties = "max.poll.records=${inventario.kafka.batch.max-poll-records:500}")
+    public void onParallel(List<ConsumerRecord<String, Object>> records, Acknowledgment ack) {
+        int completed = keyOrderedExecutor.process(records, this::productKeys, this::handle);
+        if (completed < records.size()) {
+            log.warn("[Inventario][Paralelo] Offsets confirmados hasta el record {} de {}; el resto se reentrega", completed, records.size());
+        }
+        redeliveries.settle(records, completed, ack, maxRedeliveries, Duration.ofMillis(nackSleepMs));
+    }
+
+    private void handle(ConsumerRecord<String, Object> record) {
         // Manejo de errores de deserialización: saltar y ACK para evitar while true
         var hdr = record.headers().lastHeader(VALUE_DESER_EX_HEADER);
         if (hdr != null) {
             log.error("[Inventario][Internal] Valor no deserializable. Saltando record topic={} partition={} offset={}", record.topic(), record.partition(), record.offset());
-            ack.acknowledge();
-            return;
-        }
-
-        EventMessage msg;
-        Object raw = record.value();
-        try {
-            if (raw instanceof String s) {
-                msg = objectMapper.readValue(s, EventMessage.class);
-            } else {
-                msg = objectMapper.convertValue(raw, EventMessage.class);
-            }
-        } catch (Exception ex) {
-            log.error("[Inventario][Internal] Error convirtiendo payload en EventMessage: {}. Saltando.", ex.toString());
-            ack.acknowledge();
             return;
         }
 
+        EventMessage msg = toMessage(record);
         if (msg == null) {
             log.warn("[Inventario][Internal] Mensaje nulo en topic={} partition={} offset={}, se ACKea y continúa", record.topic(), record.partition(), record.offset());
-            ack.acknowledge();
             return;
         }
 
         String eventId = msg.getEventId();
-        String normalized = msg.getNormalizedEventType();
+        EventTypeNormalizer.Resolved kind = EventTypeNormalizer.resolve(msg.getEventType());
+        String normalized = kind.normalized();
 
-        if (idempotency.alreadyProcessed(eventId)) {
+        if (!idempotency.claim(eventId, normalized, record.topic(), record.partition(), record.offset())) {
             monitor.incDuplicate();
             log.info("[Inventario][SkipDuplicate] id={} type={}", eventId, normalized);
-            ack.acknowledge();
             return;
         }
 
         try {
-            switch (normalized) {
-                case "post: stock actualizado" -> handleStockActualizado(msg);
-                case "post: producto desactivado" -> handleProductoDesactivado(msg);
-                case "post: producto creado" -> handleProductoCreado(msg);
-                case "delete: producto eliminado" -> handleProductoEliminado(msg);
-                case "post: reserva de stock" -> handleReservaStock(msg);
-                case "delete: reserva cancelada" -> handleReservaCancelada(msg);
-                case "post: compra pendiente" -> handleCompraPendiente(msg);
-                case "post: compra confirmada" -> handleCompraConfirmada(msg);
-                case "delete: compra cancelada" -> handleCompraCancelada(msg);
-                case "post: review creada" -> handleReviewCreada(msg);
+            switch (kind.type()) {
+                case STOCK_ACTUALIZADO -> handleStockActualizado(msg);
+                case PRODUCTO_DESACTIVADO -> handleProductoDesactivado(msg);
+                case PRODUCTO_CREADO -> handleProductoCreado(msg);
+                case PRODUCTO_ELIMINADO -> handleProductoEliminado(msg);
+                case RESERVA_STOCK -> handleReservaStock(msg);
+                case RESERVA_CANCELADA -> handleReservaCancelada(msg);
+                case COMPRA_PENDIENTE -> handleCompraPendiente(msg);
+                case COMPRA_CONFIRMADA -> handleCompraConfirmada(msg);
+                case COMPRA_CANCELADA -> handleCompraCancelada(msg);
+                case REVIEW_CREADA -> handleReviewCreada(msg);
                 default -> log.info("[Inventario][Listener] Evento no reconocido: {} payload={}", normalized, msg.getPayload());
             }
-            idempotency.markProcessed(eventId);
+            idempotency.recordProcessed(eventId);
             monitor.incHandled(normalized, eventId);
-            ack.acknowledge();
         } catch (RuntimeException ex) {
             monitor.incError(normalized);
+            idempotency.recordFailed(eventId, ex.toString());
             log.error("[Inventario][HandlerError] id={} type={} ex={}", eventId, normalized, ex.toString());
-            // no ACK -> que el error handler gestione el retry/backoff
             throw ex;
         }
     }
 
+    // null si el valor no se puede convertir: el record se saltea
+    private EventMessage toMessage(ConsumerRecord<String, Object> record) {
+        Object raw = record.value();
+        try {
+            if (raw instanceof String s) return objectMapper.readValue(s, EventMessage.class);
+            return objectMapper.convertValue(raw, EventMessage.class);
+        } catch (Exception ex) {
+            log.error("[Inventario][Internal] Error convirtiendo payload en EventMessage: {}. Saltando.", ex.toString());
+            return null;
+        }
+    }
+
+    // Claves de lane: productCode del payload o de los items del carrito
+    private List<String> productKeys(ConsumerRecord<String, Object> record) {
+        if (record.headers().lastHeader(VALUE_DESER_EX_HEADER) != null) return List.of();
+        EventMessage msg;
+        try {
+            Object raw = record.value();
+            msg = raw instanceof String s ? objectMapper.readValue(s, EventMessage.class) : objectMapper.convertValue(raw, EventMessage.class);
+        } catch (Exception e) {
+            return List.of();
+        }
+        if (msg == null || !(msg.getPayload() instanceof Map<?, ?> map)) return List.of();
+        List<String> keys = new ArrayList<>();
+        Integer code = readInt(map, "productCode", "product_code");
+        if (code != null) keys.add("product:" + code);
+        if (map.get("cart") instanceof Map<?, ?> cart && cart.get("cartItems") instanceof List<?> items) {
+            for (Object it : items) {
+                if (it instanceof Map<?, ?> item) {
+                    Integer c = readInt(item, "productCode", "product_code", "code");
+                    if (c != null) keys.add("product:" + c);
+                }
+            }
+        }
+        return keys;
+    }
+
     private void handleStockActualizado(EventMessage msg) { log.info("[Inventario][Handler] Stock actualizado payload={}", msg.getPayload()); }
     private void handleProductoDesactivado(EventMessage msg) { log.info("[Inventario][Handler] Producto desactivado payload={}", msg.getPayload()); }
     private void handleProductoCreado(EventMessage msg) { log.info("[Inventario][Handler] Producto creado payload={}", msg.getPayload()); }
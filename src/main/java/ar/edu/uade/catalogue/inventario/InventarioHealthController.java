@@ -11,14 +11,20 @@ import java.util.Map;
 public class InventarioHealthController {
 
     private final InventarioConsumerMonitorService monitorService;
+    private final EventIdempotencyService idempotency;
 
-    public InventarioHealthController(InventarioConsumerMonitorService monitorService) {
+    public InventarioHealthController(InventarioConsumerMonitorService monitorService, EventIdempotencyService idempotency) {
         this.monitorService = monitorService;
+        this.idempotency = idempotency;
     }
 
     @GetMapping
     public Map<String, Object> getHealth() {
         return monitorService.healthPayload();
     }
-}
 
+    @GetMapping("/idempotencia")
+    public EventIdempotencyService.Snapshot getIdempotency() {
+        return idempotency.snapshot();
+    }
+}
@@ -0,0 +1,28 @@
+package ar.edu.uade.catalogue.inventario;
+
+import ar.edu.uade.catalogue.messaging.DeadLetters;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.retrytopic.DeadLetterPublishingRecovererFactory;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationSupport;
+
+import java.util.function.Consumer;
+
+/**
+ * Infraestructura de los retry topics del listener interno: cada reenvío (a un retry topic o a la DLQ)
+ * lleva los headers de falla de {@link DeadLetters} además de los estándar.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "inventario.kafka.internal", name = "enabled", havingValue = "true")
+public class InventarioRetryTopicConfig extends RetryTopicConfigurationSupport {
+
+    @Value("${spring.kafka.consumer.group-id:inventario-ms}")
+    private String groupId;
+
+    @Override
+    protected Consumer<DeadLetterPublishingRecovererFactory> configureDeadLetterPublishingContainerFactory() {
+        return factory -> factory.setDeadLetterPublishingRecovererCustomizer(
+                recoverer -> recoverer.setHeadersFunction((record, ex) -> DeadLetters.failureHeaders(groupId, record, ex)));
+    }
+}
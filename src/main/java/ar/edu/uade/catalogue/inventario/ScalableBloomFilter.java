@@ -0,0 +1,121 @@
+package ar.edu.uade.catalogue.inventario;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter escalable: una cadena de filtros donde cada uno nuevo duplica la capacidad y reduce
+ * a la mitad la tasa de falsos positivos, así la tasa total queda acotada por ~2×fpp sin conocer de
+ * antemano cuántos ids van a llegar. Nunca da falsos negativos. Los bits se setean con CAS: put y
+ * mightContain no toman locks, sólo el crecimiento de la cadena.
+ */
+public class ScalableBloomFilter {
+
+    private static final class Slice {
+        final AtomicLongArray bits;
+        final long size;
+        final int hashes;
+        final long capacity;
+        final AtomicLong count = new AtomicLong();
+
+        Slice(long capacity, double fpp) {
+            // Tamaño y cantidad de hashes óptimos: m = -n·ln(p)/ln(2)², k = m/n·ln(2)
+            long m = Math.max(64, (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+            this.bits = new AtomicLongArray((int) ((m + 63) / 64));
+            this.size = (long) bits.length() * 64;
+            this.hashes = Math.max(1, (int) Math.round((double) size / capacity * Math.log(2)));
+            this.capacity = capacity;
+        }
+
+        boolean mightContain(long h1, long h2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        void put(long h1, long h2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                long mask = 1L << bit;
+                int word = (int) (bit >>> 6);
+                long current;
+                do {
+                    current = bits.get(word);
+                    if ((current & mask) != 0) break;
+                } while (!bits.compareAndSet(word, current, current | mask));
+            }
+            count.incrementAndGet();
+        }
+    }
+
+    private final List<Slice> slices = new CopyOnWriteArrayList<>();
+    private final double fpp;
+
+    public ScalableBloomFilter(long initialCapacity, double fpp) {
+        this.fpp = Math.min(0.5, Math.max(1e-9, fpp));
+        slices.add(new Slice(Math.max(1, initialCapacity), this.fpp / 2));
+    }
+
+    public boolean mightContain(String value) {
+        long h = hash64(value);
+        long h1 = h, h2 = mix(h);
+        for (Slice s : slices) if (s.mightContain(h1, h2)) return true;
+        return false;
+    }
+
+    public void put(String value) {
+        long h = hash64(value);
+        long h1 = h, h2 = mix(h);
+        Slice last = slices.get(slices.size() - 1);
+        if (last.count.get() >= last.capacity) last = grow(last);
+        last.put(h1, h2);
+    }
+
+    /** Cantidad aproximada de ids agregados (un id repetido cuenta dos veces). */
+    public long approximateCount() {
+        long total = 0;
+        for (Slice s : slices) total += s.count.get();
+        return total;
+    }
+
+    public int sliceCount() {
+        return slices.size();
+    }
+
+    public long bitSize() {
+        long total = 0;
+        for (Slice s : slices) total += s.size;
+        return total;
+    }
+
+    private synchronized Slice grow(Slice full) {
+        Slice last = slices.get(slices.size() - 1);
+        // Otro hilo ya agregó un filtro nuevo
+        if (last != full) return last;
+        int n = slices.size();
+        Slice next = new Slice(full.capacity * 2, fpp / Math.pow(2, n + 1));
+        slices.add(next);
+        return next;
+    }
+
+    // FNV-1a de 64 bits sobre los bytes UTF-8, con un mezclado final para repartir los bits altos
+    private static long hash64(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,175 @@
+package ar.edu.uade.catalogue.messaging;
+
+import ar.edu.uade.catalogue.repository.ConsumedEventLogWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ACKs al middleware fuera del hilo del listener. Los eventId se encolan con {@link #submit} y un hilo
+ * propio los junta en micro-lotes (batch-size o linger.ms, lo que llegue primero), los envía en
+ * paralelo por el HttpClient compartido (acotados por la ventana de requests del cliente) y registra
+ * el resultado de todo el lote con un único batch UPDATE de ack_sent/ack_attempts. Mientras un lote
+ * está en vuelo los siguientes ids se acumulan, así el lote crece solo cuando el middleware se pone lento.
+ * Los ACK fallidos (y los que no entran en la cola) no se reencolan acá: su fila de consumed_event_log
+ * conserva next_attempt_at y el único dueño de los reintentos es {@code SalesEventsRetryScheduler}, que
+ * los vuelve a pasar por {@link #submit} con su backoff; así ack_attempts cuenta un intento por envío.
+ */
+@Component
+public class AckDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(AckDispatcher.class);
+
+    public record Snapshot(int queued, long submitted, long acked, long failed, long batches, long overflow) {}
+
+    private final CoreApiClient coreApiClient;
+    private final ConsumedEventLogWriter logWriter;
+    private final LinkedBlockingQueue<String> pending;
+    private final int batchSize;
+    private final long lingerNanos;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong acked = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong overflow = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile Thread sender;
+
+    public AckDispatcher(CoreApiClient coreApiClient, ConsumedEventLogWriter logWriter,
+                         @Value("${communication.ack.batch-size:200}") int batchSize,
+                         @Value("${communication.ack.linger.ms:50}") long lingerMs,
+                         @Value("${communication.ack.capacity:10000}") int capacity) {
+        this.coreApiClient = coreApiClient;
+        this.logWriter = logWriter;
+        this.pending = new LinkedBlockingQueue<>(Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMs));
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        Thread t = new Thread(this::sendLoop, "ack-dispatcher");
+        t.setDaemon(true);
+        sender = t;
+        t.start();
+    }
+
+    /** Al apagar: lo que quedó encolado se descarta; las filas siguen vencidas para el motor de reintentos. */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Thread t = sender;
+        sender = null;
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<String> rest = new ArrayList<>();
+        pending.drainTo(rest);
+        if (!rest.isEmpty()) log.info("[Ack] {} ACKs pendientes al apagar quedan para el motor de reintentos", rest.size());
+    }
+
+    /** Encola el ACK y vuelve enseguida; nunca bloquea al llamador. */
+    public void submit(String eventId) {
+        if (eventId == null || eventId.isBlank()) return;
+        submitted.incrementAndGet();
+        // Cola llena: el ACK queda para el motor de reintentos, que vuelve a mirar la fila al vencer
+        if (!pending.offer(eventId)) {
+            overflow.incrementAndGet();
+            log.debug("[Ack] Cola llena, eventId={} queda para el motor de reintentos", eventId);
+        }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(pending.size(), submitted.get(), acked.get(), failed.get(), batches.get(), overflow.get());
+    }
+
+    private void sendLoop() {
+        while (running) {
+            try {
+                dispatchOnce(500);
+            } catch (InterruptedException e) {
+                if (!running) return;
+            } catch (Exception e) {
+                log.error("[Ack] Error en el dispatcher: {}", e.toString());
+            }
+        }
+    }
+
+    /**
+     * Un lote: espera hasta {@code idleWaitMs} el primer id, junta más hasta batch-size o linger.ms, envía
+     * todo en paralelo y registra los resultados. Devuelve cuántos ids se enviaron.
+     */
+    int dispatchOnce(long idleWaitMs) throws InterruptedException {
+        String first = pending.poll(idleWaitMs, TimeUnit.MILLISECONDS);
+        if (first == null) return 0;
+        List<String> drained = new ArrayList<>(batchSize);
+        drained.add(first);
+        long deadline = System.nanoTime() + lingerNanos;
+        while (drained.size() < batchSize) {
+            pending.drainTo(drained, batchSize - drained.size());
+            long left = deadline - System.nanoTime();
+            if (drained.size() >= batchSize || left <= 0) break;
+            String next = pending.poll(left, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            drained.add(next);
+        }
+        // Un mismo evento puede llegar dos veces (redelivery): un solo ACK por lote
+        Set<String> batch = new LinkedHashSet<>(drained);
+        send(batch);
+        return batch.size();
+    }
+
+    private void send(Set<String> batch) {
+        List<CompletableFuture<ConsumedEventLogWriter.AckResult>> futures = new ArrayList<>(batch.size());
+        for (String eventId : batch) {
+            CompletableFuture<Void> call;
+            try {
+                call = coreApiClient.ackEventAsync(eventId);
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            futures.add(call.handle((ok, ex) -> {
+                if (ex == null) return new ConsumedEventLogWriter.AckResult(eventId, null);
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                return new ConsumedEventLogWriter.AckResult(eventId, cause.toString());
+            }));
+        }
+        List<ConsumedEventLogWriter.AckResult> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<ConsumedEventLogWriter.AckResult> f : futures) results.add(f.join());
+
+        int failures = 0;
+        for (ConsumedEventLogWriter.AckResult r : results) {
+            if (r.error() != null) failures++;
+        }
+        acked.addAndGet(results.size() - failures);
+        failed.addAndGet(failures);
+        batches.incrementAndGet();
+        try {
+            logWriter.recordAcks(results);
+        } catch (Exception e) {
+            log.warn("[Ack] No se pudo persistir el estado de {} ACKs: {}", results.size(), e.toString());
+        }
+        if (failures > 0) log.warn("[Ack] Lote de {} ACKs con {} fallidos (quedan para el motor de reintentos)", results.size(), failures);
+        else log.debug("[Ack] Lote de {} ACKs enviado", results.size());
+    }
+}
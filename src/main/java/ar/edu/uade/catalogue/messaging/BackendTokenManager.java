@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Component
 public class BackendTokenManager {
@@ -16,34 +17,57 @@ public class BackendTokenManager {
     @Value("${keycloak.refresh.enabled:false}")
     private boolean refreshEnabled;
 
-    private volatile String cachedToken;
-    private volatile long expiresAtEpochSeconds = 0L;
+    // Token y vencimiento juntos: el camino rápido los lee con una sola lectura volátil
+    private record Token(String value, long expiresAtEpochSeconds) {}
+
+    // Lock y no synchronized: la renovación hace HTTP y espera entre intentos con el lock tomado, y
+    // un virtual thread dentro de synchronized no libera su hilo de plataforma
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile Token token;
 
     public BackendTokenManager(KeycloakClient keycloakClient) {
         this.keycloakClient = keycloakClient;
     }
 
-    public synchronized String getAccessToken() {
-        long now = Instant.now().getEpochSecond();
-        if (cachedToken != null && now < (expiresAtEpochSeconds - 30)) { // 30s skew
-            return cachedToken;
+    public String getAccessToken() {
+        Token current = token;
+        if (isValid(current)) return current.value();
+        refreshLock.lock();
+        try {
+            // Otro hilo pudo renovarlo mientras esperábamos el lock
+            current = token;
+            if (isValid(current)) return current.value();
+            return refresh();
+        } finally {
+            refreshLock.unlock();
         }
+    }
+
+    private static boolean isValid(Token t) {
+        return t != null && Instant.now().getEpochSecond() < (t.expiresAtEpochSeconds() - 30); // 30s skew
+    }
+
+    private String refresh() {
+        long now = Instant.now().getEpochSecond();
         int attempts = 0;
         RuntimeException last = null;
         while (attempts < 2) {
             attempts++;
             try {
                 KeycloakClient.TokenResponse tr = keycloakClient.fetchClientCredentialsToken();
-                this.cachedToken = tr.accessToken();
-                this.expiresAtEpochSeconds = now + Math.max(30, tr.expiresIn());
+                this.token = new Token(tr.accessToken(), now + Math.max(30, tr.expiresIn()));
                 log.debug("[Auth] Token obtenido, expira en {}s", tr.expiresIn());
-                return cachedToken;
+                return tr.accessToken();
             } catch (RuntimeException ex) {
                 last = ex;
-                try { Thread.sleep(400L * attempts); } catch (InterruptedException ignored) {}
+                try {
+                    Thread.sleep(400L * attempts);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
             }
         }
         throw last != null ? last : new RuntimeException("No se pudo obtener token");
     }
 }
-
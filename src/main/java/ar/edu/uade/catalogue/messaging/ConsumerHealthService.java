@@ -0,0 +1,100 @@
+package ar.edu.uade.catalogue.messaging;
+
+import ar.edu.uade.catalogue.model.ConsumedEventLog.Status;
+import ar.edu.uade.catalogue.repository.ConsumedEventLogWriter;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Números del health de consumers sin trabajo por request. Los conteos por estado salen de un único
+ * GROUP BY sobre las filas del topic de ventas que se refresca en segundo plano (refresh.ms); el lag por partición se lee de las métricas
+ * records-lag que el cliente Kafka ya mantiene en memoria (sin llamadas al broker); los contadores
+ * desde el arranque los llevan los listeners. El endpoint sólo arma el mapa.
+ */
+@Service
+public class ConsumerHealthService {
+    private static final Logger log = LoggerFactory.getLogger(ConsumerHealthService.class);
+
+    private static final String LAG_METRIC = "records-lag";
+    private static final String FETCH_GROUP = "consumer-fetch-manager-metrics";
+
+    private record Counts(ConsumedEventLogWriter.Aggregate aggregate, long refreshedAtMs) {}
+
+    private final ConsumedEventLogWriter logWriter;
+    private final KafkaListenerEndpointRegistry registry;
+    private final SalesEventsListener salesListener;
+
+    @Value("${inventario.kafka.sales-topic:ventas}")
+    private String salesTopic;
+
+    private volatile Counts counts;
+
+    public ConsumerHealthService(ConsumedEventLogWriter logWriter, KafkaListenerEndpointRegistry registry,
+                                 SalesEventsListener salesListener) {
+        this.logWriter = logWriter;
+        this.registry = registry;
+        this.salesListener = salesListener;
+    }
+
+    @Scheduled(fixedDelayString = "${inventario.health.refresh.ms:15000}")
+    public void refresh() {
+        try {
+            counts = new Counts(logWriter.aggregate(salesTopic), System.currentTimeMillis());
+        } catch (Exception e) {
+            // Se sigue mostrando el último conteo; countsAgeMs deja ver que quedó viejo
+            log.warn("[Health] No se pudieron refrescar los conteos de consumed_event_log: {}", e.toString());
+        }
+    }
+
+    public Map<String, Object> ventasHealth() {
+        Map<String, Object> map = new TreeMap<>();
+        Counts c = counts;
+        if (c != null) {
+            Map<Status, Long> byStatus = c.aggregate().counts();
+            map.put("total", c.aggregate().total());
+            map.put("processed", byStatus.getOrDefault(Status.PROCESSED, 0L));
+            map.put("error", byStatus.getOrDefault(Status.ERROR, 0L));
+            map.put("pending", byStatus.getOrDefault(Status.PENDING, 0L));
+            map.put("countsAgeMs", System.currentTimeMillis() - c.refreshedAtMs());
+            LocalDateTime oldest = c.aggregate().oldestPendingAt();
+            map.put("oldestPendingAgeMs", oldest == null ? null : Duration.between(oldest, LocalDateTime.now()).toMillis());
+        }
+        map.put("countsReady", c != null);
+        Map<String, Long> lag = lagByPartition();
+        map.put("lagByPartition", lag);
+        map.put("totalLag", lag.values().stream().mapToLong(Long::longValue).sum());
+        map.put("consumer", salesListener.snapshot());
+        return map;
+    }
+
+    /** records-lag por "topic-partición" de los containers en marcha; un valor desconocido (NaN) no se informa. */
+    Map<String, Long> lagByPartition() {
+        Map<String, Long> out = new TreeMap<>();
+        for (MessageListenerContainer container : registry.getAllListenerContainers()) {
+            if (!container.isRunning()) continue;
+            for (Map<MetricName, ? extends Metric> metrics : container.metrics().values()) {
+                metrics.forEach((name, metric) -> {
+                    if (!LAG_METRIC.equals(name.name()) || !FETCH_GROUP.equals(name.group())) return;
+                    String topic = name.tags().get("topic");
+                    String partition = name.tags().get("partition");
+                    if (topic == null || partition == null) return;
+                    if (!(metric.metricValue() instanceof Number n) || Double.isNaN(n.doubleValue())) return;
+                    out.merge(topic + "-" + partition, n.longValue(), Math::max);
+                });
+            }
+        }
+        return out;
+    }
+}
@@ -1,26 +1,61 @@
 package ar.edu.uade.catalogue.messaging;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.UnknownHttpStatusCodeException;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.Map;
 import java.util.UUID;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cliente del middleware sobre el {@link HttpClient} compartido (conexiones persistentes, HTTP/2).
+ * Las variantes *Async devuelven un future; las sincrónicas lo esperan y relanzan las mismas
+ * excepciones que RestTemplate (HttpStatusCodeException / ResourceAccessException).
+ * Cada ruta (host:puerto) tiene una ventana de requests en vuelo: al llenarse, el llamador espera
+ * hasta acquire-timeout en lugar de abrir más sockets.
+ * Todas las llamadas pasan por {@link MiddlewareCircuitBreaker}: con el circuito abierto fallan al
+ * instante con {@link MiddlewareCircuitBreaker.OpenException} sin tocar la red.
+ */
 @Component
 public class CoreApiClient {
 
     private static final Logger log = LoggerFactory.getLogger(CoreApiClient.class);
 
-    private final RestTemplate restTemplate;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final BackendTokenManager tokenManager;
+    private final MiddlewareCircuitBreaker breaker;
+    private final Map<String, Semaphore> windows = new ConcurrentHashMap<>();
 
     @Value("${communication.intermediary.url:http://localhost:8090}")
     private String intermediaryBaseUrl;
@@ -31,55 +66,176 @@ public class CoreApiClient {
     @Value("${keycloak.client-id}")
     private String clientId;
 
-    public CoreApiClient(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    @Value("${communication.http.max-per-route:32}")
+    private int maxPerRoute;
+
+    @Value("${communication.http.acquire-timeout.ms:5000}")
+    private long acquireTimeoutMs;
+
+    @Value("${communication.http.request-timeout.ms:10000}")
+    private long requestTimeoutMs;
+
+    // Bodies a partir de este tamaño viajan con Content-Encoding: gzip (0 = nunca)
+    @Value("${communication.http.gzip-threshold-bytes:8192}")
+    private int gzipThresholdBytes;
+
+    public CoreApiClient(@Qualifier("coreHttpClient") HttpClient httpClient, ObjectMapper objectMapper,
+                         BackendTokenManager tokenManager, MiddlewareCircuitBreaker breaker) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.tokenManager = tokenManager;
+        this.breaker = breaker;
     }
 
     // Incluimos ambos campos: eventType (compatibilidad) y type (requerido por el schema actual)
     public record CoreEvent(String eventId, String eventType, String type, BigDecimal timestamp, String originModule, Object payload) {}
 
     public void postEvent(String type, Object payload, OffsetDateTime timestamp) {
+        postEvent(UUID.randomUUID().toString(), type, payload, timestamp.toInstant().toEpochMilli());
+    }
+
+    // Variante del outbox: el eventId se genera al encolar y se mantiene en los reintentos
+    public void postEvent(String eventId, String type, Object payload, long epochMilli) {
+        await(postEventAsync(eventId, type, payload, epochMilli));
+    }
+
+    public CompletableFuture<Void> postEventAsync(String eventId, String type, Object payload, long epochMilli) {
         String origin = (configuredOriginModule != null && !configuredOriginModule.isBlank()) ? configuredOriginModule : clientId;
+        CoreEvent coreEvent = new CoreEvent(eventId, type, type, BigDecimal.valueOf(epochMilli), origin, payload);
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(coreEvent);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new RestClientException("No se pudo serializar el evento type='" + type + "'", e));
+        }
+        return send("/events", body).whenComplete((ok, ex) -> {
+            if (ex == null) {
+                log.info("[CoreApi] POST /events OK type='{}' origin='{}'", type, origin);
+            } else {
+                logError("POST /events type='" + type + "'", ex);
+            }
+        });
+    }
 
-        long epochMilli = timestamp.toInstant().toEpochMilli();
-        BigDecimal ts = BigDecimal.valueOf(epochMilli);
+    public void ackEvent(String eventId) {
+        await(ackEventAsync(eventId));
+    }
 
-        CoreEvent coreEvent = new CoreEvent(UUID.randomUUID().toString(), type, type, ts, origin, payload);
+    public CompletableFuture<Void> ackEventAsync(String eventId) {
+        return send("/events/" + eventId + "/ack", "{}".getBytes(StandardCharsets.UTF_8)).whenComplete((ok, ex) -> {
+            if (ex == null) {
+                log.info("[CoreApi] ACK OK eventId='{}'", eventId);
+            } else {
+                logError("ACK eventId='" + eventId + "'", ex);
+            }
+        });
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setAccept(java.util.List.of(MediaType.APPLICATION_JSON));
+    private CompletableFuture<Void> send(String path, byte[] body) {
+        URI uri = URI.create(intermediaryBaseUrl + path);
+        if (!breaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(new MiddlewareCircuitBreaker.OpenException(
+                    "Circuito abierto hacia " + uri.getAuthority() + ": llamada rechazada sin enviar"));
+        }
+        Semaphore window = windows.computeIfAbsent(uri.getAuthority(), k -> new Semaphore(Math.max(1, maxPerRoute)));
+        try {
+            // Backpressure: se bloquea al llamador mientras la ruta tenga la ventana llena
+            if (!window.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                breaker.onFailure();
+                return CompletableFuture.failedFuture(new ResourceAccessException(
+                        "Ventana de requests llena hacia " + uri.getAuthority() + " (" + maxPerRoute + " en vuelo)"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            breaker.onIgnored();
+            return CompletableFuture.failedFuture(new ResourceAccessException("Interrumpido esperando la ventana de " + uri.getAuthority()));
+        }
 
+        CompletableFuture<HttpResponse<String>> response;
         try {
-            restTemplate.postForLocation(intermediaryBaseUrl + "/events", new HttpEntity<>(coreEvent, headers));
-            log.info("[CoreApi] POST /events OK type='{}' origin='{}'", type, origin);
-        } catch (HttpStatusCodeException e) {
-            String body = e.getResponseBodyAsString();
-            log.error("[CoreApi] Error POST /events type='{}': {} {} body={}", type, e.getStatusCode().value(), e.getStatusText(), safe(body));
-            throw e;
-        } catch (RestClientException e) {
-            log.error("[CoreApi] Error POST /events type='{}': {}", type, e.getMessage());
-            throw e;
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofMillis(requestTimeoutMs))
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenManager.getAccessToken());
+            if (gzipThresholdBytes > 0 && body.length >= gzipThresholdBytes) {
+                body = gzip(body);
+                request.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            response = httpClient.sendAsync(request.POST(HttpRequest.BodyPublishers.ofByteArray(body)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+        } catch (RuntimeException e) {
+            window.release();
+            // Falla local (token, gzip): no dice nada de la salud del middleware
+            breaker.onIgnored();
+            return CompletableFuture.failedFuture(e);
         }
+        return response
+                .whenComplete((r, ex) -> window.release())
+                .handle((r, ex) -> {
+                    if (ex != null) {
+                        breaker.onFailure();
+                        throw toRestClientException(uri, ex);
+                    }
+                    int code = r.statusCode();
+                    if (countsAsFailure(code)) breaker.onFailure();
+                    else breaker.onSuccess();
+                    if (code / 100 != 2) throw toStatusException(code, r.body());
+                    return null;
+                });
     }
 
-    public void ackEvent(String eventId) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setAccept(java.util.List.of(MediaType.APPLICATION_JSON));
+    // Un 4xx es un error del request, no del middleware; salvo 429, que es el middleware pidiendo aire
+    private static boolean countsAsFailure(int code) {
+        return code >= 500 || code == 429;
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static RuntimeException toRestClientException(URI uri, Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof RestClientException rce) return rce;
+        if (cause instanceof IOException io) return new ResourceAccessException("I/O error on POST request for \"" + uri + "\": " + io.getMessage(), io);
+        return new RestClientException("Error en POST " + uri + ": " + cause, cause);
+    }
+
+    private static RestClientException toStatusException(int code, String responseBody) {
+        HttpStatusCode status = HttpStatusCode.valueOf(code);
+        byte[] body = responseBody == null ? null : responseBody.getBytes(StandardCharsets.UTF_8);
+        if (status.is4xxClientError()) return HttpClientErrorException.create(status, String.valueOf(code), null, body, StandardCharsets.UTF_8);
+        if (status.is5xxServerError()) return HttpServerErrorException.create(status, String.valueOf(code), null, body, StandardCharsets.UTF_8);
+        return new UnknownHttpStatusCodeException(code, "", null, body, StandardCharsets.UTF_8);
+    }
+
+    // Espera el future y relanza la excepción original (no la CompletionException)
+    private static void await(CompletableFuture<Void> future) {
         try {
-            restTemplate.postForLocation(intermediaryBaseUrl + "/events/" + eventId + "/ack", new HttpEntity<>("{}", headers));
-            log.info("[CoreApi] ACK OK eventId='{}'", eventId);
-        } catch (HttpStatusCodeException e) {
-            String body = e.getResponseBodyAsString();
-            log.error("[CoreApi] Error ACK eventId='{}': {} {} body={}", eventId, e.getStatusCode().value(), e.getStatusText(), safe(body));
-            throw e;
-        } catch (RestClientException e) {
-            log.error("[CoreApi] Error ACK eventId='{}': {}", eventId, e.getMessage());
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
             throw e;
         }
     }
 
+    private void logError(String what, Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof MiddlewareCircuitBreaker.OpenException) {
+            log.debug("[CoreApi] {} rechazado: circuito abierto", what);
+        } else if (cause instanceof HttpStatusCodeException e) {
+            log.error("[CoreApi] Error {}: {} body={}", what, e.getStatusCode().value(), safe(e.getResponseBodyAsString()));
+        } else {
+            log.error("[CoreApi] Error {}: {}", what, cause.getMessage());
+        }
+    }
+
     private String safe(String s) {
         if (s == null) return "<null>";
         return s.length() > 500 ? s.substring(0, 500) + "..." : s;
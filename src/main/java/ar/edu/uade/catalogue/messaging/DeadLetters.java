@@ -0,0 +1,68 @@
+package ar.edu.uade.catalogue.messaging;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Headers de falla que viajan con un record a los topics de retry y a la DLQ, además de los
+ * kafka_dlt-* estándar (topic/partición/offset original, excepción y stacktrace). Sirven para
+ * diagnosticar desde la DLQ sin buscar logs y para que el redrive sepa a dónde devolver el record.
+ */
+public final class DeadLetters {
+
+    public static final String HEADER_REASON = "x-failure-reason";
+    public static final String HEADER_EXCEPTION = "x-failure-exception";
+    public static final String HEADER_FAILED_AT = "x-failed-at";
+    public static final String HEADER_GROUP = "x-failure-group";
+    public static final String HEADER_REDRIVE_COUNT = "x-redrive-count";
+
+    private static final int MAX_REASON = 512;
+
+    private DeadLetters() {}
+
+    public static Headers failureHeaders(String groupId, ConsumerRecord<?, ?> record, Exception ex) {
+        Throwable root = ex;
+        while (root.getCause() != null && root.getCause() != root) root = root.getCause();
+        String reason = String.valueOf(root.getMessage());
+        if (reason.length() > MAX_REASON) reason = reason.substring(0, MAX_REASON);
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(HEADER_REASON, utf8(reason));
+        headers.add(HEADER_EXCEPTION, utf8(root.getClass().getName()));
+        headers.add(HEADER_FAILED_AT, utf8(Long.toString(System.currentTimeMillis())));
+        if (groupId != null) headers.add(HEADER_GROUP, utf8(groupId));
+        return headers;
+    }
+
+    /** Topic original del record: el primer kafka_dlt-original-topic (el de la primera falla) o el nombre sin sufijo. */
+    public static String originalTopic(ConsumerRecord<?, ?> record, String dlqSuffix) {
+        Iterator<Header> it = record.headers().headers(KafkaHeaders.DLT_ORIGINAL_TOPIC).iterator();
+        if (it.hasNext()) return new String(it.next().value(), StandardCharsets.UTF_8);
+        String topic = record.topic();
+        return topic.endsWith(dlqSuffix) ? topic.substring(0, topic.length() - dlqSuffix.length()) : topic;
+    }
+
+    public static int redriveCount(Headers headers) {
+        Header h = headers.lastHeader(HEADER_REDRIVE_COUNT);
+        if (h == null) return 0;
+        try {
+            return Integer.parseInt(new String(h.value(), StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** true para headers que describen una falla anterior y no deben volver al topic original. */
+    public static boolean isFailureHeader(String key) {
+        return key.startsWith("kafka_dlt-") || key.startsWith("retry_topic-") || key.startsWith("x-failure") || key.equals(HEADER_FAILED_AT);
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,20 @@
+package ar.edu.uade.catalogue.messaging;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Salida de los eventos de catálogo. Se elige con communication.transport: "http" (POST al middleware,
+ * default) o "kafka" (producer directo al tópico). El payload ya viene serializado.
+ */
+public interface EventTransport {
+
+    CompletableFuture<Void> send(String eventId, String type, String aggregateKey, String payloadJson, long occurredAt);
+
+    /**
+     * true si se pueden mandar varios eventos de una misma clave sin esperar cada respuesta y el orden
+     * se conserva igual (producer idempotente con la clave como partición).
+     */
+    default boolean pipelined() {
+        return false;
+    }
+}
@@ -0,0 +1,46 @@
+package ar.edu.uade.catalogue.messaging;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tipos de evento que los consumers saben despachar, con su forma normalizada
+ * ({@link EventTypeNormalizer}). Cualquier otro tipo es {@link #UNKNOWN}.
+ */
+public enum EventType {
+    // Ventas
+    COMPRA_PENDIENTE("post: compra pendiente"),
+    COMPRA_CONFIRMADA("post: compra confirmada"),
+    COMPRA_CANCELADA("delete: compra cancelada"),
+    STOCK_ROLLBACK("post: stock rollback - compra cancelada"),
+    // Topic interno de inventario
+    STOCK_ACTUALIZADO("post: stock actualizado"),
+    PRODUCTO_DESACTIVADO("post: producto desactivado"),
+    PRODUCTO_CREADO("post: producto creado"),
+    PRODUCTO_ELIMINADO("delete: producto eliminado"),
+    RESERVA_STOCK("post: reserva de stock"),
+    RESERVA_CANCELADA("delete: reserva cancelada"),
+    REVIEW_CREADA("post: review creada"),
+    UNKNOWN(null);
+
+    private static final Map<String, EventType> BY_LABEL = new HashMap<>();
+
+    static {
+        for (EventType t : values()) if (t.label != null) BY_LABEL.put(t.label, t);
+    }
+
+    private final String label;
+
+    EventType(String label) {
+        this.label = label;
+    }
+
+    /** Forma normalizada del tipo; null para {@link #UNKNOWN}. */
+    public String label() {
+        return label;
+    }
+
+    static EventType fromNormalized(String normalized) {
+        return BY_LABEL.getOrDefault(normalized, UNKNOWN);
+    }
+}
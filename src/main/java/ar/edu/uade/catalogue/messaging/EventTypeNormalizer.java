@@ -1,29 +1,59 @@
 package ar.edu.uade.catalogue.messaging;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import java.text.Normalizer;
+import java.util.regex.Pattern;
 
+/**
+ * Normaliza el tipo de un evento (minúsculas, sin acentos, alias de ventas) y lo resuelve a {@link EventType}.
+ * Los tipos distintos que circulan son pocos: cada texto crudo se resuelve una vez y queda en una cache
+ * acotada, así que por record sólo hay un lookup que devuelve siempre la misma instancia.
+ */
 public final class EventTypeNormalizer {
+
+    /** Tipo resuelto; {@code normalized} es la etiqueta del enum o, si es UNKNOWN, el texto limpio. */
+    public record Resolved(EventType type, String normalized) {}
+
+    // Acotada: un productor que manda tipos al azar no hace crecer la memoria
+    private static final int MAX_ENTRIES = 1024;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+    private static final Resolved EMPTY = new Resolved(EventType.UNKNOWN, "");
+    private static final Cache<String, Resolved> CACHE = Caffeine.newBuilder().maximumSize(MAX_ENTRIES).build();
+
     private EventTypeNormalizer() {}
 
+    public static Resolved resolve(String s) {
+        if (s == null) return EMPTY;
+        return CACHE.get(s, EventTypeNormalizer::compute);
+    }
+
     public static String normalize(String s) {
-        if (s == null) return "";
+        return resolve(s).normalized();
+    }
+
+    private static Resolved compute(String s) {
+        String normalized = clean(s);
+        return new Resolved(EventType.fromNormalized(normalized), normalized);
+    }
 
+    private static String clean(String s) {
         // 1. Convertir a minúsculas y quitar acentos para una comparación consistente
-        String clean = Normalizer.normalize(s.toLowerCase(), Normalizer.Form.NFD)
-                .replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
+        String clean = DIACRITICS.matcher(Normalizer.normalize(s.toLowerCase(), Normalizer.Form.NFD)).replaceAll("");
 
         // 2. Usar una cadena de 'if-contains' para una máxima robustez
         if (clean.contains("compra pendiente")) {
-            return "post: compra pendiente";
+            return EventType.COMPRA_PENDIENTE.label();
         }
         if (clean.contains("compra confirmada")) {
-            return "post: compra confirmada";
+            return EventType.COMPRA_CONFIRMADA.label();
         }
-        if (clean.contains("stock rollback") || clean.contains("stockrollback") || clean.contains("stockrollback_cartcancelled")) {
-            return "post: stock rollback - compra cancelada";
+        if (clean.contains("stock rollback") || clean.contains("stockrollback")) {
+            return EventType.STOCK_ROLLBACK.label();
         }
         if (clean.contains("compra cancelada")) {
-            return "delete: compra cancelada";
+            return EventType.COMPRA_CANCELADA.label();
         }
 
         // 3. Si no coincide con nada, devolver la cadena limpia como último recurso
@@ -0,0 +1,25 @@
+package ar.edu.uade.catalogue.messaging;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/** POST /events al middleware, que republica en Kafka. */
+@Component
+@ConditionalOnProperty(name = "communication.transport", havingValue = "http", matchIfMissing = true)
+public class HttpEventTransport implements EventTransport {
+
+    private final CoreApiClient coreApiClient;
+
+    public HttpEventTransport(CoreApiClient coreApiClient) {
+        this.coreApiClient = coreApiClient;
+    }
+
+    @Override
+    public CompletableFuture<Void> send(String eventId, String type, String aggregateKey, String payloadJson, long occurredAt) {
+        // El payload ya es JSON: se embebe tal cual, sin parsearlo a un árbol
+        return coreApiClient.postEventAsync(eventId, type, new RawValue(payloadJson), occurredAt);
+    }
+}
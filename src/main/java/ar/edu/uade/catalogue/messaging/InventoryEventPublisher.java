@@ -3,31 +3,76 @@ package ar.edu.uade.catalogue.messaging;
 import ar.edu.uade.catalogue.model.Brand;
 import ar.edu.uade.catalogue.model.Category;
 import ar.edu.uade.catalogue.model.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-import java.time.OffsetDateTime;
-import java.util.ArrayList;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class InventoryEventPublisher {
 
     private static final Logger log = LoggerFactory.getLogger(InventoryEventPublisher.class);
 
-    private final CoreApiClient coreApiClient;
+    // Los eventos agregados (batch) comparten una clave: se publican en el orden en que se confirmaron
+    static final String BATCH_KEY = "batch";
+
+    // Eventos de snapshot: sólo importa el último por clave, el dispatcher puede fusionarlos
+    static final String TYPE_ACTUALIZAR_STOCK = "PUT: Actualizar stock";
+    static final String TYPE_PRODUCTO_ACTUALIZADO = "PATCH: modificar un producto";
+    // Delta: depende de los anteriores, nunca se fusiona (y corta la fusión de los snapshots)
+    static final String TYPE_PRODUCTO_DELTA = "PATCH: modificar un producto (delta)";
+
+    // Insert por JDBC: el payload no queda retenido en el contexto de persistencia hasta el commit
+    private static final String SQL_INSERT_OUTBOX =
+            "INSERT INTO outbox_event (event_id, event_type, aggregate_key, payload_json, occurred_at, status, attempts, coalesced, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, 'PENDING', 0, false, ?)";
+    // Incremento atómico: el UPDATE toma el lock de la fila, dos modificaciones concurrentes no comparten versión
+    private static final String SQL_BUMP_VERSION =
+            "UPDATE product SET change_version = COALESCE(change_version, 0) + 1 WHERE product_code = ?";
+    private static final String SQL_READ_VERSION = "SELECT change_version FROM product WHERE product_code = ?";
+
+    private final EventTransport transport;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ProductPayloadWriter payloadWriter;
+    private final MiddlewareRetryQueue retryQueue;
 
     @Value("${communication.enabled:true}")
     private boolean commEnabled;
 
-    public InventoryEventPublisher(CoreApiClient coreApiClient) {
-        this.coreApiClient = coreApiClient;
+    @Value("${communication.outbox.enabled:true}")
+    private boolean outboxEnabled;
+
+    @Value("${communication.events.batch-chunk-size:500}")
+    private int batchChunkSize;
+
+    @Value("${communication.events.delta.enabled:false}")
+    private boolean deltaEnabled;
+
+    @Value("${communication.events.delta.snapshot-every:50}")
+    private int snapshotEvery;
+
+    public InventoryEventPublisher(EventTransport transport, JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                   ProductPayloadWriter payloadWriter, MiddlewareRetryQueue retryQueue) {
+        this.transport = transport;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.payloadWriter = payloadWriter;
+        this.retryQueue = retryQueue;
     }
 
     private boolean shouldEmit(String type) {
@@ -38,49 +83,169 @@ public class InventoryEventPublisher {
         return true;
     }
 
+    private void publish(String type, String aggregateKey, Object payload) {
+        try {
+            publishJson(type, aggregateKey, objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento " + type + ": " + e.getOriginalMessage(), e);
+        }
+    }
+
+    /**
+     * Encola el evento en outbox_event. Si hay una transacción abierta el insert queda atado a ella:
+     * un rollback del negocio descarta también el evento. El POST lo hace {@link OutboxDispatcher}.
+     * Sin outbox el POST es directo y, si falla, el evento pasa a {@link MiddlewareRetryQueue}.
+     */
+    private void publishJson(String type, String aggregateKey, String json) {
+        if (!outboxEnabled) {
+            String eventId = UUID.randomUUID().toString();
+            long occurredAt = System.currentTimeMillis();
+            try {
+                transport.send(eventId, type, aggregateKey, json, occurredAt).join();
+            } catch (CompletionException e) {
+                retryQueue.enqueueEvent(eventId, type, aggregateKey, json, occurredAt);
+                log.warn("[CoreApi] Evento type='{}' key='{}' encolado para reintento: {}", type, aggregateKey, String.valueOf(e.getCause()));
+            }
+            return;
+        }
+        jdbcTemplate.update(SQL_INSERT_OUTBOX, UUID.randomUUID().toString(), type, aggregateKey, json,
+                System.currentTimeMillis(), Timestamp.valueOf(LocalDateTime.now()));
+        log.debug("[Outbox] Encolado type='{}' key='{}'", type, aggregateKey);
+    }
+
+    private int chunkCount(int size) {
+        return Math.max(1, (size + batchChunkSize - 1) / batchChunkSize);
+    }
+
     public void emitActualizarStock(Product p) {
-        String type = "PUT: Actualizar stock";
+        String type = TYPE_ACTUALIZAR_STOCK;
         if (!shouldEmit(type)) return;
-        Map<String, Object> payload = new HashMap<>();
-        payload.put("productCode", p.getProductCode());
-        payload.put("nombre", p.getName());
-        payload.put("stock", p.getStock());
-        payload.put("description", p.getDescription());
-        payload.put("price", p.getPrice());
-        payload.put("unit_price", p.getUnitPrice());
-        payload.put("unitPrice", p.getUnitPrice());
-        payload.put("calification", p.getCalification());
-        payload.put("image", Optional.ofNullable(p.getImages()).filter(l->!l.isEmpty()).map(l->l.get(0)).orElse(null));
-        coreApiClient.postEvent(type, payload, OffsetDateTime.now());
+        publishJson(type, "product:" + p.getProductCode(), payloadWriter.stock(p));
+    }
+
+    // Evento agregado para ajustes masivos de stock: {productCode, stock} por producto
+    public void emitActualizarStockBatch(List<Map<String, Object>> items) {
+        emitBatch("PUT: Actualizar stock (batch)", items);
+    }
+
+    // Evento agregado para repricing masivo: {productCode, unitPrice, discount, price} por producto
+    public void emitPreciosActualizadosBatch(List<Map<String, Object>> items) {
+        emitBatch("PATCH: Precios actualizados (batch)", items);
+    }
+
+    // Evento agregado de promociones: {productCode, discount, price} por producto
+    public void emitDescuentosActualizadosBatch(List<Map<String, Object>> items) {
+        emitBatch("PATCH: Descuentos actualizados (batch)", items);
+    }
+
+    // Evento agregado del PATCH masivo: payload completo por producto + flag de activación
+    public void emitProductosActualizadosBatch(List<Product> products, Set<Integer> activated) {
+        emitProductBatch("PATCH: Productos actualizados (batch)", products, activated);
+    }
+
+    /**
+     * Los batch se parten en chunks de batch-chunk-size ítems; cada chunk es un evento con
+     * {items, count, batchId, seq, chunks} para que el consumidor pueda reensamblarlos.
+     */
+    private void emitBatch(String type, List<Map<String, Object>> items) {
+        if (!shouldEmit(type)) return;
+        List<Map<String, Object>> all = items == null ? List.of() : items;
+        String batchId = UUID.randomUUID().toString();
+        int chunks = chunkCount(all.size());
+        for (int seq = 0; seq < chunks; seq++) {
+            List<Map<String, Object>> chunk = all.subList(seq * batchChunkSize, Math.min(all.size(), (seq + 1) * batchChunkSize));
+            publishJson(type, BATCH_KEY, payloadWriter.itemsBatch(chunk, batchId, seq, chunks));
+        }
+    }
+
+    private void emitProductBatch(String type, List<Product> products, Set<Integer> activated) {
+        if (!shouldEmit(type)) return;
+        List<Product> all = products == null ? List.of() : products;
+        String batchId = UUID.randomUUID().toString();
+        int chunks = chunkCount(all.size());
+        for (int seq = 0; seq < chunks; seq++) {
+            List<Product> chunk = all.subList(seq * batchChunkSize, Math.min(all.size(), (seq + 1) * batchChunkSize));
+            publishJson(type, BATCH_KEY, payloadWriter.productBatch(chunk, activated, batchId, seq, chunks));
+        }
     }
 
     public void emitAgregarProducto(Product p) {
         // Ajustado: tipo consistente con contrato
         String type = "POST: Producto creado";
         if (!shouldEmit(type)) return;
-        Map<String, Object> payload = buildProductPayload(p);
-        coreApiClient.postEvent(type, payload, OffsetDateTime.now());
+        publishJson(type, "product:" + p.getProductCode(), payloadWriter.product(p));
     }
 
     public void emitProductoActualizado(Product p) {
-        String type = "PATCH: modificar un producto";
+        String type = TYPE_PRODUCTO_ACTUALIZADO;
         if (!shouldEmit(type)) return;
-        Map<String, Object> payload = buildProductPayload(p);
-        coreApiClient.postEvent(type, payload, OffsetDateTime.now());
+        publishJson(type, "product:" + p.getProductCode(), payloadWriter.product(p));
+    }
+
+    /** Estado previo a una modificación, para {@link #emitProductoActualizado(Map, Product)}; null sin deltas. */
+    public Map<String, Object> captureState(Product p) {
+        return deltaEnabled ? payloadWriter.fields(p) : null;
+    }
+
+    /**
+     * Modificación en formato delta: sólo los campos que cambiaron respecto de {@code before} más la
+     * versión del producto (se incrementa con un UPDATE atómico sobre la fila, dentro de la transacción
+     * del llamador, y se copia a la entidad).
+     * La primera versión y cada snapshot-every versiones sale el producto completo con su versión,
+     * para que un consumidor que perdió deltas pueda resincronizarse. Sin deltas (o sin "antes")
+     * se comporta como {@link #emitProductoActualizado(Product)}.
+     */
+    public void emitProductoActualizado(Map<String, Object> before, Product after) {
+        if (!deltaEnabled || before == null) {
+            emitProductoActualizado(after);
+            return;
+        }
+        if (!shouldEmit(TYPE_PRODUCTO_DELTA)) return;
+        Map<String, Object> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> e : payloadWriter.fields(after).entrySet()) {
+            if (!Objects.equals(before.get(e.getKey()), e.getValue())) changed.put(e.getKey(), e.getValue());
+        }
+        if (changed.isEmpty()) {
+            log.debug("[CoreApi][Skip] Sin cambios en productCode={}", after.getProductCode());
+            return;
+        }
+        long version = nextChangeVersion(after);
+        after.setChangeVersion(version);
+        String key = "product:" + after.getProductCode();
+        if (version == 1 || (snapshotEvery > 0 && version % snapshotEvery == 0)) {
+            publishJson(TYPE_PRODUCTO_ACTUALIZADO, key, payloadWriter.snapshot(after, version));
+        } else {
+            publishJson(TYPE_PRODUCTO_DELTA, key, payloadWriter.delta(after.getProductCode(), version, changed));
+        }
+    }
+
+    // La versión sale de la base; sin fila todavía (alta sin flush) se sigue desde la entidad
+    private long nextChangeVersion(Product p) {
+        if (jdbcTemplate.update(SQL_BUMP_VERSION, p.getProductCode()) == 1) {
+            Long version = jdbcTemplate.queryForObject(SQL_READ_VERSION, Long.class, p.getProductCode());
+            if (version != null) return version;
+        }
+        return (p.getChangeVersion() == null ? 0L : p.getChangeVersion()) + 1;
+    }
+
+    /** Snapshot a pedido (resincronización de un consumidor): no incrementa la versión. */
+    public void emitProductoSnapshot(Product p) {
+        String type = TYPE_PRODUCTO_ACTUALIZADO;
+        if (!shouldEmit(type)) return;
+        long version = p.getChangeVersion() == null ? 0L : p.getChangeVersion();
+        publishJson(type, "product:" + p.getProductCode(), payloadWriter.snapshot(p, version));
     }
 
     public void emitProductoDesactivado(Product p) {
         String type = "PATCH: Producto desactivado";
         if (!shouldEmit(type)) return;
-        Map<String, Object> payload = buildProductPayload(p);
-        coreApiClient.postEvent(type, payload, OffsetDateTime.now());
+        publishJson(type, "product:" + p.getProductCode(), payloadWriter.product(p));
     }
 
     public void emitProductoActivado(Product p) {
         String type = "PATCH: activar producto"; // cambio solicitado
         if (!shouldEmit(type)) return;
-        Map<String, Object> payload = buildProductPayload(p);
-        coreApiClient.postEvent(type, payload, OffsetDateTime.now());
+        publishJson(type, "product:" + p.getProductCode(), payloadWriter.product(p));
     }
 
     public void emitMarcaCreada(Brand b) {
@@ -90,7 +255,7 @@ public class InventoryEventPublisher {
         payload.put("brandCode", b.getBrandCode());
         payload.put("name", b.getName());
         payload.put("products", b.getProducts());
-        coreApiClient.postEvent(type, payload, OffsetDateTime.now());
+        publish(type, "brand:" + b.getBrandCode(), payload);
     }
 
     public void emitCategoriaCreada(Category c) {
@@ -100,7 +265,7 @@ public class InventoryEventPublisher {
         payload.put("categoryCode", c.getCategoryCode());
         payload.put("name", c.getName());
         payload.put("products", c.getProducts());
-        coreApiClient.postEvent(type, payload, OffsetDateTime.now());
+        publish(type, "category:" + c.getCategoryCode(), payload);
     }
 
     public void emitMarcaDesactivada(Brand b) {
@@ -110,7 +275,7 @@ public class InventoryEventPublisher {
         payload.put("brandCode", b.getBrandCode());
         payload.put("name", b.getName());
         payload.put("products", b.getProducts());
-        coreApiClient.postEvent(type, payload, OffsetDateTime.now());
+        publish(type, "brand:" + b.getBrandCode(), payload);
     }
 
     public void emitCategoriaDesactivada(Category c) {
@@ -120,7 +285,7 @@ public class InventoryEventPublisher {
         payload.put("categoryCode", c.getCategoryCode());
         payload.put("name", c.getName());
         payload.put("products", c.getProducts());
-        coreApiClient.postEvent(type, payload, OffsetDateTime.now());
+        publish(type, "category:" + c.getCategoryCode(), payload);
     }
 
     public void emitMarcaActivada(Brand b) {
@@ -130,7 +295,7 @@ public class InventoryEventPublisher {
         payload.put("brandCode", b.getBrandCode());
         payload.put("name", b.getName());
         payload.put("products", b.getProducts());
-        coreApiClient.postEvent(type, payload, OffsetDateTime.now());
+        publish(type, "brand:" + b.getBrandCode(), payload);
     }
 
     public void emitCategoriaActivada(Category c) {
@@ -140,51 +305,10 @@ public class InventoryEventPublisher {
         payload.put("categoryCode", c.getCategoryCode());
         payload.put("name", c.getName());
         payload.put("products", c.getProducts());
-        coreApiClient.postEvent(type, payload, OffsetDateTime.now());
+        publish(type, "category:" + c.getCategoryCode(), payload);
     }
 
-    public void emitAgregarProductosBatch(java.util.List<ar.edu.uade.catalogue.model.Product> products) {
-        String type = "POST: Agregar productos (batch)";
-        if (!shouldEmit(type)) return;
-        Map<String, Object> payload = new HashMap<>();
-        java.util.List<Map<String, Object>> items = new ArrayList<>();
-        if (products != null) {
-            for (ar.edu.uade.catalogue.model.Product p : products) {
-                items.add(buildProductPayload(p));
-            }
-        }
-        payload.put("items", items);
-        coreApiClient.postEvent(type, payload, java.time.OffsetDateTime.now());
-    }
-
-    private Map<String, Object> buildProductPayload(Product p) {
-        Map<String, Object> payload = new HashMap<>();
-        payload.put("productCode", p.getProductCode());
-        payload.put("name", p.getName());
-        payload.put("description", p.getDescription());
-        //payload.put("unit_price", p.getUnitPrice());
-        payload.put("unitPrice", p.getUnitPrice());
-        payload.put("price", p.getPrice());
-        payload.put("discount", p.getDiscount());
-        payload.put("stock", p.getStock());
-        // Códigos de categorías prioritarios + compat
-        List<Integer> categoryCodes = p.getCategories() == null ? List.of() : p.getCategories().stream().map(Category::getCategoryCode).collect(Collectors.toList());
-        payload.put("categories", categoryCodes);
-        payload.put("categoryCodes", categoryCodes); // alias
-        // Marca por código prioritario + compat
-        Integer brandCode = p.getBrand() == null ? null : p.getBrand().getBrandCode();
-        //payload.put("brand", brandCode);
-        payload.put("brandCode", brandCode); // alias
-        payload.put("calification", p.getCalification());
-        payload.put("images", p.getImages());
-        payload.put("new", p.isNew());
-        payload.put("is_new", p.isNew()); // alias
-        payload.put("bestSeller", p.isBestSeller());
-        payload.put("is_best_seller", p.isBestSeller()); // alias
-        payload.put("featured", p.isFeatured());
-        payload.put("is_featured", p.isFeatured()); // alias
-        payload.put("hero", p.isHero());
-        payload.put("active", p.isActive());
-        return payload;
+    public void emitAgregarProductosBatch(List<Product> products) {
+        emitProductBatch("POST: Agregar productos (batch)", products, null);
     }
 }
@@ -0,0 +1,114 @@
+package ar.edu.uade.catalogue.messaging;
+
+import ar.edu.uade.catalogue.inventario.InventarioConsumerMonitorService;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Manejo de errores de los consumers. El factory por defecto lleva un {@link DefaultErrorHandler} con
+ * backoff exponencial (inventario.kafka.error.*): agotados los intentos el record va a la DLQ
+ * (topic + dlq.topicSuffix, con los headers de {@link DeadLetters}) o, con la DLQ apagada, se loguea y
+ * se saltea. En ambos casos el offset se confirma y la partición sigue avanzando.
+ * El listener interno de inventario usa además retry topics no bloqueantes ({@code @RetryableTopic}).
+ */
+@Configuration
+public class KafkaErrorHandlingConfig {
+    private static final Logger log = LoggerFactory.getLogger(KafkaErrorHandlingConfig.class);
+
+    /**
+     * Producer para retry topics, DLQ y redrive: reenvía tal cual los bytes de un record que no se pudo
+     * deserializar, los String como texto y cualquier otro valor como JSON.
+     */
+    @Bean(name = "kafkaDeadLetterTemplate")
+    public KafkaTemplate<Object, Object> kafkaDeadLetterTemplate(KafkaProperties kafkaProperties) {
+        Map<String, Object> props = kafkaProperties.buildProducerProperties(null);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.remove(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG);
+        props.remove(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG);
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(props, byType(), byType()));
+    }
+
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer(
+            @Qualifier("kafkaDeadLetterTemplate") KafkaTemplate<Object, Object> template,
+            @Value("${inventario.kafka.dlq.topicSuffix:.dlq}") String dlqSuffix,
+            @Value("${spring.kafka.consumer.group-id:inventario-ms}") String groupId) {
+        // Partición -1: la elige el producer por key, la DLQ no tiene por qué tener las mismas particiones
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(template,
+                (record, ex) -> new TopicPartition(record.topic() + dlqSuffix, -1));
+        recoverer.setHeadersFunction((record, ex) -> DeadLetters.failureHeaders(groupId, record, ex));
+        return recoverer;
+    }
+
+    @Bean
+    public DefaultErrorHandler kafkaErrorHandler(DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+                                                 InventarioConsumerMonitorService monitor,
+                                                 @Value("${inventario.kafka.error.maxAttempts:3}") int maxAttempts,
+                                                 @Value("${inventario.kafka.error.backoff.ms:500}") long backoffMs,
+                                                 @Value("${inventario.kafka.error.multiplier:2.0}") double multiplier,
+                                                 @Value("${inventario.kafka.error.max-backoff.ms:10000}") long maxBackoffMs,
+                                                 @Value("${inventario.kafka.dlq.enabled:true}") boolean dlqEnabled) {
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(Math.max(0, maxAttempts - 1));
+        backOff.setInitialInterval(backoffMs);
+        backOff.setMultiplier(multiplier);
+        backOff.setMaxInterval(maxBackoffMs);
+        DefaultErrorHandler handler = new DefaultErrorHandler((record, ex) -> {
+            monitor.incDeadLettered(record.topic());
+            if (dlqEnabled) {
+                deadLetterPublishingRecoverer.accept(record, ex);
+                log.warn("[KafkaError] Record a DLQ topic={} partition={} offset={}: {}", record.topic(), record.partition(), record.offset(), ex.toString());
+            } else {
+                log.error("[KafkaError] Record descartado tras {} intentos topic={} partition={} offset={}: {}", maxAttempts,
+                        record.topic(), record.partition(), record.offset(), ex.toString());
+            }
+        }, backOff);
+        // Reintentar un valor que no se pudo deserializar no sirve: directo al recoverer
+        handler.addNotRetryableExceptions(DeserializationException.class);
+        // Con ack manual el recoverer no pasa por el listener: el error handler confirma el offset
+        handler.setCommitRecovered(true);
+        return handler;
+    }
+
+    /** Factory por defecto de los @KafkaListener: la configuración de Spring Boot más el error handler. */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> kafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer, ConsumerFactory<Object, Object> consumerFactory,
+            DefaultErrorHandler kafkaErrorHandler) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setCommonErrorHandler(kafkaErrorHandler);
+        return factory;
+    }
+
+    private static Serializer<Object> byType() {
+        Map<Class<?>, Serializer<?>> delegates = new LinkedHashMap<>();
+        delegates.put(byte[].class, new ByteArraySerializer());
+        delegates.put(String.class, new StringSerializer());
+        delegates.put(Object.class, new JsonSerializer<>());
+        return new DelegatingByTypeSerializer(delegates, true);
+    }
+}
@@ -0,0 +1,114 @@
+package ar.edu.uade.catalogue.messaging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Producer directo al tópico de catálogo, sin el salto HTTP al middleware. El value es el mismo
+ * sobre que recibe POST /events ({@link CoreApiClient.CoreEvent}); la key es la clave del agregado
+ * (product:N, brand:N, category:N, batch), así que los eventos de un producto caen en la misma
+ * partición y salen en orden. Producer idempotente (acks=all, hasta 5 requests en vuelo sin reordenar)
+ * con linger/batch y compresión configurables.
+ */
+@Component
+@ConditionalOnProperty(name = "communication.transport", havingValue = "kafka")
+public class KafkaEventTransport implements EventTransport {
+    private static final Logger log = LoggerFactory.getLogger(KafkaEventTransport.class);
+
+    static final String HEADER_EVENT_ID = "eventId";
+    static final String HEADER_EVENT_TYPE = "eventType";
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${communication.kafka.topic:catalogo-eventos}")
+    private String topic;
+
+    @Value("${communication.origin-module:#{null}}")
+    private String configuredOriginModule;
+
+    @Value("${keycloak.client-id:storage-app}")
+    private String clientId;
+
+    @Autowired
+    public KafkaEventTransport(KafkaProperties kafkaProperties, ObjectMapper objectMapper,
+                               @Value("${communication.kafka.linger.ms:10}") int lingerMs,
+                               @Value("${communication.kafka.batch-size:65536}") int batchSize,
+                               @Value("${communication.kafka.compression:lz4}") String compression) {
+        // Hereda bootstrap y SASL de spring.kafka.*; serializers propios porque el value ya es JSON
+        Map<String, Object> props = kafkaProperties.buildProducerProperties(null);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        this.kafkaTemplate = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(props));
+        this.objectMapper = objectMapper;
+    }
+
+    KafkaEventTransport(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @PreDestroy
+    public void stop() {
+        kafkaTemplate.destroy();
+    }
+
+    @Override
+    public CompletableFuture<Void> send(String eventId, String type, String aggregateKey, String payloadJson, long occurredAt) {
+        String origin = (configuredOriginModule != null && !configuredOriginModule.isBlank()) ? configuredOriginModule : clientId;
+        String value;
+        try {
+            value = objectMapper.writeValueAsString(new CoreApiClient.CoreEvent(eventId, type, type,
+                    BigDecimal.valueOf(occurredAt), origin, new RawValue(payloadJson)));
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No se pudo serializar el evento type='" + type + "'", e));
+        }
+        ProducerRecord<String, String> record = new ProducerRecord<>(topic, null, occurredAt, aggregateKey, value);
+        record.headers().add(HEADER_EVENT_ID, eventId.getBytes(StandardCharsets.UTF_8));
+        record.headers().add(HEADER_EVENT_TYPE, type.getBytes(StandardCharsets.UTF_8));
+        try {
+            return kafkaTemplate.send(record).handle((result, ex) -> {
+                if (ex != null) {
+                    log.error("[Kafka] Error enviando type='{}' key='{}': {}", type, aggregateKey, ex.toString());
+                    throw ex instanceof RuntimeException re ? re : new IllegalStateException(ex);
+                }
+                log.debug("[Kafka] Enviado type='{}' key='{}' partition={} offset={}", type, aggregateKey,
+                        result.getRecordMetadata().partition(), result.getRecordMetadata().offset());
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // send() puede fallar sincrónicamente (metadata no disponible tras max.block.ms)
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public boolean pipelined() {
+        return true;
+    }
+}
@@ -0,0 +1,109 @@
+package ar.edu.uade.catalogue.messaging;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Procesa los records de un poll en paralelo sin perder el orden por clave. Los records que comparten
+ * alguna clave (productCode, carrito) caen en la misma lane y se procesan en el orden del poll; lanes
+ * sin claves en común corren a la vez. Un record que toca varios productos une sus lanes, así dos
+ * hilos nunca modifican el mismo producto al mismo tiempo.
+ * Un fallo frena su lane (lo que sigue de esa clave no se procesa); las demás terminan igual.
+ * {@link #process} devuelve el índice del primer record sin completar: el listener confirma offsets
+ * hasta ahí y el resto se vuelve a entregar (los ya procesados los descarta la idempotencia).
+ */
+@Component
+public class KeyOrderedExecutor {
+    private static final Logger log = LoggerFactory.getLogger(KeyOrderedExecutor.class);
+
+    private final ExecutorService lanes;
+
+    public KeyOrderedExecutor(@Value("${inventario.kafka.parallel.lanes:8}") int laneCount,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.lanes = WorkerThreads.pool("kafka-lane", laneCount, virtualThreads);
+    }
+
+    @PreDestroy
+    public void stop() {
+        lanes.shutdownNow();
+    }
+
+    /**
+     * @param keysOf claves de un record; sin claves el record va en una lane propia
+     * @return índice del primer record no completado ({@code records.size()} si se completaron todos)
+     */
+    public <T> int process(List<T> records, Function<T, Collection<String>> keysOf, Consumer<T> handler) {
+        if (records.isEmpty()) return 0;
+        int[] parent = new int[records.size()];
+        for (int i = 0; i < parent.length; i++) parent[i] = i;
+        // Union-find: cada clave apunta al primer record que la usó
+        Map<String, Integer> owner = new HashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            Collection<String> keys = keysOf.apply(records.get(i));
+            if (keys == null) continue;
+            for (String key : keys) {
+                Integer first = owner.putIfAbsent(key, i);
+                if (first != null) union(parent, first, i);
+            }
+        }
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < records.size(); i++) groups.computeIfAbsent(find(parent, i), k -> new ArrayList<>()).add(i);
+
+        boolean[] done = new boolean[records.size()];
+        List<CompletableFuture<Void>> futures = new ArrayList<>(groups.size());
+        for (List<Integer> lane : groups.values()) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i : lane) {
+                    try {
+                        handler.accept(records.get(i));
+                        done[i] = true;
+                    } catch (RuntimeException e) {
+                        log.warn("[KafkaLanes] Falló el record {} del poll; se frena su lane ({} pendientes): {}",
+                                i, lane.size() - lane.indexOf(i) - 1, e.toString());
+                        return;
+                    }
+                }
+            }, lanes));
+        }
+        for (CompletableFuture<Void> f : futures) {
+            try {
+                f.join();
+            } catch (RuntimeException e) {
+                log.warn("[KafkaLanes] Lane interrumpida: {}", e.toString());
+            }
+        }
+        // join() publica las escrituras de done[] hechas en las lanes
+        for (int i = 0; i < done.length; i++) if (!done[i]) return i;
+        return done.length;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    // La raíz es siempre el índice menor: la lane conserva el orden del primer record
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a), rb = find(parent, b);
+        if (ra == rb) return;
+        if (ra < rb) parent[rb] = ra;
+        else parent[ra] = rb;
+    }
+}
@@ -0,0 +1,146 @@
+package ar.edu.uade.catalogue.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.Arrays;
+
+/**
+ * Circuit breaker de las llamadas al middleware. Ventana deslizante por cantidad de llamadas:
+ * si la tasa de error supera el umbral se abre y rechaza al instante durante open.ms; después
+ * deja pasar unas pocas llamadas de prueba (HALF_OPEN) y se cierra sólo si todas salen bien.
+ */
+@Component
+public class MiddlewareCircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(MiddlewareCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    public record Snapshot(State state, double failureRate, int bufferedCalls, long rejectedCalls, long timesOpened) {}
+
+    /** Rechazo sin intentar la llamada: el middleware se considera caído. */
+    public static class OpenException extends ResourceAccessException {
+        public OpenException(String msg) { super(msg); }
+    }
+
+    private final boolean[] window;
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final long openMs;
+    private final int halfOpenCalls;
+
+    private State state = State.CLOSED;
+    private int index;
+    private int buffered;
+    private int failures;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+    private long rejected;
+    private long timesOpened;
+
+    public MiddlewareCircuitBreaker(@Value("${communication.breaker.window-size:20}") int windowSize,
+                                    @Value("${communication.breaker.failure-rate-threshold:50}") int failureRateThreshold,
+                                    @Value("${communication.breaker.minimum-calls:10}") int minimumCalls,
+                                    @Value("${communication.breaker.open.ms:30000}") long openMs,
+                                    @Value("${communication.breaker.half-open-calls:3}") int halfOpenCalls) {
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.window.length));
+        this.openMs = openMs;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+    }
+
+    /** true si la llamada puede salir; en HALF_OPEN sólo hay half-open-calls permisos. */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMs) {
+                rejected++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = 0;
+            halfOpenSuccesses = 0;
+            log.info("[CoreApi][Breaker] HALF_OPEN: probando con {} llamadas", halfOpenCalls);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits >= halfOpenCalls) {
+                rejected++;
+                return false;
+            }
+            halfOpenPermits++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                state = State.CLOSED;
+                resetWindow();
+                log.info("[CoreApi][Breaker] CLOSED: middleware recuperado");
+            }
+            return;
+        }
+        if (state == State.CLOSED) record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open("falló una llamada de prueba");
+            return;
+        }
+        if (state == State.CLOSED) record(true);
+    }
+
+    /** La llamada no llegó a salir por una causa local: devuelve el permiso sin registrar resultado. */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && halfOpenPermits > 0) halfOpenPermits--;
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized Snapshot snapshot() {
+        double rate = buffered == 0 ? 0d : (double) failures / buffered;
+        return new Snapshot(state, rate, buffered, rejected, timesOpened);
+    }
+
+    public long openMs() {
+        return openMs;
+    }
+
+    private void record(boolean failure) {
+        if (buffered == window.length) {
+            if (window[index]) failures--;
+        } else {
+            buffered++;
+        }
+        window[index] = failure;
+        if (failure) failures++;
+        index = (index + 1) % window.length;
+        // Se evalúa en cada llamada: un éxito que completa minimum-calls también puede abrir
+        if (buffered >= minimumCalls && failures * 100 >= failureRateThreshold * buffered) {
+            open("tasa de error " + (failures * 100 / buffered) + "% en " + buffered + " llamadas");
+        }
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        timesOpened++;
+        resetWindow();
+        log.warn("[CoreApi][Breaker] OPEN por {} ms: {}", openMs, reason);
+    }
+
+    private void resetWindow() {
+        index = 0;
+        buffered = 0;
+        failures = 0;
+        Arrays.fill(window, false);
+    }
+}
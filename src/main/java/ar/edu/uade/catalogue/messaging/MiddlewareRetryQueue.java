@@ -0,0 +1,287 @@
+package ar.edu.uade.catalogue.messaging;
+
+import ar.edu.uade.catalogue.repository.ConsumedEventLogWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reintentos de los eventos emitidos en modo directo (communication.outbox.enabled=false), por el
+ * {@link EventTransport} activo. Los ACKs del consumer de ventas ya no entran acá: los reintenta sólo el
+ * motor durable de consumed_event_log; los items ACK que queden en el archivo de una versión anterior
+ * se siguen entregando y registrando hasta vaciarlo.
+ * Cola en memoria acotada y ordenada por próximo intento; lo que no entra se agrega a un archivo NDJSON
+ * y se vuelve a cargar cuando hay lugar. Al apagar, lo que quedó en memoria también se baja al archivo.
+ * Backoff exponencial con jitter; con el circuito abierto los items esperan sin gastar intentos.
+ */
+@Component
+@EnableScheduling
+public class MiddlewareRetryQueue {
+    private static final Logger log = LoggerFactory.getLogger(MiddlewareRetryQueue.class);
+
+    public enum Kind { ACK, EVENT }
+
+    public record Pending(Kind kind, String eventId, String type, String aggregateKey, String payloadJson,
+                          long occurredAt, int attempts, long nextAttemptAt) {
+        Pending retryAt(int attempts, long nextAttemptAt) {
+            return new Pending(kind, eventId, type, aggregateKey, payloadJson, occurredAt, attempts, nextAttemptAt);
+        }
+    }
+
+    public record Snapshot(int inMemory, long spilled, long enqueued, long delivered, long dropped) {}
+
+    private final CoreApiClient coreApiClient;
+    private final EventTransport transport;
+    private final MiddlewareCircuitBreaker breaker;
+    private final ConsumedEventLogWriter logWriter;
+    private final ObjectMapper objectMapper;
+    private final PriorityQueue<Pending> queue = new PriorityQueue<>(Comparator.comparingLong(Pending::nextAttemptAt));
+    // Lock y no synchronized: spill/refill hacen I/O de archivo con el lock tomado y un virtual thread
+    // dentro de un bloque synchronized queda fijado a su hilo de plataforma (Java 21)
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long spilled;
+
+    @Value("${communication.retry.enabled:true}")
+    private boolean enabled;
+    @Value("${communication.retry.capacity:10000}")
+    private int capacity;
+    @Value("${communication.retry.batch-size:200}")
+    private int batchSize;
+    @Value("${communication.retry.max-attempts:10}")
+    private int maxAttempts;
+    @Value("${communication.retry.backoff.ms:1000}")
+    private long backoffMs;
+    @Value("${communication.retry.max-backoff.ms:300000}")
+    private long maxBackoffMs;
+    @Value("${communication.retry.spill-file:${java.io.tmpdir}/catalogue-middleware-retry.ndjson}")
+    private Path spillFile;
+
+    public MiddlewareRetryQueue(CoreApiClient coreApiClient, EventTransport transport, MiddlewareCircuitBreaker breaker,
+                                ConsumedEventLogWriter logWriter, ObjectMapper objectMapper) {
+        this.coreApiClient = coreApiClient;
+        this.transport = transport;
+        this.breaker = breaker;
+        this.logWriter = logWriter;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Backoff exponencial con "equal jitter": la mitad fija y la otra mitad al azar, para no sincronizar reintentos. */
+    public static long backoff(long baseMs, long maxMs, int attempts) {
+        long delay = Math.min(maxMs, baseMs << Math.min(Math.max(attempts - 1, 0), 20));
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    @PostConstruct
+    void loadSpillCount() {
+        if (spillFile == null || !Files.exists(spillFile)) return;
+        try (var lines = Files.lines(spillFile, StandardCharsets.UTF_8)) {
+            long count = lines.filter(l -> !l.isBlank()).count();
+            lock.lock();
+            try {
+                spilled = count;
+            } finally {
+                lock.unlock();
+            }
+            if (count > 0) log.info("[Retry] {} reintentos pendientes en {}", count, spillFile);
+        } catch (IOException e) {
+            log.warn("[Retry] No se pudo leer {}: {}", spillFile, e.toString());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            if (queue.isEmpty()) return;
+            List<Pending> rest = new ArrayList<>(queue);
+            queue.clear();
+            spill(rest);
+            log.info("[Retry] {} reintentos bajados a {} al apagar", rest.size(), spillFile);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void enqueueEvent(String eventId, String type, String aggregateKey, String payloadJson, long occurredAt) {
+        offer(new Pending(Kind.EVENT, eventId, type, aggregateKey, payloadJson, occurredAt, 0, firstAttemptAt()));
+    }
+
+    private long firstAttemptAt() {
+        return System.currentTimeMillis() + backoff(backoffMs, maxBackoffMs, 1);
+    }
+
+    private void offer(Pending item) {
+        enqueued.incrementAndGet();
+        requeue(item);
+    }
+
+    private void requeue(Pending item) {
+        lock.lock();
+        try {
+            if (queue.size() < capacity) {
+                queue.add(item);
+            } else {
+                spill(List.of(item));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Snapshot snapshot() {
+        lock.lock();
+        try {
+            return new Snapshot(queue.size(), spilled, enqueued.get(), delivered.get(), dropped.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Un ciclo: recarga desde el archivo si hay lugar y envía los items vencidos. Devuelve cuántos se entregaron. */
+    @Scheduled(fixedDelayString = "${communication.retry.poll.ms:1000}")
+    public int drain() {
+        if (!enabled || breaker.state() == MiddlewareCircuitBreaker.State.OPEN) return 0;
+        List<Pending> due = takeDue();
+        if (due.isEmpty()) return 0;
+
+        List<CompletableFuture<Throwable>> futures = new ArrayList<>(due.size());
+        for (Pending item : due) {
+            futures.add(send(item).handle((ok, ex) -> {
+                if (ex == null) {
+                    delivered.incrementAndGet();
+                    return null;
+                }
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                onFailure(item, cause);
+                return cause;
+            }));
+        }
+        // El estado de los ACK se escribe una vez por ciclo, como en AckDispatcher (un rechazo del breaker no fue intento)
+        List<ConsumedEventLogWriter.AckResult> acks = new ArrayList<>();
+        int ok = 0;
+        for (int i = 0; i < due.size(); i++) {
+            Throwable error = futures.get(i).join();
+            if (error == null) ok++;
+            Pending item = due.get(i);
+            if (item.kind() == Kind.ACK && !(error instanceof MiddlewareCircuitBreaker.OpenException)) {
+                acks.add(new ConsumedEventLogWriter.AckResult(item.eventId(), error == null ? null : error.toString()));
+            }
+        }
+        try {
+            logWriter.recordAcks(acks);
+        } catch (Exception e) {
+            log.warn("[Retry] No se pudo persistir el estado de {} ACKs: {}", acks.size(), e.toString());
+        }
+        if (ok > 0) log.info("[Retry] Entregados {} de {} reintentos", ok, due.size());
+        return ok;
+    }
+
+    private List<Pending> takeDue() {
+        lock.lock();
+        try {
+            refill();
+            long now = System.currentTimeMillis();
+            List<Pending> due = new ArrayList<>();
+            while (due.size() < batchSize && !queue.isEmpty() && queue.peek().nextAttemptAt() <= now) {
+                due.add(queue.poll());
+            }
+            return due;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private CompletableFuture<Void> send(Pending item) {
+        if (item.kind() == Kind.ACK) return coreApiClient.ackEventAsync(item.eventId());
+        return transport.send(item.eventId(), item.type(), item.aggregateKey(), item.payloadJson(), item.occurredAt());
+    }
+
+    private void onFailure(Pending item, Throwable e) {
+        // Rechazo del breaker: no cuenta como intento, se espera a que el circuito pruebe de nuevo
+        if (e instanceof MiddlewareCircuitBreaker.OpenException) {
+            requeue(item.retryAt(item.attempts(), System.currentTimeMillis() + breaker.openMs()));
+            return;
+        }
+        int attempts = item.attempts() + 1;
+        if (attempts >= maxAttempts || e instanceof HttpClientErrorException) {
+            dropped.incrementAndGet();
+            log.error("[Retry] Descartado {} eventId={} type='{}' tras {} intentos: {}",
+                    item.kind(), item.eventId(), item.type(), attempts, e.toString());
+            return;
+        }
+        long delay = backoff(backoffMs, maxBackoffMs, attempts + 1);
+        requeue(item.retryAt(attempts, System.currentTimeMillis() + delay));
+        log.warn("[Retry] Falló {} eventId={} intento={} próximo en {} ms: {}", item.kind(), item.eventId(), attempts, delay, e.toString());
+    }
+
+    private void spill(List<Pending> items) {
+        try (BufferedWriter out = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Pending item : items) {
+                out.write(objectMapper.writeValueAsString(item));
+                out.newLine();
+            }
+            spilled += items.size();
+        } catch (IOException e) {
+            dropped.addAndGet(items.size());
+            log.error("[Retry] No se pudieron bajar {} reintentos a {}: {}", items.size(), spillFile, e.toString());
+        }
+    }
+
+    // Carga desde el archivo lo que entre en memoria y reescribe el resto
+    private void refill() {
+        int room = capacity - queue.size();
+        if (spilled == 0 || room <= 0) return;
+        if (!Files.exists(spillFile)) {
+            spilled = 0;
+            return;
+        }
+        try {
+            List<String> lines = Files.readAllLines(spillFile, StandardCharsets.UTF_8);
+            int take = Math.min(room, lines.size());
+            for (String line : lines.subList(0, take)) {
+                if (line.isBlank()) continue;
+                try {
+                    queue.add(objectMapper.readValue(line, Pending.class));
+                } catch (IOException e) {
+                    dropped.incrementAndGet();
+                    log.warn("[Retry] Línea ilegible en {} descartada: {}", spillFile, e.getMessage());
+                }
+            }
+            List<String> rest = lines.subList(take, lines.size());
+            if (rest.isEmpty()) Files.deleteIfExists(spillFile);
+            else Files.write(spillFile, rest, StandardCharsets.UTF_8);
+            spilled = rest.size();
+        } catch (IOException e) {
+            log.warn("[Retry] No se pudo recargar {}: {}", spillFile, e.toString());
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package ar.edu.uade.catalogue.messaging;
+
+import ar.edu.uade.catalogue.model.OutboxEvent;
+import ar.edu.uade.catalogue.model.OutboxEvent.Status;
+import ar.edu.uade.catalogue.repository.OutboxEventRepository;
+import jakarta.annotation.PreDestroy;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Drena outbox_event hacia el {@link EventTransport} configurado (middleware HTTP o Kafka). Cada poll toma un lote en orden de id y lo parte en
+ * segmentos separados por los eventos batch: dentro de un segmento cada clave (product:N, brand:N,
+ * category:N) se envía en orden en su propio hilo; un evento batch se envía solo, cuando terminó lo
+ * anterior, y espera únicamente por los productos de sus items: si alguno está frenado, el batch y
+ * esos productos quedan para el próximo poll y el resto sigue avanzando.
+ * Un fallo frena la clave hasta su próximo intento con backoff exponencial y jitter; con el circuito
+ * del middleware abierto no se consumen intentos. Las claves en backoff (y los productos de un batch
+ * en backoff) no entran en la página, así no la llenan con eventos que no pueden salir.
+ * Coalescing: una clave sale recién cuando su evento más viejo cumplió la ventana; para entonces los
+ * snapshots repetidos (stock, modificación) se reducen al último de cada tipo. Los eventos de
+ * transición (alta, activación, desactivación) nunca se fusionan y cortan la fusión: un snapshot
+ * anterior a una transición no se mezcla con uno posterior.
+ * Con un transporte que conserva el orden en vuelo (Kafka) los eventos de una clave salen sin esperar
+ * cada confirmación; con HTTP se espera uno por uno.
+ * Los ids enviados se marcan SENT al final del poll: ante una caída puede haber reenvíos con el mismo eventId.
+ */
+@Component
+@EnableScheduling
+public class OutboxDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private final OutboxEventRepository repo;
+    private final EventTransport transport;
+    private final ExecutorService lanes;
+
+    // Debe quedar activo en una sola instancia: dos dispatchers sobre la misma tabla duplican envíos
+    @Value("${communication.outbox.dispatcher.enabled:true}")
+    private boolean enabled;
+    @Value("${communication.outbox.batch-size:500}")
+    private int batchSize;
+    @Value("${communication.outbox.max-attempts:20}")
+    private int maxAttempts;
+    @Value("${communication.outbox.backoff.ms:1000}")
+    private long backoffMs;
+    @Value("${communication.outbox.max-backoff.ms:300000}")
+    private long maxBackoffMs;
+    @Value("${communication.outbox.retention.hours:24}")
+    private long retentionHours;
+    @Value("${communication.outbox.coalesce.window.ms:2000}")
+    private long coalesceWindowMs;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static final Set<String> SNAPSHOT_TYPES = Set.of(
+            InventoryEventPublisher.TYPE_ACTUALIZAR_STOCK, InventoryEventPublisher.TYPE_PRODUCTO_ACTUALIZADO);
+
+    public OutboxDispatcher(OutboxEventRepository repo, EventTransport transport,
+                            @Value("${communication.outbox.lanes:4}") int laneCount,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.repo = repo;
+        this.transport = transport;
+        this.lanes = WorkerThreads.pool("outbox-lane", laneCount, virtualThreads);
+    }
+
+    @PreDestroy
+    public void stop() {
+        lanes.shutdownNow();
+    }
+
+    /** Un poll: devuelve cuántos eventos se enviaron. fixedDelay garantiza que dos polls no se solapen. */
+    @Scheduled(fixedDelayString = "${communication.outbox.poll.ms:200}")
+    public int drain() {
+        if (!enabled) return 0;
+        LocalDateTime now = LocalDateTime.now();
+        Set<String> blocked = new HashSet<>();
+        List<OutboxEvent> batch;
+        try {
+            // Los productos de un batch en backoff esperan detrás de él
+            for (OutboxEvent pendingBatch : repo.findInBackoff(InventoryEventPublisher.BATCH_KEY, now)) {
+                Set<String> touched = touchedKeys(pendingBatch);
+                if (touched == null) return 0; // no se sabe qué toca: nada puede adelantarse
+                blocked.addAll(touched);
+            }
+            // NOT IN con lista vacía no es SQL válido: una clave que no existe
+            batch = repo.findDispatchable(now, blocked.isEmpty() ? List.of("") : blocked, batchSize);
+        } catch (Exception e) {
+            log.warn("[Outbox] No se pudo leer la tabla: {}", e.toString());
+            return 0;
+        }
+        if (batch.isEmpty()) return 0;
+
+        List<Long> sent = new ArrayList<>();
+        List<Long> coalesced = new ArrayList<>();
+        Map<String, List<OutboxEvent>> segment = new LinkedHashMap<>();
+
+        for (OutboxEvent event : batch) {
+            String key = event.getAggregateKey();
+            if (!InventoryEventPublisher.BATCH_KEY.equals(key)) {
+                if (!blocked.contains(key)) segment.computeIfAbsent(key, k -> new ArrayList<>()).add(event);
+                continue;
+            }
+            sendSegment(segment, now, sent, coalesced, blocked);
+            segment.clear();
+            Set<String> touched = touchedKeys(event);
+            if (touched == null) {
+                // Sin items reconocibles el batch puede tocar cualquier producto: espera a todos
+                if (!blocked.isEmpty() || !trySend(event, now)) break;
+                sent.add(event.getId());
+                continue;
+            }
+            // Con uno de sus productos frenado el batch se adelantaría a ese evento: esperan juntos
+            if (blocked.contains(key) || !Collections.disjoint(touched, blocked) || !trySend(event, now)) {
+                blocked.add(key);
+                blocked.addAll(touched);
+                continue;
+            }
+            sent.add(event.getId());
+        }
+        sendSegment(segment, now, sent, coalesced, blocked);
+
+        if (!sent.isEmpty()) repo.markSent(sent, LocalDateTime.now());
+        if (!coalesced.isEmpty()) repo.markCoalesced(coalesced, LocalDateTime.now());
+        if (!sent.isEmpty() || !coalesced.isEmpty()) {
+            log.debug("[Outbox] Enviados={} fusionados={} claves-frenadas={}", sent.size(), coalesced.size(), blocked.size());
+        }
+        return sent.size();
+    }
+
+    @Scheduled(cron = "${communication.outbox.cleanup.cron:0 15 * * * *}")
+    public void cleanup() {
+        if (!enabled) return;
+        int deleted = repo.deleteSentBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (deleted > 0) log.info("[Outbox] Depurados {} eventos enviados", deleted);
+    }
+
+    private void sendSegment(Map<String, List<OutboxEvent>> segment, LocalDateTime now, List<Long> sent,
+                             List<Long> coalesced, Set<String> blocked) {
+        if (segment.isEmpty()) return;
+        long readyBefore = System.currentTimeMillis() - coalesceWindowMs;
+        Map<String, List<OutboxEvent>> toSend = new LinkedHashMap<>();
+        Map<String, CompletableFuture<List<Long>>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, List<OutboxEvent>> entry : segment.entrySet()) {
+            // La ventana corre desde el evento más viejo de la clave; mientras no vence, la clave espera
+            if (entry.getValue().get(0).getOccurredAt() > readyBefore) {
+                blocked.add(entry.getKey());
+                continue;
+            }
+            List<OutboxEvent> events = coalesce(entry.getValue(), coalesced);
+            toSend.put(entry.getKey(), events);
+            futures.put(entry.getKey(), CompletableFuture.supplyAsync(() -> sendInOrder(events, now), lanes));
+        }
+        for (Map.Entry<String, CompletableFuture<List<Long>>> entry : futures.entrySet()) {
+            List<Long> ok = entry.getValue().join();
+            sent.addAll(ok);
+            if (ok.size() < toSend.get(entry.getKey()).size()) blocked.add(entry.getKey());
+        }
+    }
+
+    /** Claves product:N de los items de un evento batch; null si el payload no permite saberlo. */
+    static Set<String> touchedKeys(OutboxEvent event) {
+        try {
+            JsonNode items = JSON.readTree(event.getPayloadJson()).get("items");
+            if (items == null || !items.isArray()) return null;
+            Set<String> keys = new HashSet<>();
+            for (JsonNode item : items) {
+                JsonNode code = item.get("productCode");
+                if (code == null || code.isNull()) return null;
+                keys.add("product:" + code.asText());
+            }
+            return keys;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reduce los snapshots de una clave al último de cada tipo, en la posición del último.
+     * Los ids descartados se agregan a {@code coalesced}.
+     */
+    static List<OutboxEvent> coalesce(List<OutboxEvent> events, List<Long> coalesced) {
+        List<OutboxEvent> out = new ArrayList<>(events.size());
+        Map<String, Integer> lastByType = new HashMap<>();
+        for (OutboxEvent event : events) {
+            if (!SNAPSHOT_TYPES.contains(event.getEventType())) {
+                lastByType.clear();
+                out.add(event);
+                continue;
+            }
+            Integer previous = lastByType.put(event.getEventType(), out.size());
+            if (previous != null) {
+                coalesced.add(out.get(previous).getId());
+                out.set(previous, null);
+            }
+            out.add(event);
+        }
+        out.removeIf(Objects::isNull);
+        return out;
+    }
+
+    private List<Long> sendInOrder(List<OutboxEvent> events, LocalDateTime now) {
+        List<Long> ok = new ArrayList<>(events.size());
+        if (!transport.pipelined()) {
+            for (OutboxEvent event : events) {
+                if (!trySend(event, now)) break;
+                ok.add(event.getId());
+            }
+            return ok;
+        }
+        // Todos en vuelo a la vez; se confirman en orden y el primer fallo corta la clave.
+        // Los posteriores que hayan llegado se reenvían en el próximo intento con el mismo eventId
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            if (event.getNextAttemptAt() != null && event.getNextAttemptAt().isAfter(now)) break;
+            inFlight.add(send(event));
+        }
+        for (int i = 0; i < inFlight.size(); i++) {
+            if (!await(events.get(i), inFlight.get(i))) break;
+            ok.add(events.get(i).getId());
+        }
+        return ok;
+    }
+
+    private boolean trySend(OutboxEvent event, LocalDateTime now) {
+        if (event.getNextAttemptAt() != null && event.getNextAttemptAt().isAfter(now)) return false;
+        return await(event, send(event));
+    }
+
+    private CompletableFuture<Void> send(OutboxEvent event) {
+        try {
+            return transport.send(event.getEventId(), event.getEventType(), event.getAggregateKey(),
+                    event.getPayloadJson(), event.getOccurredAt());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private boolean await(OutboxEvent event, CompletableFuture<Void> future) {
+        try {
+            future.join();
+            return true;
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            // Circuito abierto: la clave espera al próximo poll sin consumir intentos
+            if (cause instanceof MiddlewareCircuitBreaker.OpenException) return false;
+            onFailure(event, cause instanceof Exception ex ? ex : e);
+            return false;
+        } catch (Exception e) {
+            onFailure(event, e);
+            return false;
+        }
+    }
+
+    private void onFailure(OutboxEvent event, Exception e) {
+        int attempts = event.getAttempts() == null ? 1 : event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(e.toString());
+        // Un 4xx no se arregla reintentando; tampoco se frena la clave para siempre.
+        // Queda en la tabla como FAILED para revisión manual
+        if (attempts >= maxAttempts || e instanceof HttpClientErrorException) {
+            event.setStatus(Status.FAILED);
+            log.error("[Outbox] Evento {} type='{}' key='{}' FAILED tras {} intentos: {}",
+                    event.getEventId(), event.getEventType(), event.getAggregateKey(), attempts, e.toString());
+        } else {
+            long delay = MiddlewareRetryQueue.backoff(backoffMs, maxBackoffMs, attempts);
+            event.setNextAttemptAt(LocalDateTime.now().plusNanos(delay * 1_000_000));
+            log.warn("[Outbox] Falló envío {} type='{}' key='{}' intento={} próximo en {} ms: {}",
+                    event.getEventId(), event.getEventType(), event.getAggregateKey(), attempts, delay, e.toString());
+        }
+        try {
+            repo.save(event);
+        } catch (Exception ex) {
+            log.warn("[Outbox] No se pudo registrar el fallo de {}: {}", event.getEventId(), ex.toString());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ar.edu.uade.catalogue.messaging;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Delegate del ErrorHandlingDeserializer para los values. En los topics de inventario.prefilter.topics
+ * mira primero el tipo del evento (el header eventType si el consumer lo despacha o, si no, una lectura
+ * en streaming de payload.type / eventType sin armar el árbol) y, si el consumer de ventas no lo despacha,
+ * devuelve null con los headers {@link #HEADER_SKIPPED_TYPE}/{@link #HEADER_SKIPPED_ID} sin armar el
+ * EventMessage. El listener sólo ACKea esos records al middleware: no loguea ni escribe consumed_event_log.
+ * Cualquier duda (JSON doble-encodeado, tipo ausente, error de lectura) va al JsonDeserializer completo.
+ */
+public class PrefilteringJsonDeserializer implements Deserializer<Object> {
+
+    public static final String TOPICS_CONFIG = "inventario.prefilter.topics";
+    public static final String HEADER_SKIPPED_TYPE = "x-prefiltered-type";
+    public static final String HEADER_SKIPPED_ID = "x-prefiltered-event-id";
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final JsonDeserializer<Object> delegate = new JsonDeserializer<>();
+    private Set<String> topics = Set.of();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+        Object raw = configs.get(TOPICS_CONFIG);
+        if (raw != null) {
+            topics = Arrays.stream(raw.toString().split(","))
+                    .map(String::trim).filter(s -> !s.isEmpty()).collect(Collectors.toUnmodifiableSet());
+        }
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return delegate.deserialize(topic, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        if (data != null && headers != null && topics.contains(topic)) {
+            Peek peek = peek(headers, data);
+            if (peek != null && peek.type() != null) {
+                EventTypeNormalizer.Resolved kind = EventTypeNormalizer.resolve(peek.type());
+                if (!SalesEventsListener.HANDLED_TYPES.contains(kind.type())) {
+                    headers.add(HEADER_SKIPPED_TYPE, kind.normalized().getBytes(StandardCharsets.UTF_8));
+                    if (peek.eventId() != null) headers.add(HEADER_SKIPPED_ID, peek.eventId().getBytes(StandardCharsets.UTF_8));
+                    return null;
+                }
+            }
+        }
+        return delegate.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    record Peek(String eventId, String type) {}
+
+    /**
+     * Tipo e id sin construir el árbol, con la misma precedencia que el listener (payload.type, después
+     * eventType); null si el value no es un objeto JSON legible. Un header eventType que el consumer
+     * despacha alcanza para no descartar; uno que no despacha no alcanza para descartar, porque
+     * payload.type puede pisarlo: en ese caso se lee el body.
+     */
+    static Peek peek(Headers headers, byte[] data) {
+        String headerType = text(headers.lastHeader(KafkaEventTransport.HEADER_EVENT_TYPE));
+        String headerId = text(headers.lastHeader(KafkaEventTransport.HEADER_EVENT_ID));
+        if (headerType != null && SalesEventsListener.HANDLED_TYPES.contains(EventTypeNormalizer.resolve(headerType).type())) {
+            return new Peek(headerId, headerType);
+        }
+        try (JsonParser p = JSON.createParser(data)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return null;
+            String eventId = headerId, eventType = null, nestedType = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                switch (field) {
+                    case "eventId" -> {
+                        eventId = p.getValueAsString(eventId);
+                        p.skipChildren();
+                    }
+                    case "eventType" -> {
+                        eventType = p.getValueAsString();
+                        p.skipChildren();
+                    }
+                    case "payload" -> {
+                        // Como el listener: payload.type tiene prioridad sobre eventType
+                        if (value != JsonToken.START_OBJECT) {
+                            p.skipChildren();
+                            break;
+                        }
+                        while (p.nextToken() == JsonToken.FIELD_NAME) {
+                            String inner = p.currentName();
+                            p.nextToken();
+                            if ("type".equals(inner)) nestedType = p.getValueAsString(nestedType);
+                            p.skipChildren();
+                        }
+                    }
+                    default -> p.skipChildren();
+                }
+            }
+            String type = nestedType != null ? nestedType : eventType != null ? eventType : headerType;
+            return new Peek(eventId, type);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String text(Header h) {
+        return h == null || h.value() == null ? null : new String(h.value(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,209 @@
+package ar.edu.uade.catalogue.messaging;
+
+import ar.edu.uade.catalogue.model.Category;
+import ar.edu.uade.catalogue.model.Product;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serializa los payloads de producto directo a un JsonGenerator, sin armar un Map por producto.
+ * Los alias (is_new, is_featured, categoryCodes, ...) se mantienen porque forman parte del contrato
+ * con el middleware; escribirlos en streaming no cuesta una entrada de HashMap extra.
+ */
+@Component
+public class ProductPayloadWriter {
+
+    @FunctionalInterface
+    private interface Body {
+        void write(JsonGenerator g) throws IOException;
+    }
+
+    private final JsonFactory jsonFactory;
+
+    public ProductPayloadWriter(ObjectMapper objectMapper) {
+        // La factory del ObjectMapper deja el codec configurado: writeObject sirve para items genéricos
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    // Alias del contrato que acompañan a un campo cuando viaja en un delta
+    private static final Map<String, String> ALIASES = Map.of(
+            "categories", "categoryCodes",
+            "new", "is_new",
+            "bestSeller", "is_best_seller",
+            "featured", "is_featured");
+
+    /** Payload completo de un producto (alta, modificación, activación, desactivación). */
+    public String product(Product p) {
+        return write(g -> writeProduct(g, p, null, null));
+    }
+
+    /** Snapshot completo con la versión de delta vigente: el consumidor reemplaza su estado. */
+    public String snapshot(Product p, long version) {
+        return write(g -> writeProduct(g, p, null, version));
+    }
+
+    /**
+     * Estado comparable de un producto para calcular deltas: los campos del payload sin alias,
+     * con copias de las listas para que una mutación posterior no altere el "antes".
+     */
+    public Map<String, Object> fields(Product p) {
+        Map<String, Object> f = new LinkedHashMap<>();
+        f.put("name", p.getName());
+        f.put("description", p.getDescription());
+        f.put("unitPrice", p.getUnitPrice());
+        f.put("price", p.getPrice());
+        f.put("discount", p.getDiscount());
+        f.put("stock", p.getStock());
+        List<Integer> categories = new ArrayList<>();
+        if (p.getCategories() != null) for (Category c : p.getCategories()) categories.add(c.getCategoryCode());
+        f.put("categories", categories);
+        f.put("brandCode", p.getBrand() == null ? null : p.getBrand().getBrandCode());
+        f.put("calification", p.getCalification());
+        f.put("images", p.getImages() == null ? null : new ArrayList<>(p.getImages()));
+        f.put("new", p.isNew());
+        f.put("bestSeller", p.isBestSeller());
+        f.put("featured", p.isFeatured());
+        f.put("hero", p.isHero());
+        f.put("active", p.isActive());
+        return f;
+    }
+
+    /** Delta de "modificar un producto": {productCode, version, changed:[...], campos cambiados + alias}. */
+    public String delta(Integer productCode, long version, Map<String, Object> changed) {
+        return write(g -> {
+            g.writeStartObject();
+            g.writeNumberField("productCode", productCode);
+            g.writeNumberField("version", version);
+            g.writeArrayFieldStart("changed");
+            for (String field : changed.keySet()) g.writeString(field);
+            g.writeEndArray();
+            for (Map.Entry<String, Object> e : changed.entrySet()) {
+                g.writeObjectField(e.getKey(), e.getValue());
+                String alias = ALIASES.get(e.getKey());
+                if (alias != null) g.writeObjectField(alias, e.getValue());
+            }
+            g.writeEndObject();
+        });
+    }
+
+    /** Payload de "PUT: Actualizar stock". */
+    public String stock(Product p) {
+        return write(g -> {
+            g.writeStartObject();
+            g.writeNumberField("productCode", p.getProductCode());
+            g.writeStringField("nombre", p.getName());
+            g.writeNumberField("stock", p.getStock());
+            g.writeStringField("description", p.getDescription());
+            g.writeNumberField("price", p.getPrice());
+            g.writeNumberField("unit_price", p.getUnitPrice());
+            g.writeNumberField("unitPrice", p.getUnitPrice());
+            g.writeNumberField("calification", p.getCalification());
+            List<String> images = p.getImages();
+            g.writeStringField("image", images == null || images.isEmpty() ? null : images.get(0));
+            g.writeEndObject();
+        });
+    }
+
+    /**
+     * Chunk de un batch de productos: {items, count, batchId, seq, chunks}. Si {@code activated}
+     * no es null cada item lleva además el flag "activated".
+     */
+    public String productBatch(List<Product> products, Set<Integer> activated, String batchId, int seq, int chunks) {
+        return write(g -> {
+            g.writeStartObject();
+            g.writeArrayFieldStart("items");
+            for (Product p : products) writeProduct(g, p, activated, null);
+            g.writeEndArray();
+            writeChunkInfo(g, products.size(), batchId, seq, chunks);
+            g.writeEndObject();
+        });
+    }
+
+    /** Chunk de un batch de items ya armados ({productCode, stock}, {productCode, discount, price}, ...). */
+    public String itemsBatch(List<Map<String, Object>> items, String batchId, int seq, int chunks) {
+        return write(g -> {
+            g.writeStartObject();
+            g.writeArrayFieldStart("items");
+            for (Map<String, Object> item : items) g.writeObject(item);
+            g.writeEndArray();
+            writeChunkInfo(g, items.size(), batchId, seq, chunks);
+            g.writeEndObject();
+        });
+    }
+
+    private void writeChunkInfo(JsonGenerator g, int count, String batchId, int seq, int chunks) throws IOException {
+        g.writeNumberField("count", count);
+        g.writeStringField("batchId", batchId);
+        g.writeNumberField("seq", seq);
+        g.writeNumberField("chunks", chunks);
+    }
+
+    private void writeProduct(JsonGenerator g, Product p, Set<Integer> activated, Long version) throws IOException {
+        g.writeStartObject();
+        g.writeNumberField("productCode", p.getProductCode());
+        g.writeStringField("name", p.getName());
+        g.writeStringField("description", p.getDescription());
+        g.writeNumberField("unitPrice", p.getUnitPrice());
+        g.writeNumberField("price", p.getPrice());
+        g.writeNumberField("discount", p.getDiscount());
+        g.writeNumberField("stock", p.getStock());
+        // Códigos de categorías prioritarios + alias
+        g.writeFieldName("categories");
+        writeCategoryCodes(g, p.getCategories());
+        g.writeFieldName("categoryCodes");
+        writeCategoryCodes(g, p.getCategories());
+        if (p.getBrand() == null || p.getBrand().getBrandCode() == null) g.writeNullField("brandCode");
+        else g.writeNumberField("brandCode", p.getBrand().getBrandCode());
+        g.writeNumberField("calification", p.getCalification());
+        g.writeFieldName("images");
+        if (p.getImages() == null) {
+            g.writeNull();
+        } else {
+            g.writeStartArray();
+            for (String image : p.getImages()) g.writeString(image);
+            g.writeEndArray();
+        }
+        g.writeBooleanField("new", p.isNew());
+        g.writeBooleanField("is_new", p.isNew());
+        g.writeBooleanField("bestSeller", p.isBestSeller());
+        g.writeBooleanField("is_best_seller", p.isBestSeller());
+        g.writeBooleanField("featured", p.isFeatured());
+        g.writeBooleanField("is_featured", p.isFeatured());
+        g.writeBooleanField("hero", p.isHero());
+        g.writeBooleanField("active", p.isActive());
+        if (activated != null) g.writeBooleanField("activated", activated.contains(p.getProductCode()));
+        if (version != null) g.writeNumberField("version", version);
+        g.writeEndObject();
+    }
+
+    private void writeCategoryCodes(JsonGenerator g, List<Category> categories) throws IOException {
+        g.writeStartArray();
+        if (categories != null) {
+            for (Category c : categories) {
+                if (c.getCategoryCode() == null) g.writeNull();
+                else g.writeNumber(c.getCategoryCode());
+            }
+        }
+        g.writeEndArray();
+    }
+
+    private String write(Body body) {
+        StringWriter out = new StringWriter(256);
+        try (JsonGenerator g = jsonFactory.createGenerator(out)) {
+            body.write(g);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo serializar el payload: " + e.getMessage(), e);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package ar.edu.uade.catalogue.messaging;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cierre de un poll procesado en lanes: confirma offsets hasta el primer record sin completar y
+ * reentrega el resto con nack. Cuenta los nack seguidos sobre el mismo offset; agotadas las
+ * reentregas lanza {@link BatchListenerFailedException} con su índice para que el error handler del
+ * factory lo reintente con backoff y lo mande a la DLQ, en vez de reentregarlo para siempre.
+ */
+public final class RedeliveryTracker {
+
+    // Por partición: offset trabado y cuántas veces seguidas se reentregó
+    private final ConcurrentHashMap<TopicPartition, long[]> stuck = new ConcurrentHashMap<>();
+
+    public void settle(List<? extends ConsumerRecord<?, ?>> records, int completed, Acknowledgment ack,
+                       int maxRedeliveries, Duration sleep) {
+        if (completed >= records.size()) {
+            release(records);
+            ack.acknowledge();
+            return;
+        }
+        ConsumerRecord<?, ?> record = records.get(completed);
+        if (redelivered(record) > maxRedeliveries) {
+            release(records);
+            throw new BatchListenerFailedException("Record sin completar tras " + maxRedeliveries + " reentregas topic="
+                    + record.topic() + " partition=" + record.partition() + " offset=" + record.offset(), completed);
+        }
+        ack.nack(completed, sleep);
+    }
+
+    private int redelivered(ConsumerRecord<?, ?> record) {
+        long[] entry = stuck.compute(new TopicPartition(record.topic(), record.partition()), (tp, prev) ->
+                prev != null && prev[0] == record.offset() ? new long[]{prev[0], prev[1] + 1} : new long[]{record.offset(), 1});
+        return (int) entry[1];
+    }
+
+    private void release(List<? extends ConsumerRecord<?, ?>> records) {
+        for (ConsumerRecord<?, ?> r : records) stuck.remove(new TopicPartition(r.topic(), r.partition()));
+    }
+}
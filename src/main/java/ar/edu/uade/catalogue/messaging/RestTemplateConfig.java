@@ -1,11 +1,14 @@
 package ar.edu.uade.catalogue.messaging;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
@@ -13,11 +16,42 @@ import java.util.List;
 @Configuration
 public class RestTemplateConfig {
 
+    /**
+     * Cliente HTTP compartido hacia el middleware: mantiene las conexiones abiertas (keep-alive, o una
+     * sola conexión multiplexada con HTTP/2) y completa las respuestas en un pool chico propio (virtual
+     * threads si están habilitados). Sin communication.http.version la versión sale de la URL del
+     * middleware: HTTP/2 sólo sobre https (ALPN); con http:// el JDK intentaría h2c con un Upgrade en cada
+     * conexión nueva, así que se usa HTTP/1.1.
+     */
+    @Bean(name = "coreHttpClient")
+    public HttpClient coreHttpClient(@Value("${communication.http.version:}") String configuredVersion,
+                                     @Value("${communication.intermediary.url:http://localhost:8090}") String baseUrl,
+                                     @Value("${communication.http.connect-timeout.ms:5000}") long connectTimeoutMs,
+                                     @Value("${communication.http.io-threads:4}") int ioThreads,
+                                     @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        return HttpClient.newBuilder()
+                .version(httpVersion(configuredVersion, baseUrl))
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(WorkerThreads.pool("core-http", ioThreads, virtualThreads))
+                .build();
+    }
+
+    static HttpClient.Version httpVersion(String configured, String baseUrl) {
+        if (configured != null && !configured.isBlank()) return HttpClient.Version.valueOf(configured.trim());
+        return baseUrl != null && baseUrl.regionMatches(true, 0, "https:", 0, 6)
+                ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1;
+    }
+
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder, BearerTokenInterceptor bearerTokenInterceptor) {
+    public RestTemplate restTemplate(RestTemplateBuilder builder, BearerTokenInterceptor bearerTokenInterceptor,
+                                     HttpClient coreHttpClient,
+                                     @Value("${communication.http.request-timeout.ms:10000}") long requestTimeoutMs) {
         RestTemplate rt = builder
-                .setConnectTimeout(Duration.ofSeconds(5))
-                .setReadTimeout(Duration.ofSeconds(10))
+                .requestFactory(() -> {
+                    JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(coreHttpClient);
+                    factory.setReadTimeout(Duration.ofMillis(requestTimeoutMs));
+                    return factory;
+                })
                 .build();
         List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>(rt.getInterceptors());
         interceptors.add(bearerTokenInterceptor);
@@ -25,4 +59,3 @@ public class RestTemplateConfig {
         return rt;
     }
 }
-
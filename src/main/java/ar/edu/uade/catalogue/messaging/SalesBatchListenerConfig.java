@@ -0,0 +1,29 @@
+package ar.edu.uade.catalogue.messaging;
+
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+
+/**
+ * Factory del consumer de ventas en modo batch: misma configuración que la de Spring Boot
+ * (deserializers, ack manual, concurrencia) pero entregando el poll completo al listener. Lleva el
+ * mismo error handler que el factory por defecto: un {@code BatchListenerFailedException} confirma
+ * los records previos, reintenta el fallido con backoff y, agotados los intentos, lo manda a la DLQ.
+ */
+@Configuration
+public class SalesBatchListenerConfig {
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> salesBatchListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer, ConsumerFactory<Object, Object> consumerFactory,
+            DefaultErrorHandler kafkaErrorHandler) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.setCommonErrorHandler(kafkaErrorHandler);
+        return factory;
+    }
+}
@@ -1,8 +1,8 @@
 package ar.edu.uade.catalogue.messaging;
 
-import ar.edu.uade.catalogue.model.ConsumedEventLog;
 import ar.edu.uade.catalogue.model.ConsumedEventLog.Status;
-import ar.edu.uade.catalogue.repository.ConsumedEventLogRepository;
+import ar.edu.uade.catalogue.inventario.EventIdempotencyService;
+import ar.edu.uade.catalogue.repository.ConsumedEventLogWriter;
 import ar.edu.uade.catalogue.service.InventoryOrderSyncService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -13,9 +13,20 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalDateTime;
+import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 @Component
 public class SalesEventsListener {
@@ -24,126 +35,148 @@ public class SalesEventsListener {
     // Header estándar que agrega ErrorHandlingDeserializer al fallar la deserialización del VALUE
     private static final String VALUE_DESER_EX_HEADER = "springDeserializerExceptionValue";
 
+    /** Tipos que este consumer despacha; el resto lo descarta {@link PrefilteringJsonDeserializer} antes de deserializar. */
+    static final Set<EventType> HANDLED_TYPES = EnumSet.of(EventType.COMPRA_PENDIENTE, EventType.COMPRA_CANCELADA, EventType.STOCK_ROLLBACK);
+
     private final ObjectMapper objectMapper;
-    private final ConsumedEventLogRepository logRepo;
     private final InventoryOrderSyncService inventoryService;
-    private final CoreApiClient coreApiClient;
+    private final AckDispatcher ackDispatcher;
+    private final ConsumedEventLogWriter logWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final EventIdempotencyService idempotency;
+    private final KeyOrderedExecutor keyOrderedExecutor;
+
+    /** Contadores desde el arranque, en memoria: los lee el health sin tocar la base. */
+    public record Snapshot(long processed, long errors, long duplicates, long prefiltered, long lastProcessedAtMs) {}
+
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong prefiltered = new AtomicLong();
+    private volatile long lastProcessedAtMs;
+
+    @Value("${inventario.kafka.parallel.nack-sleep.ms:1000}")
+    private long nackSleepMs;
+    @Value("${inventario.kafka.parallel.max-redeliveries:5}")
+    private int maxRedeliveries;
+    private final RedeliveryTracker redeliveries = new RedeliveryTracker();
 
     @Value("${inventario.kafka.sales-topic}")
     private String topicName;
 
     public SalesEventsListener(ObjectMapper objectMapper,
-                               ConsumedEventLogRepository logRepo,
                                InventoryOrderSyncService inventoryService,
-                               CoreApiClient coreApiClient) {
+                               AckDispatcher ackDispatcher,
+                               ConsumedEventLogWriter logWriter,
+                               TransactionTemplate transactionTemplate,
+                               EventIdempotencyService idempotency,
+                               KeyOrderedExecutor keyOrderedExecutor) {
         this.objectMapper = objectMapper;
-        this.logRepo = logRepo;
         this.inventoryService = inventoryService;
-        this.coreApiClient = coreApiClient;
+        this.ackDispatcher = ackDispatcher;
+        this.logWriter = logWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.idempotency = idempotency;
+        this.keyOrderedExecutor = keyOrderedExecutor;
     }
 
+    // Mensaje ya interpretado: eventId efectivo, tipo (anidado o top-level) y payload desenvuelto
+    private record Parsed(ConsumerRecord<String, Object> record, EventMessage msg, String eventId, String type,
+                          EventTypeNormalizer.Resolved kind, JsonNode payload) {}
+
     @KafkaListener(topics = "${inventario.kafka.sales-topic}",
-            containerFactory = "kafkaListenerContainerFactory")
+            containerFactory = "kafkaListenerContainerFactory",
+            autoStartup = "#{!${inventario.kafka.batch.enabled:false} and !${inventario.kafka.parallel.enabled:false}}")
     public void onMessage(ConsumerRecord<String, Object> record, Acknowledgment ack) {
         try {
+            if (skipPrefiltered(record)) {
+                if (ack != null) ack.acknowledge();
+                return;
+            }
             log.info("[VentasConsumer] In msg topic={} partition={} offset={} key={} valueType={}", record.topic(), record.partition(), record.offset(), record.key(), (record.value()==null?"null":record.value().getClass().getName()));
             // 1) Si hubo error de deserialización (ErrorHandlingDeserializer), saltear el record para evitar loop
             var hdr = record.headers().lastHeader(VALUE_DESER_EX_HEADER);
             if (hdr != null) {
                 log.error("[VentasConsumer] Valor no deserializable. Saltando record topic={} partition={} offset={}", record.topic(), record.partition(), record.offset());
-                ConsumedEventLog cel = logRepo.findByEventId(record.topic() + ":" + record.partition() + ":" + record.offset()).orElseGet(ConsumedEventLog::new);
-                if (cel.getId() == null) {
-                    cel.setEventId(record.topic() + ":" + record.partition() + ":" + record.offset());
+                ConsumedEventLogWriter.Row row = new ConsumedEventLogWriter.Row(fallbackId(record), null, null, null, record.topic(),
+                        record.partition(), record.offset(), null, Status.ERROR, "Deserialization error; record skipped", false);
+                try {
+                    if (!logWriter.claim(row)) logWriter.updateStatus(row);
+                } catch (Exception persistEx) {
+                log.warn("[VentasConsumer] No se pudo persistir log de deserialización: {}", persistEx.toString());
                 }
-                cel.setStatus(Status.ERROR);
-                cel.setAttempts(cel.getAttempts() == null ? 1 : cel.getAttempts() + 1);
-                cel.setLastError("Deserialization error; record skipped");
-                cel.setTopic(record.topic());
-                cel.setPartition(record.partition());
-                cel.setOffset(record.offset());
-                try { logRepo.save(cel); } catch (Exception persistEx) { log.warn("[VentasConsumer] No se pudo persistir log de deserialización: {}", persistEx.toString()); }
+                errors.incrementAndGet();
                 if (ack != null) ack.acknowledge();
                 return;
             }
 
             Object raw = record.value();
+            String eventId = fallbackId(record);
             try {
-                ar.edu.uade.catalogue.messaging.EventMessage msg;
-                if (raw instanceof String s) {
-                    msg = objectMapper.readValue(s, ar.edu.uade.catalogue.messaging.EventMessage.class);
-                } else {
-                    msg = objectMapper.convertValue(raw, ar.edu.uade.catalogue.messaging.EventMessage.class);
-                }
-                String eventId = Optional.ofNullable(msg.getEventId()).orElse(record.topic() + ":" + record.partition() + ":" + record.offset());
-
-                // Preferir tipo anidado en payload.type si existe; si no, usar top-level eventType
-                String nestedType = null;
-                try {
-                    JsonNode p = msg.getPayload();
-                    if (p != null && p.hasNonNull("type")) nestedType = p.get("type").asText();
-                } catch (Exception ignored) {}
-                String type = nestedType != null ? nestedType : msg.getEventType();
-                String normalized = EventTypeNormalizer.normalize(type);
-
-                // Unwrap payload si viene dentro de payload.payload
-                JsonNode effectivePayload = msg.getPayload();
-                if (effectivePayload != null && effectivePayload.has("payload") && !effectivePayload.get("payload").isNull()) {
-                    effectivePayload = effectivePayload.get("payload");
-                }
+                Parsed parsed = parse(record);
+                EventMessage msg = parsed.msg();
+                eventId = parsed.eventId();
+                String type = parsed.type();
+                EventTypeNormalizer.Resolved kind = parsed.kind();
+                JsonNode effectivePayload = parsed.payload();
 
-                ConsumedEventLog cel = logRepo.findByEventId(eventId).orElseGet(ConsumedEventLog::new);
-                if (cel.getId() == null) {
-                    cel.setEventId(eventId);
-                    cel.setStatus(Status.PENDING);
-                    cel.setAttempts(0);
-                    cel.setAckSent(false);
-                    cel.setAckAttempts(0);
-                }
-                cel.setEventType(type);
-                cel.setOriginModule(msg.getOriginModule());
-                cel.setTimestampRaw(msg.getTimestampRaw() == null ? null : msg.getTimestampRaw().toString());
-                cel.setTopic(record.topic());
-                cel.setPartition(record.partition());
-                cel.setOffset(record.offset());
-                cel.setPayloadJson(raw == null ? null : String.valueOf(raw));
-                try { logRepo.save(cel); } catch (Exception persistEx) { log.warn("[VentasConsumer] No se pudo persistir log inicial para eventId={} (se continúa): {}", eventId, persistEx.toString()); }
-
-                if (cel.getStatus() == Status.PROCESSED) {
-                    if (Boolean.FALSE.equals(cel.getAckSent())) {
-                        try { tryAck(cel); } catch (Exception ackEx) { log.warn("[VentasConsumer] ACK pendiente falló eventId={}: {}", cel.getEventId(), ackEx.toString()); }
-                    }
+                // Duplicado reciente: se resuelve en memoria (un ACK pendiente ya está en el dispatcher o en la cola de reintentos)
+                if (idempotency.recentlyProcessed(eventId)) {
+                    log.info("[VentasConsumer] Duplicado eventId={} descartado en memoria", eventId);
+                    duplicates.incrementAndGet();
                     if (ack != null) ack.acknowledge();
                     return;
                 }
 
-                // Dispatch (incluye alias sin tildes ni espacios para rollback)
-                switch (normalized) {
-                    case "post: compra pendiente" -> inventoryService.reserveStock(effectivePayload);
-                    // case "post: compra confirmada" -> inventoryService.confirmStock(effectivePayload); // No-op
-                    case "delete: compra cancelada" -> inventoryService.cancelReservation(effectivePayload);
-                    case "post: stock rollback - compra cancelada", "stockrollback_cartcancelled" -> inventoryService.applyRollback(effectivePayload);
-                    default -> log.info("[VentasConsumer] Ignorado eventType='{}' (normalized='{}')", type, normalized);
+                // Claim: el INSERT sólo entra si el eventId no existe; si ya estaba se lee su estado (sin LOBs)
+                boolean claimed;
+                try {
+                    claimed = logWriter.claim(new ConsumedEventLogWriter.Row(eventId, type, msg.getOriginModule(),
+                            msg.getTimestampRaw() == null ? null : msg.getTimestampRaw().toString(), record.topic(), record.partition(),
+                            record.offset(), rawJson(raw), Status.PENDING, null, false));
+                } catch (Exception persistEx) {
+                    // Sin log no hay idempotencia, pero se prioriza no frenar el consumo (como antes)
+                log.warn("[VentasConsumer] No se pudo persistir log inicial para eventId={} (se continúa): {}", eventId, persistEx.toString());
+                    claimed = true;
+                }
+                idempotency.markClaimed(eventId);
+                if (!claimed) {
+                    ConsumedEventLogWriter.State state = logWriter.state(eventId).orElse(null);
+                    if (state != null && state.status() == Status.PROCESSED) {
+                        idempotency.markProcessed(eventId);
+                        if (!state.ackSent()) ackDispatcher.submit(eventId);
+                        duplicates.incrementAndGet();
+                        if (ack != null) ack.acknowledge();
+                        return;
+                    }
                 }
 
-                // OK -> marcar procesado y ACK (resiliente)
-                cel.setStatus(Status.PROCESSED);
-                cel.setAttempts((cel.getAttempts() == null ? 0 : cel.getAttempts()) + 1);
-                cel.setLastError(null);
-                try { logRepo.save(cel); } catch (Exception persistEx) { log.warn("[VentasConsumer] No se pudo persistir PROCESSED para eventId={} (se continúa): {}", cel.getEventId(), persistEx.toString()); }
-                try { tryAck(cel); } catch (Exception ackEx) { log.warn("[VentasConsumer] ACK falló para eventId={} (se reintentará por scheduler): {}", cel.getEventId(), ackEx.toString()); }
+                // Dispatch y PROCESSED en una transacción: un carrito que falla a mitad no deja items
+                // aplicados, así el reintento (o el motor de reintentos) no descuenta dos veces
+                String completedId = eventId;
+                transactionTemplate.executeWithoutResult(status -> {
+                    switch (kind.type()) {
+                        case COMPRA_PENDIENTE -> inventoryService.reserveStock(effectivePayload);
+                        // case COMPRA_CONFIRMADA -> inventoryService.confirmStock(effectivePayload); // No-op
+                        case COMPRA_CANCELADA -> inventoryService.cancelReservation(effectivePayload);
+                        case STOCK_ROLLBACK -> inventoryService.applyRollback(effectivePayload);
+                        default -> log.info("[VentasConsumer] Ignorado eventType='{}' (normalized='{}')", type, kind.normalized());
+                    }
+                    logWriter.complete(completedId, Status.PROCESSED, null);
+                });
+                idempotency.markProcessed(eventId);
+                // El ACK sale en el próximo lote del dispatcher
+                ackDispatcher.submit(eventId);
+                countProcessed(1);
                 if (ack != null) ack.acknowledge();
             } catch (Exception ex) {
                 log.error("[VentasConsumer] Error procesando record topic={} partition={} offset={}", record.topic(), record.partition(), record.offset(), ex);
+                errors.incrementAndGet();
                 try {
-                    ConsumedEventLog cel = logRepo.findByEventId(record.topic() + ":" + record.partition() + ":" + record.offset()).orElse(null);
-                    if (cel != null) {
-                        cel.setStatus(Status.ERROR);
-                        cel.setAttempts((cel.getAttempts() == null ? 0 : cel.getAttempts()) + 1);
-                        cel.setLastError(ex.toString());
-                        logRepo.save(cel);
-                    }
+                    logWriter.updateStatus(new ConsumedEventLogWriter.Row(eventId, null, null, null, record.topic(), record.partition(),
+                            record.offset(), null, Status.ERROR, ex.toString(), true));
                 } catch (Exception persistEx) {
-                    log.warn("[VentasConsumer] No se pudo persistir estado ERROR para el record (se continuará): {}", persistEx.toString());
+                log.warn("[VentasConsumer] No se pudo persistir estado ERROR para el record (se continuará): {}", persistEx.toString());
                 }
                 if (ack != null) ack.acknowledge();
             }
@@ -153,21 +186,227 @@ public class SalesEventsListener {
         }
     }
 
-    private void tryAck(ConsumedEventLog cel) {
+    /**
+     * Modo batch (inventario.kafka.batch.enabled=true): el poll completo en una pasada. Un SELECT de los
+     * logs por eventId, los cambios de stock y los logs PROCESSED/ERROR en una sola transacción (un
+     * SELECT de productos, saveAll y JDBC batch), los ACK al {@link AckDispatcher} y un único commit
+     * de offsets al final. Si la transacción falla se reprocesa el poll record por record con {@link #onMessage}.
+     */
+    @KafkaListener(id = "sales-batch", topics = "${inventario.kafka.sales-topic}",
+            containerFactory = "salesBatchListenerContainerFactory",
+            autoStartup = "${inventario.kafka.batch.enabled:false}",
+            properties = "max.poll.records=${inventario.kafka.batch.max-poll-records:500}")
+    public void onBatch(List<ConsumerRecord<String, Object>> records, Acknowledgment ack) {
+        try {
+            processBatch(records);
+        } catch (Exception e) {
+            log.error("[VentasConsumer][Batch] Falló el lote de {} records, se reprocesa uno por uno: {}", records.size(), e.toString());
+            for (ConsumerRecord<String, Object> record : records) onMessage(record, null);
+        }
+        if (ack != null) ack.acknowledge();
+    }
+
+    /**
+     * Modo paralelo (inventario.kafka.parallel.enabled=true): cada record sigue el camino de {@link #onMessage},
+     * pero los del poll se reparten en lanes por producto ({@link KeyOrderedExecutor}). Los offsets se
+     * confirman hasta el primer record sin completar; desde ahí el poll se vuelve a entregar, hasta
+     * inventario.kafka.parallel.max-redeliveries veces: después el record trabado va a la DLQ.
+     */
+    @KafkaListener(id = "sales-parallel", topics = "${inventario.kafka.sales-topic}",
+            containerFactory = "salesBatchListenerContainerFactory",
+            autoStartup = "#{${inventario.kafka.parallel.enabled:false} and !${inventario.kafka.batch.enabled:false}}",
+            properties = "max.poll.records=${inventario.kafka.batch.max-poll-records:500}")
+    public void onParallel(List<ConsumerRecord<String, Object>> records, Acknowledgment ack) {
+        int completed = keyOrderedExecutor.process(records, this::productKeys, r -> onMessage(r, null));
+        if (ack == null) return;
+        if (completed < records.size()) {
+            log.warn("[VentasConsumer][Paralelo] Offsets confirmados hasta el record {} de {}; el resto se reentrega", completed, records.size());
+        }
+        redeliveries.settle(records, completed, ack, maxRedeliveries, Duration.ofMillis(nackSleepMs));
+    }
+
+    // Claves de lane: los productos del carrito; sin items (o ilegible) el record va en una lane propia
+    private List<String> productKeys(ConsumerRecord<String, Object> record) {
+        if (record.headers().lastHeader(VALUE_DESER_EX_HEADER) != null
+                || record.headers().lastHeader(PrefilteringJsonDeserializer.HEADER_SKIPPED_TYPE) != null) return List.of();
+        try {
+            JsonNode payload = parse(record).payload();
+            JsonNode cart = payload == null ? null : payload.get("cart");
+            if (cart == null || cart.isNull()) return List.of();
+            JsonNode items = cart.has("cartItems") ? cart.get("cartItems") : cart.get("items");
+            if (items == null || !items.isArray()) return List.of();
+            List<String> keys = new ArrayList<>(items.size());
+            for (JsonNode n : items) {
+                JsonNode code = n.has("productCode") ? n.get("productCode") : n.get("productId");
+                if (code != null && !code.isNull()) keys.add("product:" + code.asText());
+            }
+            return keys;
+        } catch (Exception e) {
+            return List.of();
+        }
+    }
+
+    private void processBatch(List<ConsumerRecord<String, Object>> records) {
+        List<Parsed> parsed = new ArrayList<>(records.size());
+        Map<ConsumerRecord<String, Object>, String> failed = new LinkedHashMap<>();
+        for (ConsumerRecord<String, Object> record : records) {
+            if (skipPrefiltered(record)) continue;
+            if (record.headers().lastHeader(VALUE_DESER_EX_HEADER) != null) {
+                log.error("[VentasConsumer][Batch] Valor no deserializable. Saltando record topic={} partition={} offset={}", record.topic(), record.partition(), record.offset());
+                failed.put(record, "Deserialization error; record skipped");
+                continue;
+            }
+            try {
+                parsed.add(parse(record));
+            } catch (Exception ex) {
+                log.error("[VentasConsumer][Batch] Error interpretando record topic={} partition={} offset={}: {}", record.topic(), record.partition(), record.offset(), ex.toString());
+                failed.put(record, ex.toString());
+            }
+        }
+        // Poll entero descartado por el prefiltro: ni SELECT ni transacción
+        if (parsed.isEmpty() && failed.isEmpty()) return;
+
+        // Los duplicados recientes se descartan en memoria; el resto se resuelve contra la base con un
+        // único IN indexado: un falso negativo del Bloom filter elegiría INSERT sobre una fila existente
+        // y la clave duplicada tiraría el poll entero
+        int before = parsed.size();
+        parsed.removeIf(p -> idempotency.recentlyProcessed(p.eventId()));
+        int dropped = before - parsed.size();
+        Set<String> ids = new HashSet<>();
+        for (Parsed p : parsed) ids.add(p.eventId());
+        for (ConsumerRecord<String, Object> r : failed.keySet()) ids.add(fallbackId(r));
+        Map<String, ConsumedEventLogWriter.State> known = logWriter.states(ids);
+
+        // seen: eventIds que ya tienen fila (en la tabla o insertada por este mismo lote) -> UPDATE en lugar de INSERT
+        Set<String> seen = new HashSet<>(known.keySet());
+        List<ConsumedEventLogWriter.Row> rows = new ArrayList<>();
+        for (Map.Entry<ConsumerRecord<String, Object>, String> e : failed.entrySet()) {
+            ConsumerRecord<String, Object> r = e.getKey();
+            String eventId = fallbackId(r);
+            rows.add(new ConsumedEventLogWriter.Row(eventId, null, null, null, r.topic(), r.partition(), r.offset(),
+                    null, Status.ERROR, e.getValue(), !seen.add(eventId)));
+        }
+
+        List<InventoryOrderSyncService.StockChange> changes = new ArrayList<>();
+        List<String> toAck = new ArrayList<>();
+        Set<String> inBatch = new HashSet<>();
+        for (Parsed p : parsed) {
+            ConsumedEventLogWriter.State state = known.get(p.eventId());
+            if (state != null && state.status() == Status.PROCESSED) {
+                // Duplicado ya aplicado: sólo se reintenta el ACK si había quedado pendiente
+                if (!state.ackSent()) toAck.add(p.eventId());
+                dropped++;
+                continue;
+            }
+            if (!inBatch.add(p.eventId())) {
+                log.info("[VentasConsumer][Batch] eventId={} repetido dentro del lote, se omite", p.eventId());
+                continue;
+            }
+            InventoryOrderSyncService.Operation op = operation(p.kind().type());
+            if (op != null) changes.add(new InventoryOrderSyncService.StockChange(op, p.payload()));
+            else log.info("[VentasConsumer] Ignorado eventType='{}' (normalized='{}')", p.type(), p.kind().normalized());
+            ConsumerRecord<String, Object> r = p.record();
+            rows.add(new ConsumedEventLogWriter.Row(p.eventId(), p.type(), p.msg().getOriginModule(),
+                    p.msg().getTimestampRaw() == null ? null : p.msg().getTimestampRaw().toString(), r.topic(), r.partition(), r.offset(),
+                    rawJson(r.value()), Status.PROCESSED, null, !seen.add(p.eventId())));
+            toAck.add(p.eventId());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!changes.isEmpty()) inventoryService.applyBatch(changes);
+            logWriter.writeAll(rows);
+        });
+        int ok = 0;
+        for (ConsumedEventLogWriter.Row r : rows) {
+            if (r.status() == Status.PROCESSED) {
+                idempotency.markProcessed(r.eventId());
+                ok++;
+            } else {
+                idempotency.markClaimed(r.eventId());
+            }
+        }
+        countProcessed(ok);
+        errors.addAndGet(rows.size() - ok);
+        duplicates.addAndGet(dropped);
+        toAck.forEach(ackDispatcher::submit);
+        log.info("[VentasConsumer][Batch] records={} aplicados={} acks={}", records.size(), changes.size(), toAck.size());
+    }
+
+    private static InventoryOrderSyncService.Operation operation(EventType type) {
+        return switch (type) {
+            case COMPRA_PENDIENTE -> InventoryOrderSyncService.Operation.RESERVE;
+            case COMPRA_CANCELADA -> InventoryOrderSyncService.Operation.CANCEL;
+            case STOCK_ROLLBACK -> InventoryOrderSyncService.Operation.ROLLBACK;
+            default -> null;
+        };
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(processed.get(), errors.get(), duplicates.get(), prefiltered.get(), lastProcessedAtMs);
+    }
+
+    // Tipo que no se despacha, descartado por el deserializer: sólo el ACK al middleware, sin log ni fila
+    private boolean skipPrefiltered(ConsumerRecord<String, Object> record) {
+        if (record.headers().lastHeader(PrefilteringJsonDeserializer.HEADER_SKIPPED_TYPE) == null) return false;
+        prefiltered.incrementAndGet();
+        var id = record.headers().lastHeader(PrefilteringJsonDeserializer.HEADER_SKIPPED_ID);
+        if (id != null) ackDispatcher.submit(new String(id.value(), StandardCharsets.UTF_8));
+        return true;
+    }
+
+    private void countProcessed(int n) {
+        if (n <= 0) return;
+        processed.addAndGet(n);
+        lastProcessedAtMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Reprocesa un evento guardado en consumed_event_log por el mismo camino idempotente del consumer
+     * (motor de reintentos). El resultado queda en la fila: PROCESSED + ACK, o ERROR con el nuevo error.
+     */
+    public void redrive(String topic, Integer partition, Long offset, String payloadJson) {
+        onMessage(new ConsumerRecord<>(topic == null ? "retry" : topic, partition == null ? 0 : partition,
+                offset == null ? -1L : offset, null, payloadJson), null);
+    }
+
+    // El valor llega como Map (JsonDeserializer): se guarda como JSON para poder reprocesarlo después
+    private String rawJson(Object raw) {
+        if (raw == null || raw instanceof String) return (String) raw;
         try {
-            coreApiClient.ackEvent(cel.getEventId());
-            cel.setAckSent(true);
-            cel.setAckAttempts((cel.getAckAttempts() == null ? 0 : cel.getAckAttempts()) + 1);
-            cel.setAckLastError(null);
-            cel.setAckLastAt(LocalDateTime.now());
+            return objectMapper.writeValueAsString(raw);
         } catch (Exception e) {
-            cel.setAckSent(false);
-            cel.setAckAttempts((cel.getAckAttempts() == null ? 0 : cel.getAckAttempts()) + 1);
-            cel.setAckLastError(e.toString());
-            cel.setAckLastAt(LocalDateTime.now());
-            throw e;
-        } finally {
-            try { logRepo.save(cel); } catch (Exception persistEx) { log.warn("[VentasConsumer] No se pudo persistir estado de ACK para eventId={}: {}", cel.getEventId(), persistEx.toString()); }
+            return String.valueOf(raw);
+        }
+    }
+
+    private static String fallbackId(ConsumerRecord<String, Object> record) {
+        return record.topic() + ":" + record.partition() + ":" + record.offset();
+    }
+
+    private Parsed parse(ConsumerRecord<String, Object> record) throws Exception {
+        Object raw = record.value();
+        EventMessage msg;
+        if (raw instanceof String s) {
+            msg = objectMapper.readValue(s, EventMessage.class);
+        } else {
+            msg = objectMapper.convertValue(raw, EventMessage.class);
+        }
+        String eventId = Optional.ofNullable(msg.getEventId()).orElse(record.topic() + ":" + record.partition() + ":" + record.offset());
+
+        // Preferir tipo anidado en payload.type si existe; si no, usar top-level eventType
+        String nestedType = null;
+        try {
+            JsonNode p = msg.getPayload();
+            if (p != null && p.hasNonNull("type")) nestedType = p.get("type").asText();
+        } catch (Exception ignored) {}
+        String type = nestedType != null ? nestedType : msg.getEventType();
+        EventTypeNormalizer.Resolved kind = EventTypeNormalizer.resolve(type);
+
+        // Unwrap payload si viene dentro de payload.payload
+        JsonNode effectivePayload = msg.getPayload();
+        if (effectivePayload != null && effectivePayload.has("payload") && !effectivePayload.get("payload").isNull()) {
+            effectivePayload = effectivePayload.get("payload");
         }
+        return new Parsed(record, msg, eventId, type, kind, effectivePayload);
     }
 }
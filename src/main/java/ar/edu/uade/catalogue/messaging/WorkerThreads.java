@@ -0,0 +1,49 @@
+package ar.edu.uade.catalogue.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Pools propios del servicio (lanes de Kafka y del outbox, HTTP al middleware, promociones). Con
+ * spring.threads.virtual.enabled=true y Java 21+ cada tarea corre en su propio virtual thread: las
+ * esperas de I/O no ocupan un hilo de plataforma y el tope de concurrencia lo ponen los límites de
+ * cada cliente (ventana de requests, tamaño del poll), no el tamaño del pool. En Java 17 se usa
+ * siempre el pool fijo de hilos de plataforma.
+ */
+public final class WorkerThreads {
+    private static final Logger log = LoggerFactory.getLogger(WorkerThreads.class);
+
+    private WorkerThreads() {}
+
+    public static boolean virtualSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    public static ExecutorService pool(String name, int platformThreads, boolean virtual) {
+        if (virtual) {
+            if (virtualSupported()) {
+                ThreadFactory factory = new VirtualThreadTaskExecutor(name + "-").getVirtualThreadFactory();
+                try {
+                    // API de Java 21: se resuelve por reflexión porque el build compila contra Java 17
+                    return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                            .invoke(null, factory);
+                } catch (ReflectiveOperationException e) {
+                    log.warn("[Threads] No se pudo crear el executor virtual '{}', se usan hilos de plataforma: {}", name, e.toString());
+                }
+            } else {
+                log.warn("[Threads] Virtual threads pedidos para '{}' pero la JVM es {}: se usan hilos de plataforma",
+                        name, Runtime.version().feature());
+            }
+        }
+        return Executors.newFixedThreadPool(Math.max(1, platformThreads), r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
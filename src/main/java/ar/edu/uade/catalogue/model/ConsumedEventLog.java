@@ -6,7 +6,11 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "consumed_event_log", indexes = {
         @Index(name = "idx_consumed_event_event_id", columnList = "event_id", unique = true),
-        @Index(name = "idx_consumed_event_status", columnList = "status")
+        // (topic, status, created_at) cubre el GROUP BY del health por topic: conteos y la fila pendiente más
+        // vieja sin leer la tabla
+        @Index(name = "idx_consumed_event_topic_status_created", columnList = "topic, status, created_at"),
+        @Index(name = "idx_consumed_event_created_at", columnList = "created_at"),
+        @Index(name = "idx_consumed_event_next_attempt", columnList = "next_attempt_at")
 })
 public class ConsumedEventLog {
 
@@ -66,6 +70,10 @@ public class ConsumedEventLog {
     @Column(name = "ack_last_at")
     private LocalDateTime ackLastAt;
 
+    // Próximo reintento (procesamiento o ACK); NULL cuando no queda nada pendiente
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
@@ -107,6 +115,8 @@ public class ConsumedEventLog {
     public void setAckLastError(String ackLastError) { this.ackLastError = ackLastError; }
     public LocalDateTime getAckLastAt() { return ackLastAt; }
     public void setAckLastAt(LocalDateTime ackLastAt) { this.ackLastAt = ackLastAt; }
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
@@ -0,0 +1,26 @@
+package ar.edu.uade.catalogue.model.DTO;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BulkRepriceDTO {
+    // Alcance: informar uno solo (categoría, marca o lista explícita de productCodes)
+    private Integer categoryCode;
+    private Integer brandCode;
+    private List<Integer> productCodes;
+
+    // Cambios (null => no modificar)
+    private Float percentChange; // ej: 10 = +10%, -15 = -15% sobre unit_price
+    private Float discount;      // absoluto, mismo formato que updateDiscount (0.2 o 20)
+
+    // Redondeo del nuevo unit_price: CENTS (default), INTEGER o NINETY_NINE (x.99)
+    private String rounding;
+}
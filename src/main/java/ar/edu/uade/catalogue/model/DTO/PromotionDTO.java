@@ -0,0 +1,25 @@
+package ar.edu.uade.catalogue.model.DTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class PromotionDTO {
+    private String name;
+    private Float discount;        // 0.2 o 20 (mismo formato que updateDiscount)
+    private LocalDateTime startAt;
+    private LocalDateTime endAt;   // opcional
+
+    // Alcance: informar uno solo
+    private Integer categoryCode;
+    private Integer brandCode;
+    private List<Integer> productCodes;
+}
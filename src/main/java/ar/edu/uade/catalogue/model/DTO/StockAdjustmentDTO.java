@@ -0,0 +1,18 @@
+package ar.edu.uade.catalogue.model.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class StockAdjustmentDTO {
+    private Integer productCode;
+
+    // Informar uno solo: stock absoluto o delta (positivo repone, negativo descuenta)
+    private Integer stock;
+    private Integer delta;
+}
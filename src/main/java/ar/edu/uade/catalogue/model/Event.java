@@ -8,6 +8,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Lob;
 import jakarta.persistence.Table;
 import lombok.Getter;
@@ -21,7 +22,12 @@ import lombok.ToString;
 @ToString
 
 @Entity
-@Table(name = "event")
+@Table(name = "event", indexes = {
+        // Historial de una entidad (product:5) en orden de id: index scan + keyset
+        @Index(name = "idx_event_entity", columnList = "entity_type, entity_code, id"),
+        @Index(name = "idx_event_normalized_type", columnList = "normalized_type, id"),
+        @Index(name = "idx_event_timestamp", columnList = "timestamp")
+})
 public class Event {
 
     @Id
@@ -41,6 +47,17 @@ public class Event {
     @Column(name = "origin")
     private String originModule;
 
+    // Tipo sin acentos ni mayúsculas (EventTypeNormalizer), para filtrar sin depender del texto exacto
+    @Column(name = "normalized_type")
+    private String normalizedType;
+
+    // Entidad afectada: product / category / brand; null en los eventos batch
+    @Column(name = "entity_type", length = 32)
+    private String entityType;
+
+    @Column(name = "entity_code")
+    private Integer entityCode;
+
     public Event(String type, String payload){
         this.type = type;
         this.payload = payload;
@@ -0,0 +1,34 @@
+package ar.edu.uade.catalogue.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/** Conteo diario por tipo de los eventos depurados de la tabla event. */
+@Entity
+@Table(name = "event_rollup", indexes = {
+        @Index(name = "idx_event_rollup_day_type", columnList = "event_day, event_type")
+})
+public class EventRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_day", nullable = false)
+    private LocalDate eventDay;
+
+    @Column(name = "event_type")
+    private String eventType;
+
+    @Column(name = "total", nullable = false)
+    private Long total;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public LocalDate getEventDay() { return eventDay; }
+    public void setEventDay(LocalDate eventDay) { this.eventDay = eventDay; }
+    public String getEventType() { return eventType; }
+    public void setEventType(String eventType) { this.eventType = eventType; }
+    public Long getTotal() { return total; }
+    public void setTotal(Long total) { this.total = total; }
+}
@@ -0,0 +1,94 @@
+package ar.edu.uade.catalogue.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Evento saliente hacia el middleware. Se inserta en la misma transacción que el cambio de
+ * la entidad y lo publica {@link ar.edu.uade.catalogue.messaging.OutboxDispatcher} en segundo plano.
+ */
+@Entity
+@Table(name = "outbox_event", indexes = {
+        @Index(name = "idx_outbox_event_event_id", columnList = "event_id", unique = true),
+        @Index(name = "idx_outbox_event_status_id", columnList = "status, id"),
+        @Index(name = "idx_outbox_event_aggregate_key", columnList = "aggregate_key"),
+        // Claves en backoff: el dispatcher las excluye de la página
+        @Index(name = "idx_outbox_event_status_next_attempt", columnList = "status, next_attempt_at")
+})
+public class OutboxEvent {
+
+    public enum Status { PENDING, SENT, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id", nullable = false, unique = true, length = 64)
+    private String eventId;
+
+    @Column(name = "event_type", nullable = false)
+    private String eventType;
+
+    // Clave de orden: los eventos de una misma clave (p.ej. product:123) se envían en orden de id
+    @Column(name = "aggregate_key", nullable = false, length = 128)
+    private String aggregateKey;
+
+    @Lob
+    @Column(name = "payload_json")
+    private String payloadJson;
+
+    // Momento del cambio de negocio (epoch ms), es el timestamp que viaja al middleware
+    @Column(name = "occurred_at", nullable = false)
+    private Long occurredAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    @Column(name = "attempts")
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Lob
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    // true si no se envió porque un snapshot posterior de la misma clave lo reemplazó
+    @Column(name = "coalesced")
+    private Boolean coalesced = false;
+
+    // getters y setters
+    public Long getId() { return id; }
+    public String getEventId() { return eventId; }
+    public void setEventId(String eventId) { this.eventId = eventId; }
+    public String getEventType() { return eventType; }
+    public void setEventType(String eventType) { this.eventType = eventType; }
+    public String getAggregateKey() { return aggregateKey; }
+    public void setAggregateKey(String aggregateKey) { this.aggregateKey = aggregateKey; }
+    public String getPayloadJson() { return payloadJson; }
+    public void setPayloadJson(String payloadJson) { this.payloadJson = payloadJson; }
+    public Long getOccurredAt() { return occurredAt; }
+    public void setOccurredAt(Long occurredAt) { this.occurredAt = occurredAt; }
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getSentAt() { return sentAt; }
+    public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+    public Boolean getCoalesced() { return coalesced; }
+    public void setCoalesced(Boolean coalesced) { this.coalesced = coalesced; }
+}
@@ -93,6 +93,10 @@ public class Product {
     @Column(name="active")
     private boolean active;
 
+    // Versión de los eventos delta: cada "modificar un producto" la incrementa
+    @Column(name="change_version")
+    private Long changeVersion;
+
     // Refactor: reviews ahora guardan también el productCode en la tabla product_reviews
     @ElementCollection
     @CollectionTable(name = "product_reviews", joinColumns = @JoinColumn(name = "product_id"))
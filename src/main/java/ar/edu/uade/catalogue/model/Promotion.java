@@ -0,0 +1,83 @@
+package ar.edu.uade.catalogue.model;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.MapKeyColumn;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@NoArgsConstructor
+@Getter
+@Setter
+
+@Entity
+@Table(name = "promotion", indexes = {
+        @Index(name = "idx_promotion_status", columnList = "status")
+})
+public class Promotion {
+
+    // ACTIVATING/ENDING: tomados por una instancia (UPDATE condicional) mientras se aplican
+    public enum Status { SCHEDULED, ACTIVATING, ACTIVE, ENDING, ENDED, CANCELLED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "discount", nullable = false)
+    private float discount; // mismo formato que Product.discount (0.2 o 20)
+
+    @Column(name = "start_at", nullable = false)
+    private LocalDateTime startAt;
+
+    @Column(name = "end_at")
+    private LocalDateTime endAt; // null => no vence
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status = Status.SCHEDULED;
+
+    // Alcance resuelto al crear la promoción
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "promotion_product", joinColumns = @JoinColumn(name = "promotion_id"))
+    @Column(name = "product_code")
+    private Set<Integer> productCodes = new HashSet<>();
+
+    // Descuento previo de cada producto, para restaurarlo al finalizar
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "promotion_previous_discount", joinColumns = @JoinColumn(name = "promotion_id"))
+    @MapKeyColumn(name = "product_code")
+    @Column(name = "discount")
+    private Map<Integer, Float> previousDiscounts = new HashMap<>();
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    @PreUpdate
+    public void preUpdate() { this.updatedAt = LocalDateTime.now(); }
+}
@@ -5,10 +5,13 @@ import org.springframework.stereotype.Repository;
 
 import ar.edu.uade.catalogue.model.Brand;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface BrandRepository extends JpaRepository<Brand,Integer>{
     Optional<Brand> findByBrandCode(Integer brandCode);
     boolean existsByBrandCode(Integer brandCode);
+    List<Brand> findByBrandCodeIn(Collection<Integer> brandCodes);
 }
\ No newline at end of file
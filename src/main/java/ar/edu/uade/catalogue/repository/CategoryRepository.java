@@ -5,6 +5,8 @@ import org.springframework.stereotype.Repository;
 
 import ar.edu.uade.catalogue.model.Category;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -12,4 +14,5 @@ import java.util.Optional;
 public interface CategoryRepository extends JpaRepository<Category,Integer>{
     Optional<Category> findByCategoryCode(Integer categoryCode);
     boolean existsByCategoryCode(Integer categoryCode);
+    List<Category> findByCategoryCodeIn(Collection<Integer> categoryCodes);
 }
@@ -0,0 +1,245 @@
+package ar.edu.uade.catalogue.repository;
+
+import ar.edu.uade.catalogue.model.ConsumedEventLog.Status;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Escrituras por JDBC de consumed_event_log. Ciclo de vida de un evento: un INSERT que reclama el
+ * eventId (el índice único decide quién lo procesa) y un UPDATE angosto con el resultado; en modo
+ * batch lo mismo en un statement por poll. El estado del ACK se escribe aparte, un batch por lote de ACKs. Las filas existentes sólo actualizan columnas de estado:
+ * payload_json y timestamp_raw se escriben una única vez, al insertar.
+ */
+@Repository
+public class ConsumedEventLogWriter {
+
+    /** Resultado de un evento del poll. {@code existing}: la fila ya estaba (reintento de un PENDING/ERROR). */
+    public record Row(String eventId, String eventType, String originModule, String timestampRaw, String topic,
+                      Integer partition, Long offset, String payloadJson, Status status, String lastError, boolean existing) {}
+
+    /** Resultado del ACK al middleware; {@code error} null si salió bien. */
+    public record AckResult(String eventId, String error) {}
+
+    /** Estado de una fila ya reclamada, sin las columnas LOB. */
+    public record State(Status status, boolean ackSent) {}
+
+    /** Fila vencida para el motor de reintentos; {@code payloadJson} sólo viene en las que no están PROCESSED. */
+    public record Due(String eventId, Status status, int attempts, boolean ackSent, int ackAttempts, String topic,
+                      Integer partition, Long offset, String payloadJson, Timestamp nextAttemptAt) {}
+
+    /** Conteo por estado; {@code oldestPendingAt}: creación de la fila sin PROCESSED más vieja (null si no hay). */
+    public record Aggregate(Map<Status, Long> counts, LocalDateTime oldestPendingAt) {
+        public long total() {
+            return counts.values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+
+    // next_attempt_at: cuándo el motor de reintentos tiene que mirar la fila (NULL = nada pendiente).
+    // Toda fila nace con un vencimiento; lo limpia el ACK exitoso o el motor al darla por terminada.
+    private static final String SQL_INSERT =
+            "INSERT INTO consumed_event_log (event_id, event_type, origin_module, timestamp_raw, topic, partition_no, offset_val, "
+            + "payload_json, status, attempts, last_error, ack_sent, ack_attempts, next_attempt_at, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false, 0, ?, ?, ?)";
+
+    // Un reintento fallido no pisa el vencimiento que ya fijó el motor (backoff por evento)
+    private static final String SQL_UPDATE_STATUS =
+            "UPDATE consumed_event_log SET status = ?, attempts = COALESCE(attempts, 0) + 1, last_error = ?, "
+            + "topic = ?, partition_no = ?, offset_val = ?, next_attempt_at = COALESCE(next_attempt_at, ?), updated_at = ? "
+            + "WHERE event_id = ?";
+
+    private static final String SQL_SELECT_STATE = "SELECT status, ack_sent FROM consumed_event_log WHERE event_id = ?";
+
+    private static final String SQL_COMPLETE =
+            "UPDATE consumed_event_log SET status = ?, attempts = COALESCE(attempts, 0) + 1, last_error = ?, updated_at = ? "
+            + "WHERE event_id = ?";
+
+    // Rango sobre idx_consumed_event_next_attempt: el costo depende de las filas vencidas, no del tamaño de la tabla
+    private static final String SQL_SELECT_DUE =
+            "SELECT event_id, status, attempts, ack_sent, ack_attempts, topic, partition_no, offset_val, "
+            + "CASE WHEN status <> 'PROCESSED' THEN payload_json END, next_attempt_at "
+            + "FROM consumed_event_log WHERE next_attempt_at <= ? ORDER BY next_attempt_at LIMIT ?";
+
+    // Lease optimista: sólo gana quien ve el mismo vencimiento que leyó (varias instancias o polls solapados)
+    private static final String SQL_RESCHEDULE =
+            "UPDATE consumed_event_log SET next_attempt_at = ? WHERE event_id = ? AND next_attempt_at = ?";
+
+    // Eventos sin ACK al middleware (topic interno): ack_sent=true y sin next_attempt_at, el motor de reintentos no los toma
+    private static final String SQL_CLAIM_NO_ACK =
+            "INSERT INTO consumed_event_log (event_id, event_type, topic, partition_no, offset_val, status, attempts, "
+            + "ack_sent, ack_attempts, created_at, updated_at) VALUES (?, ?, ?, ?, ?, 'PENDING', 0, true, 0, ?, ?)";
+
+    private static final String SQL_UPDATE_ACK =
+            "UPDATE consumed_event_log SET ack_sent = ?, ack_attempts = COALESCE(ack_attempts, 0) + 1, ack_last_error = ?, "
+            + "ack_last_at = ?, next_attempt_at = CASE WHEN ? THEN NULL ELSE next_attempt_at END, updated_at = ? WHERE event_id = ?";
+
+    // Sobre idx_consumed_event_topic_status_created: lee el rango del topic en el índice, nunca las columnas
+    // LOB. Filtrado por topic: las filas del topic interno (claimWithoutAck) no cuentan para el de ventas
+    private static final String SQL_AGGREGATE =
+            "SELECT status, COUNT(*), MIN(created_at) FROM consumed_event_log WHERE topic = ? GROUP BY status";
+
+    private static final int FETCH_SIZE = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long firstRetryMs;
+
+    public ConsumedEventLogWriter(JdbcTemplate jdbcTemplate,
+                                  @Value("${inventario.retry.backoff.ms:60000}") long firstRetryMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.firstRetryMs = firstRetryMs;
+    }
+
+    /** Inserta las filas nuevas y actualiza el estado de las existentes: dos batch como máximo. */
+    public void writeAll(List<Row> rows) {
+        if (rows.isEmpty()) return;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (Row r : rows) {
+            if (r.existing()) {
+                updates.add(new Object[]{r.status().name(), r.lastError(), r.topic(), r.partition(), r.offset(), firstRetryAt(now), now, r.eventId()});
+            } else {
+                inserts.add(insertArgs(r, now));
+            }
+        }
+        if (!inserts.isEmpty()) jdbcTemplate.batchUpdate(SQL_INSERT, inserts);
+        if (!updates.isEmpty()) jdbcTemplate.batchUpdate(SQL_UPDATE_STATUS, updates);
+    }
+
+    /**
+     * Reclama el eventId con un INSERT: true si la fila es nueva. Si otro consumer (o una entrega
+     * anterior) ya la insertó, el índice único lo rechaza y se devuelve false sin escribir nada.
+     * Una fila PENDING nace con attempts=0; ERROR cuenta como un intento.
+     */
+    public boolean claim(Row row) {
+        try {
+            return jdbcTemplate.update(SQL_INSERT, insertArgs(row, Timestamp.valueOf(LocalDateTime.now()))) == 1;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    public Optional<State> state(String eventId) {
+        List<State> found = jdbcTemplate.query(SQL_SELECT_STATE,
+                (rs, i) -> new State(Status.valueOf(rs.getString(1)), rs.getBoolean(2)), eventId);
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    /**
+     * {@link #claim} para un evento que no requiere ACK (topic interno): true si la fila es nueva. El
+     * resultado lo registra {@link #complete}; si el consumer se cae antes, la fila queda PENDING.
+     */
+    public boolean claimWithoutAck(String eventId, String eventType, String topic, Integer partition, Long offset) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            return jdbcTemplate.update(SQL_CLAIM_NO_ACK, eventId, eventType, topic, partition, offset, now, now) == 1;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /** Recorre los eventId creados desde {@code since} sin materializarlos en una lista (reconstrucción del Bloom filter). */
+    public long forEachEventIdSince(LocalDateTime since, Consumer<String> action) {
+        long[] count = {0};
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT event_id FROM consumed_event_log WHERE created_at >= ?");
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setTimestamp(1, Timestamp.valueOf(since));
+            return ps;
+        }, rs -> {
+            action.accept(rs.getString(1));
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    /** Estado de varias filas con un solo SELECT (modo batch). */
+    public Map<String, State> states(Collection<String> eventIds) {
+        Map<String, State> out = new HashMap<>();
+        if (eventIds.isEmpty()) return out;
+        String in = String.join(", ", Collections.nCopies(eventIds.size(), "?"));
+        jdbcTemplate.query("SELECT event_id, status, ack_sent FROM consumed_event_log WHERE event_id IN (" + in + ")",
+                rs -> { out.put(rs.getString(1), new State(Status.valueOf(rs.getString(2)), rs.getBoolean(3))); },
+                eventIds.toArray());
+        return out;
+    }
+
+    /** Resultado del procesamiento; el del ACK lo registra {@link #recordAcks} por lote. */
+    public void complete(String eventId, Status status, String lastError) {
+        jdbcTemplate.update(SQL_COMPLETE, status.name(), lastError, Timestamp.valueOf(LocalDateTime.now()), eventId);
+    }
+
+    /** Conteos por estado de un topic con un único GROUP BY (health de consumers). */
+    public Aggregate aggregate(String topic) {
+        Map<Status, Long> counts = new EnumMap<>(Status.class);
+        for (Status st : Status.values()) counts.put(st, 0L);
+        LocalDateTime[] oldest = {null};
+        jdbcTemplate.query(SQL_AGGREGATE, rs -> {
+            String raw = rs.getString(1);
+            if (raw == null) return;
+            Status st = Status.valueOf(raw);
+            counts.put(st, rs.getLong(2));
+            Timestamp created = rs.getTimestamp(3);
+            if (st != Status.PROCESSED && created != null
+                    && (oldest[0] == null || created.toLocalDateTime().isBefore(oldest[0]))) {
+                oldest[0] = created.toLocalDateTime();
+            }
+        }, topic);
+        return new Aggregate(counts, oldest[0]);
+    }
+
+    /** Hasta {@code limit} filas con next_attempt_at vencido, las más atrasadas primero. */
+    public List<Due> due(LocalDateTime now, int limit) {
+        return jdbcTemplate.query(SQL_SELECT_DUE, (rs, i) -> new Due(rs.getString(1), Status.valueOf(rs.getString(2)),
+                rs.getInt(3), rs.getBoolean(4), rs.getInt(5), rs.getString(6), (Integer) rs.getObject(7, Integer.class),
+                (Long) rs.getObject(8, Long.class), rs.getString(9), rs.getTimestamp(10)), Timestamp.valueOf(now), limit);
+    }
+
+    /**
+     * Mueve el vencimiento de una fila leída con {@link #due}; false si otro la tomó antes.
+     * {@code next} null la saca del motor de reintentos.
+     */
+    public boolean reschedule(Due row, LocalDateTime next) {
+        return jdbcTemplate.update(SQL_RESCHEDULE, next == null ? null : Timestamp.valueOf(next), row.eventId(), row.nextAttemptAt()) == 1;
+    }
+
+    /** Sólo el estado (ERROR de un reintento, por ejemplo); no toca las columnas de ACK. */
+    public void updateStatus(Row row) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update(SQL_UPDATE_STATUS, row.status().name(), row.lastError(), row.topic(), row.partition(), row.offset(),
+                firstRetryAt(now), now, row.eventId());
+    }
+
+    public void recordAcks(List<AckResult> results) {
+        if (results.isEmpty()) return;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(results.size());
+        for (AckResult r : results) args.add(new Object[]{r.error() == null, r.error(), now, r.error() == null, now, r.eventId()});
+        jdbcTemplate.batchUpdate(SQL_UPDATE_ACK, args);
+    }
+
+    private Object[] insertArgs(Row r, Timestamp now) {
+        return new Object[]{r.eventId(), r.eventType(), r.originModule(), r.timestampRaw(), r.topic(), r.partition(),
+                r.offset(), r.payloadJson(), r.status().name(), r.status() == Status.PENDING ? 0 : 1, r.lastError(),
+                firstRetryAt(now), now, now};
+    }
+
+    // Primer vencimiento: si la fila no se completa (o el ACK no sale) el motor de reintentos la toma después
+    private Timestamp firstRetryAt(Timestamp now) {
+        return new Timestamp(now.getTime() + firstRetryMs);
+    }
+}
@@ -0,0 +1,51 @@
+package ar.edu.uade.catalogue.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import ar.edu.uade.catalogue.model.OutboxEvent;
+import ar.edu.uade.catalogue.model.OutboxEvent.Status;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Página del dispatcher en orden de id. Quedan afuera las claves con algún evento en backoff (y las de
+     * {@code skipKeys}): sus eventos no pueden salir y no deben ocupar la página.
+     */
+    @Query(value = "SELECT o.* FROM outbox_event o WHERE o.status = 'PENDING' "
+            + "AND o.aggregate_key NOT IN (SELECT b.aggregate_key FROM outbox_event b WHERE b.status = 'PENDING' AND b.next_attempt_at > :now) "
+            + "AND o.aggregate_key NOT IN (:skipKeys) ORDER BY o.id LIMIT :limit", nativeQuery = true)
+    List<OutboxEvent> findDispatchable(@Param("now") LocalDateTime now, @Param("skipKeys") Collection<String> skipKeys,
+                                       @Param("limit") int limit);
+
+    @Query("select o from OutboxEvent o where o.status = ar.edu.uade.catalogue.model.OutboxEvent.Status.PENDING "
+            + "and o.aggregateKey = :key and o.nextAttemptAt > :now order by o.id")
+    List<OutboxEvent> findInBackoff(@Param("key") String key, @Param("now") LocalDateTime now);
+
+    long countByStatus(Status status);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxEvent o set o.status = ar.edu.uade.catalogue.model.OutboxEvent.Status.SENT, o.sentAt = :sentAt where o.id in :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    // Snapshots reemplazados por uno posterior: se cierran como enviados sin haber salido
+    @Transactional
+    @Modifying
+    @Query("update OutboxEvent o set o.status = ar.edu.uade.catalogue.model.OutboxEvent.Status.SENT, o.coalesced = true, o.sentAt = :sentAt where o.id in :ids")
+    int markCoalesced(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OutboxEvent o where o.status = ar.edu.uade.catalogue.model.OutboxEvent.Status.SENT and o.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
@@ -1,9 +1,15 @@
 package ar.edu.uade.catalogue.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import ar.edu.uade.catalogue.model.Product;
 
@@ -13,4 +19,21 @@ public interface ProductRepository  extends JpaRepository<Product,Integer>{
     public Optional<Product> findByProductCode(Integer id);
 
     public Optional<Product> findByName(String name);
+
+    // Carga en una sola consulta para operaciones masivas
+    public List<Product> findByProductCodeIn(Collection<Integer> productCodes);
+
+    public List<Product> findByNameIn(Collection<String> names);
+
+    // UPDATE puntual de stock sin cargar la entidad (usado por flash sale)
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Product p set p.stock = :stock where p.productCode = :productCode")
+    int updateStockByProductCode(@Param("productCode") Integer productCode, @Param("stock") int stock);
+
+    // Ajuste relativo: compensa un cambio de flash sale que llegó después de que la venta cerrara
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Product p set p.stock = p.stock + :delta where p.productCode = :productCode")
+    int addStockByProductCode(@Param("productCode") Integer productCode, @Param("delta") int delta);
 }
@@ -0,0 +1,39 @@
+package ar.edu.uade.catalogue.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import ar.edu.uade.catalogue.model.Promotion;
+import ar.edu.uade.catalogue.model.Promotion.Status;
+
+@Repository
+public interface PromotionRepository extends JpaRepository<Promotion, Long> {
+
+    List<Promotion> findByStatusIn(Collection<Status> statuses);
+
+    // Transición condicional: devuelve 1 sólo para la instancia que gana el cambio de estado
+    default int transition(Long id, Status from, Status to) {
+        return transition(id, from, to, LocalDateTime.now());
+    }
+
+    // updated_at marca cuándo se tomó el estado: con eso se detecta una toma abandonada
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Promotion p set p.status = :to, p.updatedAt = :now where p.id = :id and p.status = :from")
+    int transition(@Param("id") Long id, @Param("from") Status from, @Param("to") Status to, @Param("now") LocalDateTime now);
+
+    // Libera las tomas (ACTIVATING/ENDING) de una instancia que se cayó a mitad de la transición
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Promotion p set p.status = :to, p.updatedAt = :now where p.status = :from and p.updatedAt < :claimedBefore")
+    int releaseStale(@Param("from") Status from, @Param("to") Status to,
+                     @Param("claimedBefore") LocalDateTime claimedBefore, @Param("now") LocalDateTime now);
+}
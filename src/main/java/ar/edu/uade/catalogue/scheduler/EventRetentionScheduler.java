@@ -0,0 +1,84 @@
+package ar.edu.uade.catalogue.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Retención de la tabla event: los días anteriores a retention-days se resumen en event_rollup
+ * (un conteo por día y tipo) y se borran. Corte en el inicio del día, así cada día se resume una sola vez.
+ * Se avanza un día por vez, cada uno en su propia transacción corta: una purga atrasada no deja un
+ * DELETE enorme reteniendo locks ni un rollback que rehaga todo; el próximo día con eventos sale del
+ * índice por timestamp, así los días vacíos no cuestan.
+ */
+@Component
+@EnableScheduling
+public class EventRetentionScheduler {
+    private static final Logger log = LoggerFactory.getLogger(EventRetentionScheduler.class);
+
+    private static final String SQL_ROLLUP =
+            "INSERT INTO event_rollup (event_day, event_type, total) "
+            + "SELECT CAST(timestamp AS DATE), type, COUNT(*) FROM event WHERE timestamp >= ? AND timestamp < ? "
+            + "GROUP BY CAST(timestamp AS DATE), type";
+    private static final String SQL_DELETE = "DELETE FROM event WHERE timestamp >= ? AND timestamp < ?";
+    private static final String SQL_OLDEST = "SELECT MIN(timestamp) FROM event WHERE timestamp < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${events.retention.enabled:true}")
+    private boolean enabled;
+    @Value("${events.retention.days:30}")
+    private int retentionDays;
+
+    public EventRetentionScheduler(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /** Devuelve cuántos eventos se depuraron. */
+    @Scheduled(cron = "${events.retention.cron:0 30 3 * * *}")
+    public int rollup() {
+        if (!enabled) return 0;
+        LocalDateTime cutoff = LocalDate.now().minusDays(retentionDays).atStartOfDay();
+        int total = 0;
+        int days = 0;
+        LocalDateTime oldest;
+        while ((oldest = oldestBefore(cutoff)) != null) {
+            LocalDateTime from = oldest.toLocalDate().atStartOfDay();
+            LocalDateTime to = from.plusDays(1).isAfter(cutoff) ? cutoff : from.plusDays(1);
+            int rows = rollupDay(Timestamp.valueOf(from), Timestamp.valueOf(to));
+            // Nada borrado (otra instancia ganó el día): se corta en vez de volver a leer el mismo día
+            if (rows == 0) break;
+            total += rows;
+            days++;
+        }
+        if (total > 0) log.info("[Journal] Depurados {} eventos anteriores a {} en {} días", total, cutoff, days);
+        return total;
+    }
+
+    private LocalDateTime oldestBefore(LocalDateTime cutoff) {
+        Timestamp oldest = jdbcTemplate.queryForObject(SQL_OLDEST, Timestamp.class, Timestamp.valueOf(cutoff));
+        return oldest == null ? null : oldest.toLocalDateTime();
+    }
+
+    // Resumen y borrado de un día en la misma transacción: no se cuenta dos veces ni se pierde un día
+    private int rollupDay(Timestamp from, Timestamp to) {
+        Integer deleted = transactionTemplate.execute(status -> {
+            int groups = jdbcTemplate.update(SQL_ROLLUP, from, to);
+            int rows = jdbcTemplate.update(SQL_DELETE, from, to);
+            log.debug("[Journal] Día {}: {} eventos en {} filas de resumen", from.toLocalDateTime().toLocalDate(), rows, groups);
+            return rows;
+        });
+        return deleted == null ? 0 : deleted;
+    }
+}
@@ -0,0 +1,139 @@
+package ar.edu.uade.catalogue.scheduler;
+
+import ar.edu.uade.catalogue.messaging.WorkerThreads;
+import ar.edu.uade.catalogue.model.Promotion;
+import ar.edu.uade.catalogue.model.Promotion.Status;
+import ar.edu.uade.catalogue.service.PromotionService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timer de promociones: una DelayQueue con los próximos inicios/fines y un hilo que la drena
+ * y delega cada disparo a un pool chico (una promo de 10k SKUs no demora a las demás).
+ * El reload periódico (también al arrancar) recupera promociones creadas en otras instancias, que
+ * fallaron o que quedaron tomadas por una instancia caída.
+ */
+@Component
+@EnableScheduling
+public class PromotionScheduler {
+    private static final Logger log = LoggerFactory.getLogger(PromotionScheduler.class);
+
+    enum Action { START, END }
+
+    record Firing(Long promotionId, Action action, long fireAtMs) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(fireAtMs - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(fireAtMs, ((Firing) o).fireAtMs);
+        }
+
+        String key() { return promotionId + ":" + action; }
+    }
+
+    private final PromotionService promotionService;
+    private final DelayQueue<Firing> queue = new DelayQueue<>();
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final ExecutorService workers;
+    private volatile Thread timer;
+
+    @Value("${inventario.promotions.enabled:true}")
+    private boolean enabled;
+
+    public PromotionScheduler(PromotionService promotionService,
+                              @Value("${inventario.promotions.workers:2}") int workerCount,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.promotionService = promotionService;
+        this.workers = WorkerThreads.pool("promotion-worker", workerCount, virtualThreads);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        timer = new Thread(this::loop, "promotion-timer");
+        timer.setDaemon(true);
+        timer.start();
+        reload();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread t = timer;
+        timer = null;
+        if (t != null) t.interrupt();
+        workers.shutdownNow();
+    }
+
+    /** Encola el próximo disparo de la promoción según su estado. */
+    public void schedule(Promotion promotion) {
+        if (promotion.getStatus() == Status.SCHEDULED) {
+            enqueue(promotion.getId(), Action.START, promotion.getStartAt());
+        } else if (promotion.getStatus() == Status.ACTIVE && promotion.getEndAt() != null) {
+            enqueue(promotion.getId(), Action.END, promotion.getEndAt());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventario.promotions.reload.ms:60000}", initialDelayString = "${inventario.promotions.reload.ms:60000}")
+    public void reload() {
+        if (!enabled || timer == null) return;
+        try {
+            promotionService.releaseStaleClaims();
+            promotionService.getPending().forEach(this::schedule);
+        } catch (Exception e) {
+            log.warn("[Promo] No se pudieron recargar promociones: {}", e.toString());
+        }
+    }
+
+    private void enqueue(Long id, Action action, LocalDateTime at) {
+        Firing firing = new Firing(id, action, at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        if (queued.add(firing.key())) queue.put(firing);
+    }
+
+    private void loop() {
+        while (timer != null) {
+            try {
+                Firing firing = queue.take();
+                workers.execute(() -> fire(firing));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void fire(Firing firing) {
+        try {
+            if (firing.action() == Action.START) {
+                if (promotionService.activate(firing.promotionId())) {
+                    schedule(promotionService.getById(firing.promotionId()));
+                }
+            } else {
+                promotionService.finish(firing.promotionId(), Status.ENDED);
+            }
+        } catch (Exception e) {
+            log.error("[Promo] Error en disparo {} id={}: {}", firing.action(), firing.promotionId(), e.toString());
+        } finally {
+            // Se libera después de procesar: si falló, el reload la vuelve a encolar
+            queued.remove(firing.key());
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package ar.edu.uade.catalogue.scheduler;
 
-import ar.edu.uade.catalogue.model.ConsumedEventLog;
+import ar.edu.uade.catalogue.messaging.AckDispatcher;
+import ar.edu.uade.catalogue.messaging.MiddlewareRetryQueue;
+import ar.edu.uade.catalogue.messaging.SalesEventsListener;
 import ar.edu.uade.catalogue.model.ConsumedEventLog.Status;
-import ar.edu.uade.catalogue.repository.ConsumedEventLogRepository;
-import ar.edu.uade.catalogue.messaging.CoreApiClient;
+import ar.edu.uade.catalogue.repository.ConsumedEventLogWriter;
+import ar.edu.uade.catalogue.repository.ConsumedEventLogWriter.Due;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,61 +16,100 @@ import org.springframework.stereotype.Component;
 import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * Motor de reintentos de consumed_event_log. Cada poll lee una página chica de filas con
+ * next_attempt_at vencido (índice por esa columna, así el costo depende de los eventos atrasados y no
+ * del tamaño de la tabla), corre su vencimiento con backoff exponencial por evento y:
+ * <ul>
+ *   <li>PENDING/ERROR: reprocesa el evento guardado por el camino idempotente del consumer.</li>
+ *   <li>PROCESSED sin ACK: lo reencola en el {@link AckDispatcher}. Es el único que reintenta ACKs
+ *   (el dispatcher no los pasa a la cola en memoria), así cada envío suma un solo ack_attempts.</li>
+ * </ul>
+ * Al agotar max-attempts la fila sale del motor (next_attempt_at NULL) y queda en su estado para revisión.
+ */
 @Component
 @EnableScheduling
 public class SalesEventsRetryScheduler {
     private static final Logger log = LoggerFactory.getLogger(SalesEventsRetryScheduler.class);
 
-    private final ConsumedEventLogRepository repo;
-    private final CoreApiClient coreApi;
+    private final ConsumedEventLogWriter logWriter;
+    private final AckDispatcher ackDispatcher;
+    private final SalesEventsListener listener;
 
     @Value("${inventario.retry.enabled:true}")
     private boolean enabled;
     @Value("${inventario.retry.maxAttempts:5}")
     private int maxAttempts;
-    @Value("${inventario.retry.cooldown.ms:1800000}")
-    private long cooldownMs;
+    @Value("${inventario.retry.backoff.ms:60000}")
+    private long backoffMs;
+    @Value("${inventario.retry.max-backoff.ms:21600000}")
+    private long maxBackoffMs;
+    @Value("${inventario.retry.page-size:100}")
+    private int pageSize;
 
-    public SalesEventsRetryScheduler(ConsumedEventLogRepository repo, CoreApiClient coreApi) {
-        this.repo = repo;
-        this.coreApi = coreApi;
+    public SalesEventsRetryScheduler(ConsumedEventLogWriter logWriter, AckDispatcher ackDispatcher, SalesEventsListener listener) {
+        this.logWriter = logWriter;
+        this.ackDispatcher = ackDispatcher;
+        this.listener = listener;
     }
 
-    @Scheduled(cron = "${inventario.retry.cron:0 0 */6 * * *}")
-    public void retryLoop() {
-        if (!enabled) return;
-        LocalDateTime threshold = LocalDateTime.now().minusNanos(cooldownMs * 1_000_000);
-
-        // Reintentar ACKs pendientes
-        List<ConsumedEventLog> processed = repo.findByStatus(Status.PROCESSED);
-        for (ConsumedEventLog cel : processed) {
-            if (!Boolean.TRUE.equals(cel.getAckSent()) && cel.getAckAttempts() < maxAttempts) {
-                try {
-                    coreApi.ackEvent(cel.getEventId());
-                    cel.setAckSent(true);
-                    cel.setAckAttempts(cel.getAckAttempts() + 1);
-                    cel.setAckLastError(null);
-                    cel.setAckLastAt(LocalDateTime.now());
-                    repo.save(cel);
-                } catch (Exception e) {
-                    cel.setAckAttempts(cel.getAckAttempts() + 1);
-                    cel.setAckLastError(e.toString());
-                    cel.setAckLastAt(LocalDateTime.now());
-                    repo.save(cel);
-                }
+    /** Un poll: devuelve cuántas filas se reintentaron. */
+    @Scheduled(fixedDelayString = "${inventario.retry.poll.ms:5000}")
+    public int retryLoop() {
+        if (!enabled) return 0;
+        LocalDateTime now = LocalDateTime.now();
+        List<Due> due;
+        try {
+            due = logWriter.due(now, pageSize);
+        } catch (Exception e) {
+            log.warn("[Retry] No se pudo leer consumed_event_log: {}", e.toString());
+            return 0;
+        }
+        int retried = 0;
+        for (Due row : due) {
+            try {
+                if (retry(row, now)) retried++;
+            } catch (Exception e) {
+                log.warn("[Retry] Falló el reintento de eventId={}: {}", row.eventId(), e.toString());
             }
         }
+        if (retried > 0) log.info("[Retry] {} eventos reintentados de {} vencidos", retried, due.size());
+        return retried;
+    }
 
-        // Reprocesar PENDING/ERROR con cooldown y límite
-        for (Status st : new Status[]{Status.PENDING, Status.ERROR}) {
-            List<ConsumedEventLog> list = repo.findByStatusAndUpdatedAtBefore(st, threshold);
-            for (ConsumedEventLog cel : list) {
-                if (cel.getAttempts() >= maxAttempts) continue;
-                // no re-procesamos el negocio aquí para evitar duplicados; nos apoyamos en el retry del consumer.
-                // Podemos intentar sólo ACK si ya estaba PROCESSED (no aplica en estos estados)
-                log.debug("[Retry] Evento {} en estado {} aún pendiente, attempts={}", cel.getEventId(), st, cel.getAttempts());
+    private boolean retry(Due row, LocalDateTime now) {
+        if (row.status() == Status.PROCESSED) {
+            if (row.ackSent()) {
+                logWriter.reschedule(row, null);
+                return false;
             }
+            if (row.ackAttempts() >= maxAttempts) {
+                log.warn("[Retry] ACK de eventId={} abandonado tras {} intentos", row.eventId(), row.ackAttempts());
+                logWriter.reschedule(row, null);
+                return false;
+            }
+            // El lease va antes del intento: si el proceso se cae, la fila vuelve a vencer sola
+            if (!logWriter.reschedule(row, nextAttempt(now, row.ackAttempts()))) return false;
+            ackDispatcher.submit(row.eventId());
+            return true;
+        }
+
+        if (row.attempts() >= maxAttempts) {
+            log.warn("[Retry] eventId={} queda en {} tras {} intentos, sin más reintentos", row.eventId(), row.status(), row.attempts());
+            logWriter.reschedule(row, null);
+            return false;
+        }
+        if (row.payloadJson() == null) {
+            log.warn("[Retry] eventId={} en {} sin payload guardado: no se puede reprocesar", row.eventId(), row.status());
+            logWriter.reschedule(row, null);
+            return false;
         }
+        if (!logWriter.reschedule(row, nextAttempt(now, row.attempts()))) return false;
+        listener.redrive(row.topic(), row.partition(), row.offset(), row.payloadJson());
+        return true;
     }
-}
 
+    private LocalDateTime nextAttempt(LocalDateTime now, int attempts) {
+        return now.plusNanos(MiddlewareRetryQueue.backoff(backoffMs, maxBackoffMs, attempts + 1) * 1_000_000);
+    }
+}
@@ -7,6 +7,7 @@ import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import ar.edu.uade.catalogue.model.Brand;
 import ar.edu.uade.catalogue.model.Event;
@@ -78,6 +79,7 @@ public class BrandService {
         brandRepository.save(brandToUpdate);
     }
     
+    @Transactional
     public Brand createBrand(BrandDTO brandDTO){
         if (brandDTO.getBrandCode() == null) {
             throw new IllegalArgumentException("brandCode es requerido para crear marca");
@@ -102,6 +104,7 @@ public class BrandService {
     }
 
     // Nuevo: activar marca por brandCode
+    @Transactional
     public Brand activateBrandByCode(Integer brandCode) {
         Brand brand = brandRepository.findByBrandCode(brandCode)
             .orElseThrow(() -> new EmptyResultDataAccessException("Marca no encontrada brandCode=" + brandCode, 1));
@@ -117,6 +120,7 @@ public class BrandService {
     }
 
     // Cambiado: desactivar por brandCode (ya no por id)
+    @Transactional
     public boolean deleteBrandByCode(Integer brandCode){
         try{
             Brand brandToDeactivate = brandRepository.findByBrandCode(brandCode)
@@ -137,6 +141,7 @@ public class BrandService {
     }
 
     // Método legacy por id (se mantiene por compatibilidad, pero preferir deleteBrandByCode)
+    @Transactional
     public boolean deleteBrand(Integer id){
         try{
             Optional<Brand> brandOptional = brandRepository.findById(id);
@@ -7,6 +7,7 @@ import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import ar.edu.uade.catalogue.model.Category;
 import ar.edu.uade.catalogue.model.Event;
@@ -79,6 +80,7 @@ public class CategoryService {
         return out;
     }
 
+    @Transactional
     public Category createCategory(CategoryDTO categoryDTO){
         if (categoryDTO.getCategoryCode() == null) {
             throw new IllegalArgumentException("categoryCode es requerido para crear categoría");
@@ -105,6 +107,7 @@ public class CategoryService {
     public void addProductToCategories(Integer productCode, List<Integer>categories){
         // Método legacy por IDs internos
         if (categories == null) return;
+        boolean updated = false;
         for(Integer id : categories){
             Optional<Category> categoryOptinal = categoryRepository.findById(id);
             if (categoryOptinal.isEmpty()) continue;
@@ -117,11 +120,15 @@ public class CategoryService {
             if (!prodcutsFromCategory.contains(productCode)) {
                 prodcutsFromCategory.add(productCode);
             }
+            categoryRepository.save(c);
+            updated = true;
+        }
+        // Un solo evento con la lista completa (antes salía uno idéntico por categoría)
+        if (updated) {
             Event eventSent = kafkaMockService.sendEvent
             ("PATCH: producto " + productCode +
              " agregado a las categorias: + " + categories.toString() , categories);
             System.out.println(eventSent.toString());
-            categoryRepository.save(c);
         }
 
     }
@@ -139,6 +146,7 @@ public class CategoryService {
         }
     }
 
+    @Transactional
     public boolean deleteCategory(Integer id){
         try{
             Optional<Category> categoryOptional = categoryRepository.findById(id);
@@ -159,6 +167,7 @@ public class CategoryService {
     }
 
     // Nuevo: baja lógica por category_code
+    @Transactional
     public boolean deleteCategoryByCode(Integer categoryCode){
         try{
             Category categoryToDeactivate = categoryRepository.findByCategoryCode(categoryCode)
@@ -177,6 +186,7 @@ public class CategoryService {
     }
 
     // Nuevo: activar categoría por categoryCode
+    @Transactional
     public Category activateCategoryByCode(Integer categoryCode) {
         Category category = categoryRepository.findByCategoryCode(categoryCode)
             .orElseThrow(() -> new EmptyResultDataAccessException("Categoría no encontrada categoryCode=" + categoryCode, 1));
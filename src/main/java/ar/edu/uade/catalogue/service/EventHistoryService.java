@@ -0,0 +1,104 @@
+package ar.edu.uade.catalogue.service;
+
+import ar.edu.uade.catalogue.messaging.EventTypeNormalizer;
+import ar.edu.uade.catalogue.model.Event;
+import ar.edu.uade.catalogue.repository.EventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Historial de la tabla event sin cargar payloads: las búsquedas devuelven sólo las columnas
+ * indexadas, paginadas por keyset (id descendente, cursor = último id de la página). El payload
+ * se pide aparte por id.
+ */
+@Service
+public class EventHistoryService {
+
+    public record EventSummary(Integer id, String type, String normalizedType, String entityType,
+                               Integer entityCode, LocalDateTime timestamp, String originModule) {}
+
+    public record EventPage(List<EventSummary> items, Integer nextCursor) {}
+
+    private static final String SQL_SELECT =
+            "SELECT id, type, normalized_type, entity_type, entity_code, timestamp, origin FROM event WHERE 1 = 1";
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final EventRepository eventRepository;
+
+    @Value("${events.history.max-page-size:500}")
+    private int maxPageSize;
+
+    public EventHistoryService(NamedParameterJdbcTemplate namedJdbcTemplate, EventRepository eventRepository) {
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.eventRepository = eventRepository;
+    }
+
+    public EventPage search(String entityType, Integer entityCode, String type, LocalDateTime from,
+                            LocalDateTime to, Integer before, int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("limit debe ser mayor a 0");
+        // entity_code sin entity_type no usa el índice (entity_type, entity_code, id)
+        if (entityCode != null && (entityType == null || entityType.isBlank())) {
+            throw new IllegalArgumentException("entityCode requiere entityType");
+        }
+        int pageSize = Math.min(limit, maxPageSize);
+
+        StringBuilder sql = new StringBuilder(SQL_SELECT);
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        if (entityType != null && !entityType.isBlank()) {
+            sql.append(" AND entity_type = :entityType");
+            params.addValue("entityType", entityType.trim().toLowerCase());
+        }
+        if (entityCode != null) {
+            sql.append(" AND entity_code = :entityCode");
+            params.addValue("entityCode", entityCode);
+        }
+        if (type != null && !type.isBlank()) {
+            sql.append(" AND normalized_type = :type");
+            params.addValue("type", EventTypeNormalizer.normalize(type));
+        }
+        if (from != null) {
+            sql.append(" AND timestamp >= :from");
+            params.addValue("from", Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND timestamp < :to");
+            params.addValue("to", Timestamp.valueOf(to));
+        }
+        if (before != null) {
+            sql.append(" AND id < :before");
+            params.addValue("before", before);
+        }
+        // Una fila de más indica si hay página siguiente
+        sql.append(" ORDER BY id DESC LIMIT :limit");
+        params.addValue("limit", pageSize + 1);
+
+        List<EventSummary> rows = namedJdbcTemplate.query(sql.toString(), params, (rs, i) -> {
+            Timestamp ts = rs.getTimestamp("timestamp");
+            return new EventSummary(rs.getInt("id"), rs.getString("type"), rs.getString("normalized_type"),
+                    rs.getString("entity_type"), (Integer) rs.getObject("entity_code", Integer.class),
+                    ts == null ? null : ts.toLocalDateTime(), rs.getString("origin"));
+        });
+        if (rows.size() <= pageSize) return new EventPage(rows, null);
+        List<EventSummary> page = rows.subList(0, pageSize);
+        return new EventPage(List.copyOf(page), page.get(pageSize - 1).id());
+    }
+
+    /** Evento completo (con payload). */
+    public Event getById(Integer id) {
+        return eventRepository.findById(id).orElseThrow(() -> new EmptyResultDataAccessException(1));
+    }
+
+    /** Últimos eventos completos, acotados a max-page-size (reemplaza el findAll sin límite). */
+    public List<Event> latest() {
+        return eventRepository.findAll(PageRequest.of(0, maxPageSize, Sort.by(Sort.Direction.DESC, "id"))).getContent();
+    }
+}
@@ -0,0 +1,220 @@
+package ar.edu.uade.catalogue.service;
+
+import ar.edu.uade.catalogue.model.Event;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Journal append-only de la tabla event. Los requests dejan el evento en un ring buffer sin locks
+ * (varios productores, un único escritor) y el hilo "event-journal" lo vacía en INSERTs multi-fila.
+ * Durabilidad configurable: ASYNC vuelve enseguida (un crash pierde lo que estaba en el buffer);
+ * SYNC espera a que el lote que contiene el evento quede escrito. Con el buffer lleno el evento se
+ * escribe en el hilo del llamador: se pierde el batching, no el evento.
+ */
+@Component
+@ConditionalOnProperty(name = "events.journal.enabled", havingValue = "true", matchIfMissing = true)
+public class EventJournal {
+    private static final Logger log = LoggerFactory.getLogger(EventJournal.class);
+
+    public enum Durability { ASYNC, SYNC }
+
+    private record Entry(Event event, CompletableFuture<Void> flushed) {}
+
+    private static final String SQL_INSERT =
+            "INSERT INTO event (type, payload, timestamp, origin, normalized_type, entity_type, entity_code) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 7;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Durability durability;
+    private final long syncTimeoutMs;
+
+    // claim: próxima secuencia a reservar por un productor; consumed: próxima a leer por el escritor
+    private final AtomicLong claim = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private volatile boolean running;
+    private Thread writer;
+
+    public EventJournal(JdbcTemplate jdbcTemplate,
+                        @Value("${events.journal.capacity:8192}") int capacity,
+                        @Value("${events.journal.batch-size:500}") int batchSize,
+                        @Value("${events.journal.flush-interval.ms:50}") long flushIntervalMs,
+                        @Value("${events.journal.durability:ASYNC}") Durability durability,
+                        @Value("${events.journal.sync-timeout.ms:5000}") long syncTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Potencia de dos: el índice del slot sale con una máscara
+        int size = Math.max(2, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMs));
+        this.durability = durability;
+        this.syncTimeoutMs = syncTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::writeLoop, "event-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (writer == null) return;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public void append(Event event) {
+        Entry entry = new Entry(event, durability == Durability.SYNC ? new CompletableFuture<>() : null);
+        if (!offer(entry)) {
+            log.warn("[Journal] Buffer lleno ({} slots), escritura directa type='{}'", mask + 1, event.getType());
+            insert(List.of(event));
+            return;
+        }
+        if (entry.flushed() == null) return;
+        if (writer != null) LockSupport.unpark(writer);
+        try {
+            entry.flushed().get(syncTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("No se pudo registrar el evento " + event.getType(), e.getCause());
+        } catch (TimeoutException e) {
+            log.warn("[Journal] Timeout esperando el flush de type='{}' ({} ms)", event.getType(), syncTimeoutMs);
+        }
+    }
+
+    /** Vacía el buffer en el hilo llamador; devuelve cuántos eventos se escribieron. */
+    public int flush() {
+        int total = 0;
+        for (int n = drainOnce(); n > 0; n = drainOnce()) total += n;
+        return total;
+    }
+
+    public long pending() {
+        return claim.get() - consumed.get();
+    }
+
+    public long written() {
+        return written.get();
+    }
+
+    public long failed() {
+        return failed.get();
+    }
+
+    private boolean offer(Entry entry) {
+        long seq;
+        do {
+            seq = claim.get();
+            if (seq - consumed.get() > mask) return false;
+        } while (!claim.compareAndSet(seq, seq + 1));
+        slots.set((int) (seq & mask), entry);
+        return true;
+    }
+
+    private void writeLoop() {
+        while (running) {
+            try {
+                if (drainOnce() == 0) LockSupport.parkNanos(flushIntervalNanos);
+            } catch (Exception e) {
+                log.error("[Journal] Error en el escritor: {}", e.toString());
+            }
+        }
+    }
+
+    // Un solo lector a la vez: el hilo escritor y flush() en el apagado. Lock y no synchronized porque
+    // el INSERT corre con el lock tomado (un virtual thread en synchronized no libera su carrier)
+    private int drainOnce() {
+        drainLock.lock();
+        try {
+            List<Entry> batch = new ArrayList<>(Math.min(batchSize, mask + 1));
+            long next = consumed.get();
+            while (batch.size() < batchSize) {
+                int i = (int) (next & mask);
+                Entry entry = slots.get(i);
+                // null: slot reservado pero todavía no publicado; se retoma en la próxima pasada
+                if (entry == null) break;
+                slots.set(i, null);
+                batch.add(entry);
+                next++;
+            }
+            if (batch.isEmpty()) return 0;
+            consumed.set(next);
+
+            List<Event> events = new ArrayList<>(batch.size());
+            for (Entry entry : batch) events.add(entry.event());
+            RuntimeException error = null;
+            try {
+                insert(events);
+            } catch (RuntimeException e) {
+                error = e;
+                failed.addAndGet(events.size());
+                log.error("[Journal] Se perdieron {} eventos: {}", events.size(), e.toString());
+            }
+            for (Entry entry : batch) {
+                if (entry.flushed() == null) continue;
+                if (error == null) entry.flushed().complete(null);
+                else entry.flushed().completeExceptionally(error);
+            }
+            return batch.size();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void insert(List<Event> events) {
+        StringBuilder sql = new StringBuilder(SQL_INSERT.length() + events.size() * (ROW.length() + 2)).append(SQL_INSERT);
+        Object[] args = new Object[events.size() * COLUMNS];
+        int a = 0;
+        for (int i = 0; i < events.size(); i++) {
+            Event e = events.get(i);
+            if (i > 0) sql.append(", ");
+            sql.append(ROW);
+            args[a++] = e.getType();
+            args[a++] = e.getPayload();
+            args[a++] = e.getTimestamp() == null ? null : Timestamp.valueOf(e.getTimestamp());
+            args[a++] = e.getOriginModule();
+            args[a++] = e.getNormalizedType();
+            args[a++] = e.getEntityType();
+            args[a++] = e.getEntityCode();
+        }
+        jdbcTemplate.update(sql.toString(), args);
+        written.addAndGet(events.size());
+    }
+}
@@ -0,0 +1,469 @@
+package ar.edu.uade.catalogue.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import ar.edu.uade.catalogue.model.Product;
+import ar.edu.uade.catalogue.repository.ProductRepository;
+
+/**
+ * Modo "flash sale": mientras está activo para un productCode, el stock vive en N sub-contadores
+ * en memoria y los descuentos se reparten entre ellos, evitando el lock sobre la fila de product.
+ * El total se persiste periódicamente (un único UPDATE por producto) y al cerrar la venta. Ningún
+ * lock queda tomado durante un acceso a la base: cada contador toma bajo su propio lock una foto
+ * estable del total y escribe afuera; el cierre espera a que termine la escritura periódica en curso
+ * para que el total final sea siempre el último en llegar a product.stock.
+ */
+@Service
+public class FlashSaleStockService {
+    private static final Logger log = LoggerFactory.getLogger(FlashSaleStockService.class);
+
+    public record FlashSaleStatus(Integer productCode, int stripes, int stock, List<Integer> stripeStock) {}
+
+    private final ProductRepository productRepository;
+    private final ConcurrentHashMap<Integer, StripedStock> active = new ConcurrentHashMap<>();
+
+    @Value("${inventario.flash-sale.default-stripes:8}")
+    private int defaultStripes;
+
+    @Value("${inventario.flash-sale.max-stripes:64}")
+    private int maxStripes;
+
+    public FlashSaleStockService(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    public boolean isActive(Integer productCode) {
+        return productCode != null && active.containsKey(productCode);
+    }
+
+    public FlashSaleStatus start(Integer productCode, Integer stripes) {
+        if (active.containsKey(productCode)) {
+            throw new IllegalStateException("La flash sale ya estaba activa para productCode=" + productCode);
+        }
+        Product product = productRepository.findByProductCode(productCode)
+            .orElseThrow(() -> new EmptyResultDataAccessException("Producto no encontrado para productCode=" + productCode, 1));
+        int n = stripes == null ? defaultStripes : stripes;
+        if (n < 1 || n > maxStripes) throw new IllegalArgumentException("stripes debe estar entre 1 y " + maxStripes);
+
+        StripedStock counter = new StripedStock(n, product.getStock());
+        if (active.putIfAbsent(productCode, counter) != null) {
+            throw new IllegalStateException("La flash sale ya estaba activa para productCode=" + productCode);
+        }
+        log.info("[FlashSale] Activada productCode={} stripes={} stock={}", productCode, n, product.getStock());
+        return status(productCode, counter);
+    }
+
+    /**
+     * Cierra la flash sale: espera a que terminen las operaciones en curso (y la escritura periódica,
+     * si hay una), consolida los sub-contadores en un único valor y lo persiste en product.stock.
+     * Mientras tanto las operaciones sobre el producto esperan sin girar a que el contador se suelte.
+     */
+    public FlashSaleStatus end(Integer productCode) {
+        StripedStock counter = active.get(productCode);
+        Integer total = counter == null ? null : counter.close();
+        if (total == null) {
+            throw new IllegalStateException("No hay flash sale activa para productCode=" + productCode);
+        }
+        try {
+            productRepository.updateStockByProductCode(productCode, total);
+        } catch (RuntimeException e) {
+            // Sin persistir no se puede soltar el contador: se reabre y la venta sigue activa
+            counter.reopen(total);
+            throw e;
+        }
+        active.remove(productCode, counter);
+        counter.release();
+        log.info("[FlashSale] Finalizada productCode={} stockFinal={}", productCode, total);
+        return new FlashSaleStatus(productCode, counter.size(), total, List.of());
+    }
+
+    public FlashSaleStatus getStatus(Integer productCode) {
+        StripedStock counter = active.get(productCode);
+        if (counter == null) {
+            throw new EmptyResultDataAccessException("No hay flash sale activa para productCode=" + productCode, 1);
+        }
+        return status(productCode, counter);
+    }
+
+    public List<FlashSaleStatus> getAll() {
+        List<FlashSaleStatus> out = new ArrayList<>();
+        active.forEach((code, counter) -> out.add(status(code, counter)));
+        return out;
+    }
+
+    /** Stock vigente si el producto está en flash sale; null en caso contrario. */
+    public Integer currentStock(Integer productCode) {
+        if (productCode == null) return null;
+        StripedStock counter = active.get(productCode);
+        return counter == null ? null : counter.sum();
+    }
+
+    /** Aplica el stock vivo de la flash sale sobre el producto leído (si corresponde). */
+    public void applyLiveStock(Product product) {
+        if (product == null || active.isEmpty()) return;
+        Integer live = currentStock(product.getProductCode());
+        if (live != null) product.setStock(live);
+    }
+
+    /**
+     * Descuenta stock de un producto en flash sale.
+     * @return stock resultante, o null si el producto no está (o dejó de estar) en flash sale
+     * @throws IllegalArgumentException si no hay stock suficiente
+     */
+    public Integer decrement(Integer productCode, int amount) {
+        StripedStock counter = acquire(productCode);
+        if (counter == null) return null;
+        try {
+            if (!counter.take(amount)) {
+                throw new IllegalArgumentException("Stock no puede ser negativo");
+            }
+            return counter.sum();
+        } finally {
+            counter.inFlight.decrement();
+        }
+    }
+
+    /** Repone stock en un sub-contador al azar. Devuelve null si el producto no está en flash sale. */
+    public Integer increment(Integer productCode, int amount) {
+        StripedStock counter = acquire(productCode);
+        if (counter == null) return null;
+        try {
+            counter.add(amount);
+            return counter.sum();
+        } finally {
+            counter.inFlight.decrement();
+        }
+    }
+
+    /**
+     * {@link #decrement} dentro de la transacción en curso: si hace rollback las unidades vuelven al
+     * contador, igual que vuelven las filas de la base. Sin transacción es un decrement común.
+     */
+    public Integer decrementTransactional(Integer productCode, int amount) {
+        Integer live = decrement(productCode, amount);
+        if (live != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) restore(productCode, amount);
+                }
+            });
+        }
+        return live;
+    }
+
+    /**
+     * Reposición diferida: con una transacción en curso se aplica al contador recién en el commit (un
+     * rollback no deja stock repuesto en memoria). Devuelve false si el producto no está en flash sale.
+     */
+    public boolean incrementAfterCommit(Integer productCode, int amount) {
+        if (!isActive(productCode)) return false;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            restore(productCode, amount);
+            return true;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                restore(productCode, amount);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Stock absoluto diferido: con una transacción en curso se fija al confirmarla (un chunk que hace
+     * rollback no deja el contador con el valor nuevo). Devuelve false si el producto no está en flash sale.
+     */
+    public boolean setAfterCommit(Integer productCode, int newStock) {
+        if (!isActive(productCode)) return false;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            overwrite(productCode, newStock);
+            return true;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                overwrite(productCode, newStock);
+            }
+        });
+        return true;
+    }
+
+    private void overwrite(Integer productCode, int newStock) {
+        try {
+            if (set(productCode, newStock) == null) productRepository.updateStockByProductCode(productCode, newStock);
+        } catch (Exception e) {
+            log.error("[FlashSale] No se pudo fijar stock={} en productCode={}: {}", newStock, productCode, e.toString());
+        }
+    }
+
+    // Si la venta cerró entre medio, el total ya se persistió: el ajuste va directo a product.stock
+    private void restore(Integer productCode, int amount) {
+        try {
+            if (increment(productCode, amount) == null) productRepository.addStockByProductCode(productCode, amount);
+        } catch (Exception e) {
+            log.error("[FlashSale] No se pudo reponer {} unidades de productCode={}: {}", amount, productCode, e.toString());
+        }
+    }
+
+    /** Fija un stock absoluto redistribuyéndolo entre los sub-contadores. */
+    public Integer set(Integer productCode, int newStock) {
+        StripedStock counter = acquire(productCode);
+        if (counter == null) return null;
+        try {
+            counter.reset(newStock);
+            return newStock;
+        } finally {
+            counter.inFlight.decrement();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventario.flash-sale.flush.ms:1000}")
+    public void flush() {
+        if (active.isEmpty()) return;
+        active.forEach((code, counter) -> {
+            if (counter.closed) return;
+            if (counter.isSkewed()) counter.rebalance();
+            // Foto bajo el lock del contador, UPDATE afuera: end() espera esta escritura antes de la suya
+            Integer total = counter.beginFlush();
+            if (total == null) return;
+            boolean persisted = false;
+            try {
+                productRepository.updateStockByProductCode(code, total);
+                persisted = true;
+            } catch (Exception e) {
+                log.warn("[FlashSale] No se pudo persistir stock productCode={}: {}", code, e.toString());
+            } finally {
+                counter.endFlush(total, persisted);
+            }
+        });
+    }
+
+    private StripedStock acquire(Integer productCode) {
+        if (productCode == null) return null;
+        while (true) {
+            StripedStock counter = active.get(productCode);
+            if (counter == null) return null;
+            counter.inFlight.increment();
+            if (!counter.closed) return counter;
+            counter.inFlight.decrement();
+            // end() en curso: se espera (estacionado) a que persista el total y suelte o reabra el contador
+            counter.awaitSettled(() -> active.get(productCode) == counter);
+        }
+    }
+
+    private FlashSaleStatus status(Integer productCode, StripedStock counter) {
+        return new FlashSaleStatus(productCode, counter.size(), counter.sum(), counter.snapshot());
+    }
+
+    static final class StripedStock {
+        private final AtomicIntegerArray cells;
+        final LongAdder inFlight = new LongAdder();
+        volatile boolean closed;
+        // Impar mientras se redistribuye; cambia en cada redistribución (estilo seqlock)
+        volatile int epoch;
+        volatile int lastFlushed;
+        // Protege cierre, reapertura y escritura periódica; nunca se tiene tomado durante I/O
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition settled = lock.newCondition();
+        private boolean flushing;
+
+        StripedStock(int stripes, int stock) {
+            this.cells = new AtomicIntegerArray(stripes);
+            this.lastFlushed = stock;
+            spread(stock);
+        }
+
+        int size() { return cells.length(); }
+
+        int sum() {
+            int total = 0;
+            for (int i = 0; i < cells.length(); i++) total += cells.get(i);
+            return total;
+        }
+
+        List<Integer> snapshot() {
+            List<Integer> out = new ArrayList<>(cells.length());
+            for (int i = 0; i < cells.length(); i++) out.add(cells.get(i));
+            return out;
+        }
+
+        void add(int amount) {
+            cells.getAndAdd(ThreadLocalRandom.current().nextInt(cells.length()), amount);
+        }
+
+        /**
+         * Toma {@code amount} unidades empezando por un sub-contador al azar y recorriendo los
+         * hermanos si no alcanza. Si el total disponible no alcanza, devuelve lo tomado.
+         */
+        boolean take(int amount) {
+            while (true) {
+                int seen = epoch;
+                if (tryTake(amount)) return true;
+                // Si hubo una redistribución durante el recorrido, el faltante puede ser transitorio
+                if ((seen & 1) == 0 && seen == epoch) return false;
+                Thread.onSpinWait();
+            }
+        }
+
+        private boolean tryTake(int amount) {
+            int n = cells.length();
+            int start = ThreadLocalRandom.current().nextInt(n);
+            int remaining = amount;
+            int[] taken = null;
+            for (int i = 0; i < n && remaining > 0; i++) {
+                int idx = (start + i) % n;
+                while (true) {
+                    int cur = cells.get(idx);
+                    if (cur <= 0) break;
+                    int t = Math.min(cur, remaining);
+                    if (cells.compareAndSet(idx, cur, cur - t)) {
+                        if (t < amount) {
+                            if (taken == null) taken = new int[n];
+                            taken[idx] += t;
+                        }
+                        remaining -= t;
+                        break;
+                    }
+                }
+            }
+            if (remaining == 0) return true;
+            if (taken != null) {
+                for (int idx = 0; idx < n; idx++) if (taken[idx] > 0) cells.getAndAdd(idx, taken[idx]);
+            }
+            return false;
+        }
+
+        synchronized void reset(int stock) {
+            epoch++;
+            try {
+                drain();
+                spread(stock);
+            } finally {
+                epoch++;
+            }
+        }
+
+        /** Un sub-contador vacío con stock total suficiente indica reparto desparejo. */
+        boolean isSkewed() {
+            int n = cells.length();
+            if (n == 1 || sum() < n) return false;
+            for (int i = 0; i < n; i++) if (cells.get(i) == 0) return true;
+            return false;
+        }
+
+        synchronized void rebalance() {
+            epoch++;
+            try {
+                spread(drain());
+            } finally {
+                epoch++;
+            }
+        }
+
+        /** Marca el contador como cerrándose y devuelve el total; null si ya lo estaba cerrando otro. */
+        Integer close() {
+            lock.lock();
+            try {
+                if (closed) return null;
+                closed = true;
+                // Las operaciones en curso son sólo memoria; una escritura periódica se espera estacionado
+                while (inFlight.sum() != 0) Thread.onSpinWait();
+                while (flushing) settled.awaitUninterruptibly();
+                synchronized (this) {
+                    return drain();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void reopen(int stock) {
+            lock.lock();
+            try {
+                synchronized (this) {
+                    spread(stock);
+                }
+                closed = false;
+                settled.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Despierta a quienes esperaban el cierre (el contador ya no está en el mapa). */
+        void release() {
+            lock.lock();
+            try {
+                settled.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void awaitSettled(BooleanSupplier stillRegistered) {
+            lock.lock();
+            try {
+                while (closed && stillRegistered.getAsBoolean()) settled.awaitUninterruptibly();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Total a persistir, o null si no hay cambios, si el contador se cierra o si ya hay otra escritura. */
+        Integer beginFlush() {
+            lock.lock();
+            try {
+                if (closed || flushing) return null;
+                int total = sum();
+                if (total == lastFlushed) return null;
+                flushing = true;
+                return total;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void endFlush(int total, boolean persisted) {
+            lock.lock();
+            try {
+                if (persisted) lastFlushed = total;
+                flushing = false;
+                settled.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int drain() {
+            int total = 0;
+            for (int i = 0; i < cells.length(); i++) total += cells.getAndSet(i, 0);
+            return total;
+        }
+
+        private void spread(int stock) {
+            int n = cells.length();
+            int base = stock / n;
+            int rest = stock % n;
+            for (int i = 0; i < n; i++) cells.getAndAdd(i, base + (i < rest ? 1 : 0));
+        }
+    }
+}
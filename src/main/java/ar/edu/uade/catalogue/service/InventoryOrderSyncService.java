@@ -6,17 +6,26 @@ import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class InventoryOrderSyncService {
     private static final Logger log = LoggerFactory.getLogger(InventoryOrderSyncService.class);
 
     private final ProductRepository productRepository;
+    private final FlashSaleStockService flashSaleStockService;
 
-    public InventoryOrderSyncService(ProductRepository productRepository) {
+    public InventoryOrderSyncService(ProductRepository productRepository, FlashSaleStockService flashSaleStockService) {
         this.productRepository = productRepository;
+        this.flashSaleStockService = flashSaleStockService;
     }
 
     /**
@@ -25,6 +34,18 @@ public class InventoryOrderSyncService {
      */
     public void reserveStock(JsonNode payload) {
         for (Item it : iterateItems(payload)) {
+            if (flashSaleStockService.isActive(it.productCode())) {
+                try {
+                    Integer live = flashSaleStockService.decrementTransactional(it.productCode(), it.quantity());
+                    if (live != null) {
+                        log.info("[Inventario][CompraPendiente][FlashSale] productCode={} qty={} newStock={}", it.productCode(), it.quantity(), live);
+                        continue;
+                    }
+                } catch (IllegalArgumentException e) {
+                    log.warn("[Inventario][CompraPendiente][FlashSale] Stock insuficiente productCode={} pedido={}, se omite.", it.productCode(), it.quantity());
+                    continue;
+                }
+            }
             Optional<Product> opt = productRepository.findByProductCode(it.productCode());
             if (opt.isEmpty()) {
                 log.warn("[Inventario][CompraPendiente] Producto inexistente productCode={}, se omite.", it.productCode());
@@ -54,6 +75,11 @@ public class InventoryOrderSyncService {
      */
     public void cancelReservation(JsonNode payload) {
         for (Item it : iterateItems(payload)) {
+            // El contador se repone al confirmar la transacción del listener
+            if (flashSaleStockService.incrementAfterCommit(it.productCode(), it.quantity())) {
+                log.info("[Inventario][CompraCancelada][FlashSale] productCode={} qty={} (se repone al confirmar)", it.productCode(), it.quantity());
+                continue;
+            }
             Optional<Product> opt = productRepository.findByProductCode(it.productCode());
             if (opt.isEmpty()) {
                 log.warn("[Inventario][CompraCancelada] Producto inexistente productCode={}, se omite.", it.productCode());
@@ -72,6 +98,11 @@ public class InventoryOrderSyncService {
      */
     public void applyRollback(JsonNode payload) {
         for (Item it : iterateItems(payload)) {
+            // El contador se repone al confirmar la transacción del listener
+            if (flashSaleStockService.incrementAfterCommit(it.productCode(), it.quantity())) {
+                log.info("[Inventario][Rollback][FlashSale] productCode={} qty={} (se repone al confirmar)", it.productCode(), it.quantity());
+                continue;
+            }
             Optional<Product> opt = productRepository.findByProductCode(it.productCode());
             if (opt.isEmpty()) {
                 log.warn("[Inventario][Rollback] Producto inexistente productCode={}, se omite.", it.productCode());
@@ -85,10 +116,72 @@ public class InventoryOrderSyncService {
         }
     }
 
+    public enum Operation { RESERVE, CANCEL, ROLLBACK }
+
+    /** Un evento de ventas ya clasificado, para {@link #applyBatch(List)}. */
+    public record StockChange(Operation operation, JsonNode payload) {}
+
+    /**
+     * Aplica los eventos de un poll en orden, con las mismas reglas que reserveStock / cancelReservation /
+     * applyRollback, pero con un único SELECT de todos los productos referenciados y un saveAll al final.
+     * Devuelve cuántos productos quedaron modificados.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int applyBatch(List<StockChange> changes) {
+        List<List<Item>> itemsByChange = new ArrayList<>(changes.size());
+        Set<Integer> codes = new LinkedHashSet<>();
+        for (StockChange change : changes) {
+            List<Item> items = iterateItems(change.payload());
+            itemsByChange.add(items);
+            for (Item it : items) codes.add(it.productCode());
+        }
+        Map<Integer, Product> products = new HashMap<>();
+        if (!codes.isEmpty()) {
+            for (Product p : productRepository.findByProductCodeIn(codes)) products.put(p.getProductCode(), p);
+        }
+
+        Set<Product> dirty = new LinkedHashSet<>();
+        for (int i = 0; i < changes.size(); i++) {
+            Operation op = changes.get(i).operation();
+            for (Item it : itemsByChange.get(i)) {
+                if (applyFlashSale(op, it)) continue;
+                Product p = products.get(it.productCode());
+                if (p == null) {
+                    log.warn("[Inventario][Batch][{}] Producto inexistente productCode={}, se omite.", op, it.productCode());
+                    continue;
+                }
+                int newStock = op == Operation.RESERVE ? p.getStock() - it.quantity() : p.getStock() + it.quantity();
+                if (newStock < 0) {
+                    log.warn("[Inventario][Batch][{}] Stock insuficiente productCode={} actual={} pedido={}, se omite.", op, p.getProductCode(), p.getStock(), it.quantity());
+                    continue;
+                }
+                p.setStock(newStock);
+                dirty.add(p);
+            }
+        }
+        if (!dirty.isEmpty()) productRepository.saveAll(dirty);
+        log.info("[Inventario][Batch] {} eventos aplicados, {} productos modificados", changes.size(), dirty.size());
+        return dirty.size();
+    }
+
+    // true si el item lo resolvió el contador de flash sale (o se descartó por falta de stock en él).
+    // Los contadores siguen a la transacción del lote: un rollback devuelve los descuentos y las
+    // reposiciones sólo se aplican al confirmar, así el reproceso record por record no cuenta dos veces
+    private boolean applyFlashSale(Operation op, Item it) {
+        if (!flashSaleStockService.isActive(it.productCode())) return false;
+        if (op != Operation.RESERVE) return flashSaleStockService.incrementAfterCommit(it.productCode(), it.quantity());
+        try {
+            return flashSaleStockService.decrementTransactional(it.productCode(), it.quantity()) != null;
+        } catch (IllegalArgumentException e) {
+            log.warn("[Inventario][Batch][FlashSale] Stock insuficiente productCode={} pedido={}, se omite.", it.productCode(), it.quantity());
+            return true;
+        }
+    }
+
     // Helpers
     private record Item(int productCode, int quantity) {}
 
-    private Iterable<Item> iterateItems(JsonNode payload) {
+    private List<Item> iterateItems(JsonNode payload) {
         java.util.List<Item> out = new java.util.ArrayList<>();
         if (payload == null) return out;
         JsonNode cart = payload.get("cart");
@@ -1,6 +1,7 @@
 package ar.edu.uade.catalogue.service;
 
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -8,7 +9,11 @@ import org.springframework.stereotype.Service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import ar.edu.uade.catalogue.messaging.EventTypeNormalizer;
+import ar.edu.uade.catalogue.model.Brand;
+import ar.edu.uade.catalogue.model.Category;
 import ar.edu.uade.catalogue.model.Event;
+import ar.edu.uade.catalogue.model.Product;
 import ar.edu.uade.catalogue.repository.EventRepository;
 
 @Service
@@ -20,6 +25,10 @@ public class KafkaMockService {
     @Autowired
     private ObjectMapper objectMapper; // usar el mapper de Spring (con JavaTimeModule)
 
+    // Ausente con events.journal.enabled=false: se vuelve al save sincrónico
+    @Autowired(required = false)
+    private EventJournal eventJournal;
+
     public Event sendEvent(String type, Object payload) {
         try {
             String payloadJson;
@@ -29,12 +38,35 @@ public class KafkaMockService {
                 payloadJson = String.valueOf(payload);
             }
             // Solo persistimos en la tabla event; la emisión HTTP se maneja en InventoryEventPublisher/CoreApiClient
-            return eventRepository.save(new Event(type, payloadJson));
+            Event event = new Event(type, payloadJson);
+            event.setNormalizedType(EventTypeNormalizer.normalize(type));
+            tagEntity(event, payload);
+            if (eventJournal == null) return eventRepository.save(event);
+            // El journal escribe en lotes fuera del request: el evento devuelto no tiene id
+            eventJournal.append(event);
+            return event;
         } catch (Exception e) {
             throw new RuntimeException("Error serializando payload", e);
         }
     }
 
+    // Columnas indexadas para el historial por entidad (ver EventHistoryService)
+    private static void tagEntity(Event event, Object payload) {
+        if (payload instanceof Product p) {
+            event.setEntityType("product");
+            event.setEntityCode(p.getProductCode());
+        } else if (payload instanceof Category c) {
+            event.setEntityType("category");
+            event.setEntityCode(c.getCategoryCode());
+        } else if (payload instanceof Brand b) {
+            event.setEntityType("brand");
+            event.setEntityCode(b.getBrandCode());
+        } else if (payload instanceof Map<?, ?> m && m.get("productCode") instanceof Integer code) {
+            event.setEntityType("product");
+            event.setEntityCode(code);
+        }
+    }
+
     public List<Event>getAll(){
         return eventRepository.findAll();
     }
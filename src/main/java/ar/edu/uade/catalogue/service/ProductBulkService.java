@@ -0,0 +1,578 @@
+package ar.edu.uade.catalogue.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ar.edu.uade.catalogue.messaging.InventoryEventPublisher;
+import ar.edu.uade.catalogue.model.Brand;
+import ar.edu.uade.catalogue.model.Category;
+import ar.edu.uade.catalogue.model.Product;
+import ar.edu.uade.catalogue.model.DTO.BulkRepriceDTO;
+import ar.edu.uade.catalogue.model.DTO.ProductPatchDTO;
+import ar.edu.uade.catalogue.model.DTO.StockAdjustmentDTO;
+import ar.edu.uade.catalogue.repository.BrandRepository;
+import ar.edu.uade.catalogue.repository.CategoryRepository;
+import ar.edu.uade.catalogue.repository.ProductRepository;
+import ar.edu.uade.catalogue.service.ProductService.BatchError;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Operaciones masivas sobre productos con JDBC batch y transacciones por chunk,
+ * pensadas para sincronizaciones de miles de SKUs sin pasar por la entidad JPA.
+ */
+@Service
+public class ProductBulkService {
+    private static final Logger log = LoggerFactory.getLogger(ProductBulkService.class);
+
+    public record StockSyncResult(int totalRows, int updated, int chunks, List<BatchError> errors) {}
+
+    public record RepricePreview(Integer productCode, float oldUnitPrice, float oldDiscount, float oldPrice,
+                                 float unitPrice, float discount, float price) {}
+
+    public record RepriceResult(boolean dryRun, int affected, List<RepricePreview> items) {}
+
+    public enum PriceRounding { CENTS, INTEGER, NINETY_NINE }
+
+    public record BulkPatchResult(int totalRows, int updated, int chunks, List<BatchError> errors) {}
+
+    private static final String SQL_SET_STOCK = "UPDATE product SET stock = ? WHERE product_code = ?";
+    private static final String SQL_ADD_STOCK = "UPDATE product SET stock = stock + ? WHERE product_code = ? AND stock + ? >= 0";
+    private static final String SQL_READ_STOCK = "SELECT product_code, stock FROM product WHERE product_code IN (:codes)";
+    private static final String SQL_READ_DISCOUNT = "SELECT product_code, discount FROM product WHERE product_code IN (:codes)";
+    private static final String SQL_READ_PRICE = "SELECT product_code, discount, price FROM product WHERE product_code IN (:codes)";
+    // El descuento normalizado (0..1) se calcula en Java; el guard compara floats con tolerancia
+    private static final String SQL_SET_DISCOUNT = "UPDATE product SET price = ROUND(unit_price * (1.0 - ?), 2), discount = ? WHERE product_code = ?";
+    private static final String SQL_IF_DISCOUNT = " AND ABS(discount - ?) < 0.0001";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final FlashSaleStockService flashSaleStockService;
+    private final InventoryEventPublisher inventoryEventPublisher;
+    private final KafkaMockService kafkaMockService;
+    private final ProductService productService;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final BrandRepository brandRepository;
+    private final EntityManager entityManager;
+
+    @Value("${inventario.bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    public ProductBulkService(JdbcTemplate jdbcTemplate,
+                              NamedParameterJdbcTemplate namedJdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper,
+                              FlashSaleStockService flashSaleStockService,
+                              InventoryEventPublisher inventoryEventPublisher,
+                              KafkaMockService kafkaMockService,
+                              ProductService productService,
+                              ProductRepository productRepository,
+                              CategoryRepository categoryRepository,
+                              BrandRepository brandRepository,
+                              EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.flashSaleStockService = flashSaleStockService;
+        this.inventoryEventPublisher = inventoryEventPublisher;
+        this.kafkaMockService = kafkaMockService;
+        this.productService = productService;
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.brandRepository = brandRepository;
+        this.entityManager = entityManager;
+    }
+
+    private record PendingAdjustment(int line, StockAdjustmentDTO dto) {}
+
+    private record PendingPatch(int line, ProductPatchDTO dto) {}
+
+    /**
+     * Aplica ajustes de stock leídos de un array JSON o de un stream NDJSON (un objeto por línea).
+     * Cada chunk se confirma en su propia transacción y emite un único evento agregado.
+     */
+    public StockSyncResult applyStockAdjustments(InputStream body) throws IOException {
+        List<BatchError> errors = new ArrayList<>();
+        List<PendingAdjustment> chunk = new ArrayList<>(chunkSize);
+        int total = 0;
+        int updated = 0;
+        int chunks = 0;
+
+        try (MappingIterator<StockAdjustmentDTO> it = objectMapper.readerFor(StockAdjustmentDTO.class).readValues(body)) {
+            while (it.hasNextValue()) {
+                total++;
+                StockAdjustmentDTO dto = it.nextValue();
+                String invalid = validate(dto);
+                if (invalid != null) {
+                    errors.add(new BatchError(total, invalid));
+                    continue;
+                }
+                chunk.add(new PendingAdjustment(total, dto));
+                if (chunk.size() >= chunkSize) {
+                    updated += flushStockChunk(chunk, errors);
+                    chunks++;
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            updated += flushStockChunk(chunk, errors);
+            chunks++;
+        }
+        log.info("[Bulk][Stock] total={} actualizados={} chunks={} errores={}", total, updated, chunks, errors.size());
+        return new StockSyncResult(total, updated, chunks, errors);
+    }
+
+    private String validate(StockAdjustmentDTO dto) {
+        if (dto == null || dto.getProductCode() == null) return "productCode es obligatorio";
+        if ((dto.getStock() == null) == (dto.getDelta() == null)) return "Informar stock o delta (uno solo)";
+        if (dto.getStock() != null && dto.getStock() < 0) return "Stock no puede ser negativo";
+        return null;
+    }
+
+    private int flushStockChunk(List<PendingAdjustment> chunk, List<BatchError> errors) {
+        List<PendingAdjustment> absolute = new ArrayList<>();
+        List<PendingAdjustment> deltas = new ArrayList<>();
+        List<PendingAdjustment> flash = new ArrayList<>();
+        for (PendingAdjustment p : chunk) {
+            if (flashSaleStockService.isActive(p.dto().getProductCode())) flash.add(p);
+            else if (p.dto().getStock() != null) absolute.add(p);
+            else deltas.add(p);
+        }
+
+        // Errores del chunk: sólo se informan si confirma; si hace rollback todas sus filas van como error
+        List<BatchError> chunkErrors = new ArrayList<>();
+        Map<Integer, Integer> stockByCode;
+        try {
+            stockByCode = transactionTemplate.execute(status -> {
+                // Los productos en flash sale se ajustan sobre sus sub-contadores en memoria, atados al
+                // resultado del chunk: un rollback no deja el contador con el valor nuevo
+                Map<Integer, Integer> flashResults = new HashMap<>();
+                for (PendingAdjustment p : flash) {
+                    Integer code = p.dto().getProductCode();
+                    try {
+                        Integer live = p.dto().getStock() != null
+                                ? (flashSaleStockService.setAfterCommit(code, p.dto().getStock()) ? p.dto().getStock() : null)
+                                : applyFlashDelta(code, p.dto().getDelta());
+                        if (live != null) flashResults.put(code, live);
+                        // La venta cerró entre medio: el ajuste va por la base
+                        else if (p.dto().getStock() != null) absolute.add(p);
+                        else deltas.add(p);
+                    } catch (IllegalArgumentException e) {
+                        chunkErrors.add(new BatchError(p.line(), e.getMessage()));
+                    }
+                }
+                int[][] setCounts = jdbcTemplate.batchUpdate(SQL_SET_STOCK, absolute, chunkSize,
+                        (ps, p) -> { ps.setInt(1, p.dto().getStock()); ps.setInt(2, p.dto().getProductCode()); });
+                int[][] addCounts = jdbcTemplate.batchUpdate(SQL_ADD_STOCK, deltas, chunkSize,
+                        (ps, p) -> { ps.setInt(1, p.dto().getDelta()); ps.setInt(2, p.dto().getProductCode()); ps.setInt(3, p.dto().getDelta()); });
+                List<Integer> codes = new ArrayList<>();
+                collectResults(absolute, setCounts, codes, chunkErrors, "Producto inexistente");
+                collectResults(deltas, addCounts, codes, chunkErrors, "Producto inexistente o stock insuficiente");
+
+                Map<Integer, Integer> out = new LinkedHashMap<>();
+                if (!codes.isEmpty()) {
+                    namedJdbcTemplate.query(SQL_READ_STOCK, Map.of("codes", codes),
+                            rs -> { out.put(rs.getInt("product_code"), rs.getInt("stock")); });
+                }
+                out.putAll(flashResults);
+                // El evento se encola en el outbox dentro de la transacción del chunk
+                if (!out.isEmpty()) {
+                    List<Map<String, Object>> items = new ArrayList<>(out.size());
+                    out.forEach((code, stock) -> items.add(Map.of("productCode", code, "stock", stock)));
+                    inventoryEventPublisher.emitActualizarStockBatch(items);
+                    kafkaMockService.sendEvent("PUT: Actualizar stock (batch)", Map.of("items", items));
+                }
+                return out;
+            });
+        } catch (RuntimeException e) {
+            log.error("[Bulk][Stock] Falló el chunk ({} filas): {}", chunk.size(), e.toString());
+            for (PendingAdjustment p : chunk) errors.add(new BatchError(p.line(), "Error al guardar el lote: " + e.getMessage()));
+            return 0;
+        }
+        errors.addAll(chunkErrors);
+        return stockByCode == null ? 0 : stockByCode.size();
+    }
+
+    /**
+     * PATCH masivo: array JSON o NDJSON de ProductPatchDTO. Por chunk se cargan los productos en una
+     * consulta, se resuelven de una vez las categorías/marcas/nombres referenciados, se aplican las
+     * mismas validaciones que patchProduct y los UPDATE salen en batch (hibernate.jdbc.batch_size).
+     * Cada chunk emite un único evento agregado.
+     */
+    public BulkPatchResult patchProducts(InputStream body) throws IOException {
+        List<BatchError> errors = new ArrayList<>();
+        List<PendingPatch> chunk = new ArrayList<>(chunkSize);
+        int total = 0;
+        int updated = 0;
+        int chunks = 0;
+
+        try (MappingIterator<ProductPatchDTO> it = objectMapper.readerFor(ProductPatchDTO.class).readValues(body)) {
+            while (it.hasNextValue()) {
+                total++;
+                ProductPatchDTO dto = it.nextValue();
+                if (dto == null || dto.getProductCode() == null) {
+                    errors.add(new BatchError(total, "productCode es requerido para PATCH"));
+                    continue;
+                }
+                chunk.add(new PendingPatch(total, dto));
+                if (chunk.size() >= chunkSize) {
+                    updated += flushPatchChunk(chunk, errors);
+                    chunks++;
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            updated += flushPatchChunk(chunk, errors);
+            chunks++;
+        }
+        log.info("[Bulk][Patch] total={} actualizados={} chunks={} errores={}", total, updated, chunks, errors.size());
+        return new BulkPatchResult(total, updated, chunks, errors);
+    }
+
+    private int flushPatchChunk(List<PendingPatch> chunk, List<BatchError> errors) {
+        Map<Integer, Product> patched = new LinkedHashMap<>();
+        Set<Integer> activated = new HashSet<>();
+        List<Map<String, Object>> payloads = new ArrayList<>();
+        List<BatchError> chunkErrors = new ArrayList<>();
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<Integer> codes = new HashSet<>();
+                for (PendingPatch p : chunk) codes.add(p.dto().getProductCode());
+                Map<Integer, Product> byCode = new HashMap<>();
+                for (Product product : productRepository.findByProductCodeIn(codes)) byCode.put(product.getProductCode(), product);
+                ChunkLookups lookups = new ChunkLookups(chunk);
+
+                for (PendingPatch p : chunk) {
+                    Integer code = p.dto().getProductCode();
+                    Product product = byCode.get(code);
+                    if (product == null) {
+                        chunkErrors.add(new BatchError(p.line(), "Producto no encontrado para productCode=" + code));
+                        continue;
+                    }
+                    if (patched.containsKey(code)) {
+                        chunkErrors.add(new BatchError(p.line(), "productCode repetido en el lote: " + code));
+                        continue;
+                    }
+                    boolean wasActive = product.isActive();
+                    String oldName = product.getName();
+                    try {
+                        productService.applyPatch(product, p.dto(), lookups, null);
+                    } catch (IllegalArgumentException | IOException e) {
+                        // El patch inválido no debe llegar al flush: se recarga el estado de la base
+                        // (detach no sirve: la cascada ALL desasociaría la marca compartida con otros productos)
+                        entityManager.refresh(product);
+                        chunkErrors.add(new BatchError(p.line(), e.getMessage()));
+                        continue;
+                    }
+                    lookups.renamed(oldName, product);
+                    if (!wasActive && product.isActive()) activated.add(code);
+                    patched.put(code, product);
+                }
+                productRepository.saveAll(patched.values());
+                productRepository.flush();
+                // Dentro de la transacción: el payload recorre categorías lazy
+                for (Product product : patched.values()) payloads.add(productService.buildProductModificationPayload(product));
+                if (!patched.isEmpty()) {
+                    inventoryEventPublisher.emitProductosActualizadosBatch(new ArrayList<>(patched.values()), activated);
+                    kafkaMockService.sendEvent("PATCH: Productos actualizados (batch)", Map.of("items", payloads));
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("[Bulk][Patch] Falló el chunk ({} filas): {}", chunk.size(), e.toString());
+            for (PendingPatch p : chunk) errors.add(new BatchError(p.line(), "Error al guardar el lote: " + e.getMessage()));
+            return 0;
+        }
+        errors.addAll(chunkErrors);
+        return patched.size();
+    }
+
+    /** Referencias del chunk resueltas con una consulta por tipo en lugar de una por patch. */
+    private final class ChunkLookups implements ProductService.PatchLookups {
+        private final Map<Integer, Category> categoriesByCode = new HashMap<>();
+        private final Map<Integer, Category> categoriesById = new HashMap<>();
+        private final Map<Integer, Brand> brandsByCode = new HashMap<>();
+        private final Map<Integer, Brand> brandsById = new HashMap<>();
+        private final Map<String, Product> productsByName = new HashMap<>();
+
+        ChunkLookups(List<PendingPatch> chunk) {
+            Set<Integer> catCodes = new HashSet<>();
+            Set<Integer> catIds = new HashSet<>();
+            Set<Integer> brandCodes = new HashSet<>();
+            Set<Integer> brandIds = new HashSet<>();
+            Set<String> names = new HashSet<>();
+            for (PendingPatch p : chunk) {
+                ProductPatchDTO dto = p.dto();
+                if (dto.getCategoryCodes() != null) catCodes.addAll(dto.getCategoryCodes());
+                else if (dto.getCategories() != null) catIds.addAll(dto.getCategories());
+                if (dto.getBrandCode() != null) brandCodes.add(dto.getBrandCode());
+                else if (dto.getBrand() != null) brandIds.add(dto.getBrand());
+                if (dto.getName() != null) names.add(dto.getName());
+            }
+            catCodes.remove(null);
+            catIds.remove(null);
+            if (!catCodes.isEmpty()) categoryRepository.findByCategoryCodeIn(catCodes).forEach(c -> categoriesByCode.put(c.getCategoryCode(), c));
+            if (!catIds.isEmpty()) categoryRepository.findAllById(catIds).forEach(c -> categoriesById.put(c.getId(), c));
+            if (!brandCodes.isEmpty()) brandRepository.findByBrandCodeIn(brandCodes).forEach(b -> brandsByCode.put(b.getBrandCode(), b));
+            if (!brandIds.isEmpty()) brandRepository.findAllById(brandIds).forEach(b -> brandsById.put(b.getId(), b));
+            if (!names.isEmpty()) productRepository.findByNameIn(names).forEach(p -> productsByName.put(p.getName(), p));
+        }
+
+        @Override
+        public List<Category> categoriesByCodes(List<Integer> codes) {
+            // Lista mutable: Hibernate la envuelve como colección persistente
+            return codes.stream().map(categoriesByCode::get).filter(Objects::nonNull).collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        @Override
+        public List<Category> categoriesByIds(List<Integer> ids) {
+            return ids.stream().map(categoriesById::get).filter(Objects::nonNull).collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        @Override
+        public Brand brandByCode(Integer code) { return brandsByCode.get(code); }
+
+        @Override
+        public Brand brandById(Integer id) { return brandsById.get(id); }
+
+        @Override
+        public Optional<Product> productByName(String name) { return Optional.ofNullable(productsByName.get(name)); }
+
+        // Mantiene la unicidad de nombres entre patches del mismo chunk
+        void renamed(String oldName, Product product) {
+            if (Objects.equals(oldName, product.getName())) return;
+            if (oldName != null && productsByName.get(oldName) == product) productsByName.remove(oldName);
+            productsByName.put(product.getName(), product);
+        }
+    }
+
+    /**
+     * Repricing masivo set-based: el nuevo unit_price, el descuento y el price se calculan en la base
+     * con un único UPDATE sobre el alcance (categoría, marca o lista de códigos). Con dryRun sólo
+     * devuelve la vista previa; si no, aplica y emite un único evento agregado con los cambios.
+     */
+    public RepriceResult reprice(BulkRepriceDTO dto, boolean dryRun) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String scope = productScope(dto.getCategoryCode(), dto.getBrandCode(), dto.getProductCodes(), params);
+
+        if (dto.getPercentChange() == null && dto.getDiscount() == null) {
+            throw new IllegalArgumentException("Informar percentChange y/o discount");
+        }
+        if (dto.getPercentChange() != null) {
+            if (dto.getPercentChange() <= -100f) throw new IllegalArgumentException("percentChange debe ser mayor a -100");
+            params.addValue("factor", 1.0d + dto.getPercentChange() / 100.0d);
+        }
+        if (dto.getDiscount() != null) {
+            float normalized = dto.getDiscount() > 1.0f ? dto.getDiscount() / 100.0f : dto.getDiscount();
+            if (normalized < 0f || normalized >= 1f) throw new IllegalArgumentException("El descuento debe estar entre 0 y 1");
+            params.addValue("discount", dto.getDiscount());
+        }
+        PriceRounding rounding = parseRounding(dto.getRounding());
+
+        String unitExpr = dto.getPercentChange() == null ? "unit_price" : roundingExpr("unit_price * :factor", rounding);
+        String discExpr = dto.getDiscount() == null ? "discount" : ":discount";
+        // Mismo criterio que computePrice: descuentos > 1 se interpretan como porcentaje
+        String priceExpr = "ROUND(" + unitExpr + " * (1.0 - CASE WHEN " + discExpr + " > 1.0 THEN " + discExpr + " / 100.0 ELSE "
+                + discExpr + " END), 2)";
+
+        String preview = "SELECT product_code, unit_price, discount, price, " + unitExpr + " AS new_unit_price, "
+                + discExpr + " AS new_discount, " + priceExpr + " AS new_price FROM product WHERE " + scope
+                + " ORDER BY product_code";
+        // price va primero: MySQL evalúa el SET de izquierda a derecha con los valores ya asignados,
+        // así todas las expresiones leen los valores originales en cualquier motor
+        String update = "UPDATE product SET price = " + priceExpr + ", unit_price = " + unitExpr
+                + ", discount = " + discExpr + " WHERE " + scope;
+
+        if (dryRun) {
+            List<RepricePreview> items = namedJdbcTemplate.query(preview, params, (rs, i) -> toPreview(rs));
+            return new RepriceResult(true, items.size(), items);
+        }
+
+        List<RepricePreview> items = transactionTemplate.execute(status -> {
+            List<RepricePreview> rows = namedJdbcTemplate.query(preview + " FOR UPDATE", params, (rs, i) -> toPreview(rs));
+            if (rows.isEmpty()) return rows;
+            namedJdbcTemplate.update(update, params);
+            List<Map<String, Object>> changes = new ArrayList<>(rows.size());
+            for (RepricePreview r : rows) {
+                changes.add(Map.of("productCode", r.productCode(), "unitPrice", r.unitPrice(),
+                        "discount", r.discount(), "price", r.price()));
+            }
+            inventoryEventPublisher.emitPreciosActualizadosBatch(changes);
+            kafkaMockService.sendEvent("PATCH: Precios actualizados (batch)", Map.of("items", changes));
+            return rows;
+        });
+        if (items == null) items = List.of();
+        log.info("[Bulk][Reprice] alcance={} afectados={}", scope, items.size());
+        return new RepriceResult(false, items.size(), items);
+    }
+
+    /** Resuelve los productCodes existentes dentro de un alcance (categoría, marca o lista de códigos). */
+    public List<Integer> resolveProductCodes(Integer categoryCode, Integer brandCode, List<Integer> productCodes) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String scope = productScope(categoryCode, brandCode, productCodes, params);
+        return namedJdbcTemplate.queryForList("SELECT product_code FROM product WHERE " + scope + " ORDER BY product_code",
+                params, Integer.class);
+    }
+
+    /** Descuento actual de cada producto (los códigos inexistentes no aparecen en el resultado). */
+    public Map<Integer, Float> readDiscounts(Collection<Integer> productCodes) {
+        Map<Integer, Float> out = new LinkedHashMap<>();
+        for (List<Integer> codes : partition(productCodes)) {
+            namedJdbcTemplate.query(SQL_READ_DISCOUNT, Map.of("codes", codes),
+                    rs -> { out.put(rs.getInt("product_code"), rs.getFloat("discount")); });
+        }
+        return out;
+    }
+
+    /**
+     * Aplica un descuento por producto con UPDATE en batch (una transacción por chunk) y recalcula
+     * price en la base con la misma normalización que computePrice. Si se informa {@code expected},
+     * sólo se pisan los productos cuyo descuento actual coincide (no se revierten cambios manuales).
+     * Cada chunk emite un único evento agregado {productCode, discount, price}.
+     * @return cantidad de productos actualizados
+     */
+    public int applyDiscounts(Map<Integer, Float> discountByCode, Map<Integer, Float> expected, String eventType) {
+        List<Map.Entry<Integer, Float>> rows = new ArrayList<>(discountByCode.entrySet());
+        int updated = 0;
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            List<Map.Entry<Integer, Float>> chunk = rows.subList(from, Math.min(from + chunkSize, rows.size()));
+            List<Map<String, Object>> items = transactionTemplate.execute(status -> {
+                int[][] counts = expected == null
+                        ? jdbcTemplate.batchUpdate(SQL_SET_DISCOUNT, chunk, chunkSize, (ps, e) -> {
+                            ps.setDouble(1, normalizeDiscount(e.getValue()));
+                            ps.setFloat(2, e.getValue());
+                            ps.setInt(3, e.getKey());
+                        })
+                        : jdbcTemplate.batchUpdate(SQL_SET_DISCOUNT + SQL_IF_DISCOUNT, chunk, chunkSize, (ps, e) -> {
+                            ps.setDouble(1, normalizeDiscount(e.getValue()));
+                            ps.setFloat(2, e.getValue());
+                            ps.setInt(3, e.getKey());
+                            ps.setFloat(4, expected.getOrDefault(e.getKey(), 0f));
+                        });
+                List<Integer> codes = new ArrayList<>();
+                int i = 0;
+                for (int[] batch : counts) {
+                    for (int c : batch) {
+                        Integer code = chunk.get(i++).getKey();
+                        if (c != 0) codes.add(code);
+                    }
+                }
+                List<Map<String, Object>> out = new ArrayList<>(codes.size());
+                if (!codes.isEmpty()) {
+                    namedJdbcTemplate.query(SQL_READ_PRICE, Map.of("codes", codes), rs -> {
+                        out.add(Map.of("productCode", rs.getInt("product_code"),
+                                "discount", rs.getFloat("discount"), "price", rs.getFloat("price")));
+                    });
+                    inventoryEventPublisher.emitDescuentosActualizadosBatch(out);
+                    kafkaMockService.sendEvent(eventType, Map.of("items", out));
+                }
+                return out;
+            });
+            if (items != null) updated += items.size();
+        }
+        return updated;
+    }
+
+    private String productScope(Integer categoryCode, Integer brandCode, List<Integer> productCodes, MapSqlParameterSource params) {
+        boolean byCodes = productCodes != null && !productCodes.isEmpty();
+        int scopes = (categoryCode != null ? 1 : 0) + (brandCode != null ? 1 : 0) + (byCodes ? 1 : 0);
+        if (scopes != 1) throw new IllegalArgumentException("Informar un solo alcance: categoryCode, brandCode o productCodes");
+
+        if (categoryCode != null) {
+            params.addValue("categoryCode", categoryCode);
+            return "id IN (SELECT pc.product_id FROM product_category pc JOIN category c ON c.category_id = pc.category_id"
+                    + " WHERE c.category_code = :categoryCode)";
+        }
+        if (brandCode != null) {
+            params.addValue("brandCode", brandCode);
+            return "brand_id IN (SELECT b.brand_id FROM brand b WHERE b.brand_code = :brandCode)";
+        }
+        params.addValue("codes", productCodes);
+        return "product_code IN (:codes)";
+    }
+
+    private List<List<Integer>> partition(Collection<Integer> codes) {
+        List<Integer> all = new ArrayList<>(codes);
+        List<List<Integer>> out = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += chunkSize) {
+            out.add(all.subList(from, Math.min(from + chunkSize, all.size())));
+        }
+        return out;
+    }
+
+    private static double normalizeDiscount(float discount) {
+        return discount > 1.0f ? (discount / 100.0f) : discount;
+    }
+
+    private PriceRounding parseRounding(String rounding) {
+        if (rounding == null || rounding.isBlank()) return PriceRounding.CENTS;
+        try {
+            return PriceRounding.valueOf(rounding.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("rounding inválido (CENTS, INTEGER, NINETY_NINE): " + rounding);
+        }
+    }
+
+    private String roundingExpr(String expr, PriceRounding rounding) {
+        return switch (rounding) {
+            case CENTS -> "ROUND(" + expr + ", 2)";
+            case INTEGER -> "ROUND(" + expr + ", 0)";
+            case NINETY_NINE -> "CASE WHEN " + expr + " < 1 THEN ROUND(" + expr + ", 2) ELSE CEILING(" + expr + ") - 0.01 END";
+        };
+    }
+
+    private RepricePreview toPreview(ResultSet rs) throws SQLException {
+        return new RepricePreview(rs.getInt("product_code"),
+                rs.getFloat("unit_price"), rs.getFloat("discount"), rs.getFloat("price"),
+                rs.getFloat("new_unit_price"), rs.getFloat("new_discount"), rs.getFloat("new_price"));
+    }
+
+    // Un descuento se toma ya (valida stock) y vuelve si hay rollback; una reposición se aplica al confirmar
+    private Integer applyFlashDelta(Integer productCode, int delta) {
+        if (delta < 0) return flashSaleStockService.decrementTransactional(productCode, -delta);
+        Integer live = flashSaleStockService.currentStock(productCode);
+        return live != null && flashSaleStockService.incrementAfterCommit(productCode, delta) ? live + delta : null;
+    }
+
+    private void collectResults(List<PendingAdjustment> rows, int[][] counts, List<Integer> updatedCodes, List<BatchError> errors, String message) {
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int c : batch) {
+                PendingAdjustment p = rows.get(i++);
+                // c < 0 => el driver no informa filas afectadas (SUCCESS_NO_INFO), se asume aplicado
+                if (c == 0) errors.add(new BatchError(p.line(), message + " productCode=" + p.dto().getProductCode()));
+                else updatedCodes.add(p.dto().getProductCode());
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@ import java.util.stream.Collectors;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -67,17 +68,24 @@ public class ProductService {
     @Autowired
     S3ImageService s3ImageService;
 
+    @Autowired
+    FlashSaleStockService flashSaleStockService;
+
     private static final Pattern NAME_ALLOWED = Pattern.compile(".*[A-Za-zÁÉÍÓÚáéíóúÑñ].*");
 
     public List<Product>getProducts(){
-        return productRepository.findAll();
+        List<Product> products = productRepository.findAll();
+        products.forEach(flashSaleStockService::applyLiveStock);
+        return products;
     }
 
     public Product getProductByProductCode(Integer productCode){
         Optional<Product> productOptional = productRepository.findByProductCode(productCode);
+        productOptional.ifPresent(flashSaleStockService::applyLiveStock);
         return productOptional.orElse(null);
     }
 
+    @Transactional(rollbackFor = Exception.class)
     public Product createProduct(ProductDTO productDTO, List<MultipartFile> images) throws IOException {
         validateProductDTOForCreate(productDTO);
         // Convertir Archivos a S3 ANTES de guardar
@@ -367,6 +375,7 @@ public class ProductService {
         return v.equals("true") || v.equals("1") || v.equals("yes") || v.equals("y") || v.equals("si") || v.equals("sí");
     }
 
+    @Transactional(rollbackFor = Exception.class)
     public Product updateProduct(ProductDTO productUpdateDTO) throws IOException {
         if (productUpdateDTO == null || productUpdateDTO.getProductCode() == null) {
             throw new IllegalArgumentException("productCode es obligatorio para actualizar");
@@ -397,6 +406,7 @@ public class ProductService {
                 : brandService.getBrandByID(productUpdateDTO.getBrand());
 
         boolean wasActive = productToUpdate.isActive();
+        var before = inventoryEventPublisher.captureState(productToUpdate);
 
         productToUpdate.setName(productUpdateDTO.getName());
         productToUpdate.setDescription(productUpdateDTO.getDescription());
@@ -414,6 +424,10 @@ public class ProductService {
         productToUpdate.setFeatured(productUpdateDTO.isFeatured());
         productToUpdate.setHero(productUpdateDTO.isHero());
         productToUpdate.setActive(productUpdateDTO.isActive());
+        // Ya validado: el contador de la flash sale (si está activa) se fija recién en el commit
+        if (flashSaleStockService.isActive(productToUpdate.getProductCode())) {
+            flashSaleStockService.setAfterCommit(productToUpdate.getProductCode(), productUpdateDTO.getStock());
+        }
         
         Product saved = productRepository.save(productToUpdate);
 
@@ -421,7 +435,7 @@ public class ProductService {
             inventoryEventPublisher.emitProductoActivado(saved);
             kafkaMockService.sendEvent("PATCH: Producto activado", saved);
         }
-        inventoryEventPublisher.emitProductoActualizado(saved);
+        inventoryEventPublisher.emitProductoActualizado(before, saved);
 
         var payload = buildProductModificationPayload(saved);
         kafkaMockService.sendEvent("PATCH: modificar un producto", payload);
@@ -429,7 +443,7 @@ public class ProductService {
         return saved;
     }
 
-    private java.util.Map<String, Object> buildProductModificationPayload(Product p) {
+    java.util.Map<String, Object> buildProductModificationPayload(Product p) {
         HashMap<String, Object> map = new HashMap<>();
         map.put("productCode", p.getProductCode());
         map.put("name", p.getName());
@@ -455,7 +469,14 @@ public class ProductService {
         return map;
     }
 
+    @Transactional(rollbackFor = Exception.class)
     public Product updateStockPostSale(Integer productCode, int amountBought){
+        if (flashSaleStockService.isActive(productCode)) {
+            // Si la transacción hace rollback (p.ej. falla el outbox) las unidades vuelven al contador
+            Integer flashStock = flashSaleStockService.decrementTransactional(productCode, amountBought);
+            if (flashStock != null) return emitFlashSaleStock(productCode, flashStock);
+        }
+
         Product productToUpdate = productRepository.findByProductCode(productCode)
             .orElseThrow(() -> new EmptyResultDataAccessException("Producto no encontrado para productCode=" + productCode, 1));
 
@@ -471,7 +492,16 @@ public class ProductService {
         return productToUpdate;
     }
     
+    @Transactional(rollbackFor = Exception.class)
     public Product updateStockPostCancelation(Integer productCode, int amountReturned){
+        if (flashSaleStockService.isActive(productCode)) {
+            // La reposición se aplica al contador en el commit; el evento lleva el stock que va a quedar
+            Integer live = flashSaleStockService.currentStock(productCode);
+            if (live != null && flashSaleStockService.incrementAfterCommit(productCode, amountReturned)) {
+                return emitFlashSaleStock(productCode, live + amountReturned);
+            }
+        }
+
         Product productToUpdate = productRepository.findByProductCode(productCode)
             .orElseThrow(() -> new EmptyResultDataAccessException("Producto no encontrado para productCode=" + productCode, 1));
 
@@ -485,8 +515,13 @@ public class ProductService {
 
         return  productToUpdate;
     }
+    @Transactional(rollbackFor = Exception.class)
     public Product updateStock (Integer productCode, int newStock){
         if (newStock < 0) throw new IllegalArgumentException("Stock no puede ser negativo");
+        if (flashSaleStockService.isActive(productCode) && flashSaleStockService.setAfterCommit(productCode, newStock)) {
+            return emitFlashSaleStock(productCode, newStock);
+        }
+
         Product productToUpdate = productRepository.findByProductCode(productCode)
             .orElseThrow(() -> new EmptyResultDataAccessException("Producto no encontrado para productCode=" + productCode, 1));
 
@@ -500,10 +535,28 @@ public class ProductService {
         return productToUpdate;
     }
 
+    // En flash sale el stock vive en memoria: se lee la fila (sin lock) sólo para emitir el evento.
+    // Se emite una copia para no ensuciar la entidad administrada: el flush de la transacción
+    // escribiría la fila que la flash sale justamente evita tocar
+    private Product emitFlashSaleStock(Integer productCode, int liveStock) {
+        Product managed = productRepository.findByProductCode(productCode)
+            .orElseThrow(() -> new EmptyResultDataAccessException("Producto no encontrado para productCode=" + productCode, 1));
+        Product product = new Product();
+        BeanUtils.copyProperties(managed, product);
+        product.setStock(liveStock);
+
+        inventoryEventPublisher.emitActualizarStock(product);
+        kafkaMockService.sendEvent("PUT: Actualizar stock", product);
+
+        return product;
+    }
+
+    @Transactional(rollbackFor = Exception.class)
     public Product updateUnitPrice (Integer productCode, float newPrice){
         if (newPrice < 0) throw new IllegalArgumentException("El precio no puede ser negativo");
         Product productToUpdate = productRepository.findByProductCode(productCode)
             .orElseThrow(() -> new EmptyResultDataAccessException("Producto no encontrado para productCode=" + productCode, 1));
+        var before = inventoryEventPublisher.captureState(productToUpdate);
 
         productToUpdate.setUnitPrice(newPrice);
         
@@ -513,17 +566,19 @@ public class ProductService {
 
         Event eventSent = kafkaMockService.sendEvent("PATCH: Precio unitario actualizado", productToUpdate);
         System.out.println(eventSent.toString());
-        inventoryEventPublisher.emitProductoActualizado(productToUpdate);
+        inventoryEventPublisher.emitProductoActualizado(before, productToUpdate);
         kafkaMockService.sendEvent("PUT: Producto actualizado", productToUpdate);
 
         return productRepository.save(productToUpdate);
     }
     
+    @Transactional(rollbackFor = Exception.class)
     public Product updateDiscount(Integer productCode, float newDiscount){
         float normalized = normalizeDiscount(newDiscount);
         if (normalized < 0f || normalized >= 1f) throw new IllegalArgumentException("El descuento debe estar entre 0 y 1");
         Product productToUpdate = productRepository.findByProductCode(productCode)
             .orElseThrow(() -> new EmptyResultDataAccessException("Producto no encontrado para productCode=" + productCode, 1));
+        var before = inventoryEventPublisher.captureState(productToUpdate);
 
         productToUpdate.setDiscount(newDiscount);
 
@@ -533,12 +588,13 @@ public class ProductService {
 
         Event eventSent = kafkaMockService.sendEvent("PATCH: Descuento actualizado", productToUpdate);
         System.out.println(eventSent.toString());
-        inventoryEventPublisher.emitProductoActualizado(productToUpdate);
+        inventoryEventPublisher.emitProductoActualizado(before, productToUpdate);
         kafkaMockService.sendEvent("PUT: Producto actualizado", productToUpdate);
 
        return productRepository.save(productToUpdate);
     }
 
+    @Transactional(rollbackFor = Exception.class)
     public boolean deleteProduct(Integer productCode){
         try{
             Product productToDiactivate = productRepository.findByProductCode(productCode)
@@ -557,6 +613,7 @@ public class ProductService {
         }
     }
 
+    @Transactional(rollbackFor = Exception.class)
     public Product patchProduct(ProductPatchDTO patch, List<MultipartFile> patchImages) throws IOException {
         if (patch.getProductCode() == null) {
             throw new EmptyResultDataAccessException("productCode es requerido para PATCH", 1);
@@ -565,6 +622,49 @@ public class ProductService {
             .orElseThrow(() -> new EmptyResultDataAccessException("Producto no encontrado para productCode=" + patch.getProductCode(), 1));
 
         boolean wasActive = product.isActive();
+        var before = inventoryEventPublisher.captureState(product);
+        applyPatch(product, patch, singlePatchLookups, patchImages);
+
+        Product saved = productRepository.save(product);
+
+        if (!wasActive && saved.isActive()) {
+            inventoryEventPublisher.emitProductoActivado(saved);
+            kafkaMockService.sendEvent("PATCH: Producto activado", saved);
+        }
+        inventoryEventPublisher.emitProductoActualizado(before, saved);
+
+        var payload = buildProductModificationPayload(saved);
+        kafkaMockService.sendEvent("PATCH: modificar un producto", payload);
+
+        return saved;
+    }
+
+    /**
+     * Resolución de referencias al aplicar un patch. El PATCH individual consulta una a una;
+     * el masivo ({@link ProductBulkService#patchProducts}) resuelve todo el chunk de antemano.
+     */
+    interface PatchLookups {
+        List<Category> categoriesByCodes(List<Integer> codes);
+        List<Category> categoriesByIds(List<Integer> ids);
+        Brand brandByCode(Integer code);
+        Brand brandById(Integer id);
+        Optional<Product> productByName(String name);
+    }
+
+    private final PatchLookups singlePatchLookups = new PatchLookups() {
+        public List<Category> categoriesByCodes(List<Integer> codes) { return categoryService.geCategoriesForProductByCodes(codes); }
+        public List<Category> categoriesByIds(List<Integer> ids) { return categoryService.geCategoriesForProductByID(ids); }
+        public Brand brandByCode(Integer code) { return brandService.getBrandByCode(code); }
+        public Brand brandById(Integer id) { return brandService.getBrandByID(id); }
+        public Optional<Product> productByName(String name) { return productRepository.findByName(name); }
+    };
+
+    /**
+     * Valida y aplica un patch sobre el producto (sin guardar ni emitir eventos). Si alguna
+     * validación falla se lanza IllegalArgumentException antes de tocar el stock de flash sale, que
+     * se fija recién en el commit (un chunk del PATCH masivo que hace rollback no lo adelanta).
+     */
+    void applyPatch(Product product, ProductPatchDTO patch, PatchLookups lookups, List<MultipartFile> patchImages) throws IOException {
         boolean priceRelatedChanged = false;
 
         if (patch.getName() != null) {
@@ -572,7 +672,7 @@ public class ProductService {
                 throw new IllegalArgumentException("Nombre inválido (no vacío y con letras)");
             }
             if (!patch.getName().equals(product.getName())) {
-                productRepository.findByName(patch.getName()).ifPresent(p -> {
+                lookups.productByName(patch.getName()).ifPresent(p -> {
                     if (!p.getProductCode().equals(product.getProductCode())) {
                         throw new IllegalArgumentException("El nombre de producto '" + patch.getName() + "' ya está en uso por otro producto.");
                     }
@@ -598,20 +698,20 @@ public class ProductService {
             product.setStock(patch.getStock());
         }
         if (patch.getCategoryCodes() != null) {
-            List<Category> cats = categoryService.geCategoriesForProductByCodes(patch.getCategoryCodes());
+            List<Category> cats = lookups.categoriesByCodes(patch.getCategoryCodes());
             if (cats.size() != patch.getCategoryCodes().size()) throw new IllegalArgumentException("Alguna categoría no existe por code");
             product.setCategories(cats);
         } else if (patch.getCategories() != null) {
-            List<Category> cats = categoryService.geCategoriesForProductByID(patch.getCategories());
+            List<Category> cats = lookups.categoriesByIds(patch.getCategories());
             if (cats.size() != patch.getCategories().size()) throw new IllegalArgumentException("Alguna categoría no existe por id");
             product.setCategories(cats);
         }
         if (patch.getBrandCode() != null) {
-            Brand b = brandService.getBrandByCode(patch.getBrandCode());
+            Brand b = lookups.brandByCode(patch.getBrandCode());
             if (b == null) throw new IllegalArgumentException("Marca inexistente (brandCode)");
             product.setBrand(b);
         } else if (patch.getBrand() != null) {
-            Brand b = brandService.getBrandByID(patch.getBrand());
+            Brand b = lookups.brandById(patch.getBrand());
             if (b == null) throw new IllegalArgumentException("Marca inexistente (id)");
             product.setBrand(b);
         }
@@ -630,15 +730,16 @@ public class ProductService {
                 finalImages.addAll(product.getImages());
             }
         }
+        validateImageLengths(finalImages, 2048);
 
         // Imágenes nuevas subidas por multipart
         if (patchImages != null && !patchImages.isEmpty()) {
             List<String> newImages = fileToS3(patchImages);
             finalImages.addAll(newImages);
+            validateImageLengths(finalImages, 2048);
         }
 
         // Guardar el resultado final
-        validateImageLengths(finalImages, 2048);
         product.setImages(finalImages);
 
         if (patch.getIsNew() != null) product.setNew(patch.getIsNew());
@@ -651,21 +752,12 @@ public class ProductService {
             float priceWithDiscount = computePrice(product.getUnitPrice(), product.getDiscount());
             product.setPrice(priceWithDiscount);
         }
-
-        Product saved = productRepository.save(product);
-
-        if (!wasActive && saved.isActive()) {
-            inventoryEventPublisher.emitProductoActivado(saved);
-            kafkaMockService.sendEvent("PATCH: Producto activado", saved);
+        if (patch.getStock() != null && flashSaleStockService.isActive(product.getProductCode())) {
+            flashSaleStockService.setAfterCommit(product.getProductCode(), patch.getStock());
         }
-        inventoryEventPublisher.emitProductoActualizado(saved);
-
-        var payload = buildProductModificationPayload(saved);
-        kafkaMockService.sendEvent("PATCH: modificar un producto", payload);
-
-        return saved;
     }
 
+    @Transactional(rollbackFor = Exception.class)
     public Product activateProduct(Integer productCode) {
         Product product = productRepository.findByProductCode(productCode)
             .orElseThrow(() -> new EmptyResultDataAccessException("Producto no encontrado para productCode=" + productCode, 1));
@@ -683,6 +775,16 @@ public class ProductService {
         return saved;
     }
 
+    // Reenvía el estado completo del producto con su versión de delta actual (resincronización)
+    @Transactional(rollbackFor = Exception.class)
+    public Product publishSnapshot(Integer productCode) {
+        Product product = productRepository.findByProductCode(productCode)
+            .orElseThrow(() -> new EmptyResultDataAccessException("Producto no encontrado para productCode=" + productCode, 1));
+        inventoryEventPublisher.emitProductoSnapshot(product);
+        return product;
+    }
+
+    @Transactional(rollbackFor = Exception.class)
     public Product addReview(Integer productCode, String message, Float rateUpdated) {
         Product product = productRepository.findByProductCode(productCode)
             .orElseThrow(() -> new EmptyResultDataAccessException("Producto no encontrado para productCode=" + productCode, 1));
@@ -0,0 +1,161 @@
+package ar.edu.uade.catalogue.service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Service;
+
+import ar.edu.uade.catalogue.model.Promotion;
+import ar.edu.uade.catalogue.model.Promotion.Status;
+import ar.edu.uade.catalogue.model.DTO.PromotionDTO;
+import ar.edu.uade.catalogue.repository.PromotionRepository;
+
+/**
+ * Promociones programadas: alta con el alcance ya resuelto y activación/finalización en batch.
+ * El disparo en hora lo hace {@link ar.edu.uade.catalogue.scheduler.PromotionScheduler}; acá cada
+ * transición se toma con un UPDATE condicional para que una sola instancia la aplique.
+ */
+@Service
+public class PromotionService {
+    private static final Logger log = LoggerFactory.getLogger(PromotionService.class);
+
+    private final PromotionRepository promotionRepository;
+    private final ProductBulkService productBulkService;
+
+    @Value("${inventario.promotions.stale-claim.ms:600000}")
+    private long staleClaimMs;
+
+    public PromotionService(PromotionRepository promotionRepository, ProductBulkService productBulkService) {
+        this.promotionRepository = promotionRepository;
+        this.productBulkService = productBulkService;
+    }
+
+    public Promotion create(PromotionDTO dto) {
+        if (dto.getDiscount() == null) throw new IllegalArgumentException("discount es obligatorio");
+        float normalized = dto.getDiscount() > 1.0f ? dto.getDiscount() / 100.0f : dto.getDiscount();
+        if (normalized < 0f || normalized >= 1f) throw new IllegalArgumentException("El descuento debe estar entre 0 y 1");
+        if (dto.getStartAt() == null) throw new IllegalArgumentException("startAt es obligatorio");
+        if (dto.getEndAt() != null && !dto.getEndAt().isAfter(dto.getStartAt())) {
+            throw new IllegalArgumentException("endAt debe ser posterior a startAt");
+        }
+
+        List<Integer> codes = productBulkService.resolveProductCodes(dto.getCategoryCode(), dto.getBrandCode(), dto.getProductCodes());
+        if (codes.isEmpty()) throw new IllegalArgumentException("El alcance no incluye productos");
+
+        Promotion promotion = new Promotion();
+        promotion.setName(dto.getName());
+        promotion.setDiscount(dto.getDiscount());
+        promotion.setStartAt(dto.getStartAt());
+        promotion.setEndAt(dto.getEndAt());
+        promotion.setProductCodes(new HashSet<>(codes));
+        Promotion saved = promotionRepository.save(promotion);
+        log.info("[Promo] Programada id={} productos={} inicio={} fin={}", saved.getId(), codes.size(), saved.getStartAt(), saved.getEndAt());
+        return saved;
+    }
+
+    public List<Promotion> getAll() {
+        return promotionRepository.findAll();
+    }
+
+    public Promotion getById(Long id) {
+        return promotionRepository.findById(id)
+            .orElseThrow(() -> new EmptyResultDataAccessException("Promoción no encontrada id=" + id, 1));
+    }
+
+    public List<Promotion> getPending() {
+        return promotionRepository.findByStatusIn(List.of(Status.SCHEDULED, Status.ACTIVE));
+    }
+
+    /**
+     * Recupera promociones trabadas en ACTIVATING/ENDING porque la instancia que las tomó se cayó:
+     * pasado stale-claim.ms vuelven a SCHEDULED/ACTIVE y el próximo disparo retoma la transición
+     * (el descuento previo ya guardado se conserva y la restauración sólo toca lo que sigue igual).
+     */
+    public int releaseStaleClaims() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime claimedBefore = now.minusNanos(staleClaimMs * 1_000_000L);
+        int released = promotionRepository.releaseStale(Status.ACTIVATING, Status.SCHEDULED, claimedBefore, now)
+                + promotionRepository.releaseStale(Status.ENDING, Status.ACTIVE, claimedBefore, now);
+        if (released > 0) log.warn("[Promo] {} promociones trabadas en ACTIVATING/ENDING se liberaron para reintentar", released);
+        return released;
+    }
+
+    /**
+     * Aplica el descuento de la promoción. Devuelve false si otra instancia ya la tomó.
+     * Si la ventana ya venció (p.ej. el servicio estuvo caído) se marca ENDED sin aplicar.
+     */
+    public boolean activate(Long id) {
+        Promotion promotion = getById(id);
+        if (promotion.getEndAt() != null && !promotion.getEndAt().isAfter(LocalDateTime.now())) {
+            if (promotionRepository.transition(id, Status.SCHEDULED, Status.ENDED) == 1) {
+                log.warn("[Promo] id={} vencida antes de activarse, se omite", id);
+            }
+            return false;
+        }
+        if (promotionRepository.transition(id, Status.SCHEDULED, Status.ACTIVATING) != 1) return false;
+
+        try {
+            promotion = getById(id);
+            // Se guarda el descuento previo antes de tocar product; en un reintento se conserva el original
+            if (promotion.getPreviousDiscounts().isEmpty()) {
+                promotion.setPreviousDiscounts(new HashMap<>(productBulkService.readDiscounts(promotion.getProductCodes())));
+                promotion = promotionRepository.save(promotion);
+            }
+            Map<Integer, Float> target = new HashMap<>();
+            for (Integer code : promotion.getPreviousDiscounts().keySet()) target.put(code, promotion.getDiscount());
+
+            long t0 = System.currentTimeMillis();
+            int updated = productBulkService.applyDiscounts(target, null, "PATCH: Promoción activada");
+            promotionRepository.transition(id, Status.ACTIVATING, Status.ACTIVE);
+            log.info("[Promo] Activada id={} productos={} en {} ms", id, updated, System.currentTimeMillis() - t0);
+            return true;
+        } catch (RuntimeException e) {
+            // Se devuelve a SCHEDULED para que el próximo reload la reintente
+            promotionRepository.transition(id, Status.ACTIVATING, Status.SCHEDULED);
+            log.error("[Promo] Falló la activación id={}: {}", id, e.toString());
+            throw e;
+        }
+    }
+
+    /**
+     * Restaura el descuento previo de cada producto. Sólo se revierten los productos que aún tienen
+     * el descuento de la promoción (un cambio manual durante la promo se respeta).
+     */
+    public boolean finish(Long id, Status finalStatus) {
+        if (promotionRepository.transition(id, Status.ACTIVE, Status.ENDING) != 1) return false;
+        try {
+            Promotion promotion = getById(id);
+            Map<Integer, Float> expected = new HashMap<>();
+            for (Integer code : promotion.getPreviousDiscounts().keySet()) expected.put(code, promotion.getDiscount());
+
+            long t0 = System.currentTimeMillis();
+            int restored = productBulkService.applyDiscounts(promotion.getPreviousDiscounts(), expected, "PATCH: Promoción finalizada");
+            promotionRepository.transition(id, Status.ENDING, finalStatus);
+            log.info("[Promo] Finalizada id={} restaurados={} en {} ms", id, restored, System.currentTimeMillis() - t0);
+            return true;
+        } catch (RuntimeException e) {
+            promotionRepository.transition(id, Status.ENDING, Status.ACTIVE);
+            log.error("[Promo] Falló la finalización id={}: {}", id, e.toString());
+            throw e;
+        }
+    }
+
+    /** Cancela una promoción programada, o la finaliza ya si estaba activa. */
+    public Promotion cancel(Long id) {
+        Promotion promotion = getById(id);
+        boolean done = switch (promotion.getStatus()) {
+            case SCHEDULED -> promotionRepository.transition(id, Status.SCHEDULED, Status.CANCELLED) == 1;
+            case ACTIVE -> finish(id, Status.CANCELLED);
+            default -> false;
+        };
+        if (!done) throw new IllegalStateException("La promoción id=" + id + " no se puede cancelar en estado " + promotion.getStatus());
+        return getById(id);
+    }
+}
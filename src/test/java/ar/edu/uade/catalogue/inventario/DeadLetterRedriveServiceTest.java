@@ -0,0 +1,103 @@
+package ar.edu.uade.catalogue.inventario;
+
+import ar.edu.uade.catalogue.messaging.DeadLetters;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class DeadLetterRedriveServiceTest {
+
+    @Mock
+    private ConsumerFactory<Object, Object> consumerFactory;
+
+    @Mock
+    private KafkaTemplate<Object, Object> template;
+
+    @Mock
+    private Consumer<Object, Object> consumer;
+
+    private DeadLetterRedriveService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new DeadLetterRedriveService(consumerFactory, template);
+        ReflectionTestUtils.setField(service, "internalTopic", "inventario");
+        ReflectionTestUtils.setField(service, "dlqSuffix", ".dlq");
+        ReflectionTestUtils.setField(service, "groupId", "inventario-ms");
+        ReflectionTestUtils.setField(service, "batchSize", 10);
+        ReflectionTestUtils.setField(service, "maxRedrives", 3);
+        ReflectionTestUtils.setField(service, "pollMs", 200L);
+    }
+
+    private static ConsumerRecord<Object, Object> dead(long offset, int redrives) {
+        ConsumerRecord<Object, Object> r = new ConsumerRecord<>("inventario.dlq", 0, offset, "k".getBytes(), ("v" + offset).getBytes());
+        r.headers().add(KafkaHeaders.DLT_ORIGINAL_TOPIC, "inventario".getBytes(StandardCharsets.UTF_8));
+        r.headers().add(DeadLetters.HEADER_REASON, "boom".getBytes(StandardCharsets.UTF_8));
+        if (redrives > 0) r.headers().add(DeadLetters.HEADER_REDRIVE_COUNT, Integer.toString(redrives).getBytes(StandardCharsets.UTF_8));
+        return r;
+    }
+
+    @Test
+    @DisplayName("shouldRepublishToOriginalTopicAndCommitOnlyUpToFirstFailure")
+    void shouldRepublishToOriginalTopicAndCommitOnlyUpToFirstFailure() {
+        when(consumerFactory.createConsumer(eq("inventario-ms-dlq-redrive"), isNull(), eq("-redrive"), any())).thenReturn(consumer);
+        TopicPartition tp = new TopicPartition("inventario.dlq", 0);
+        when(consumer.poll(any())).thenReturn(new ConsumerRecords<>(Map.of(tp, List.of(dead(5, 0), dead(6, 3), dead(7, 1), dead(8, 0)))),
+                ConsumerRecords.empty());
+        when(template.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker caído")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        DeadLetterRedriveService.Result result = service.redrive(null, 4);
+
+        assertEquals(new DeadLetterRedriveService.Result("inventario.dlq", 4, 2, 1, 1, Map.of("inventario", 3)), result);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ArgumentCaptor<ProducerRecord<Object, Object>> sent = ArgumentCaptor.forClass((Class) ProducerRecord.class);
+        verify(template, times(3)).send(sent.capture());
+        ProducerRecord<Object, Object> first = sent.getAllValues().get(0);
+        assertEquals("inventario", first.topic());
+        assertNull(first.headers().lastHeader(DeadLetters.HEADER_REASON));
+        assertEquals(1, DeadLetters.redriveCount(first.headers()));
+        assertEquals(2, DeadLetters.redriveCount(sent.getAllValues().get(1).headers()));
+        // El offset 7 falló: se confirma hasta el 6 (el 8 se vuelve a leer en el próximo redrive)
+        verify(consumer).commitSync(Map.of(tp, new OffsetAndMetadata(7)));
+    }
+
+    @Test
+    @DisplayName("shouldRejectNonDlqTopicAndConcurrentRedrive")
+    void shouldRejectNonDlqTopicAndConcurrentRedrive() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> service.redrive("ventas", 10));
+        assertThrows(IllegalArgumentException.class, () -> service.redrive(null, 0));
+
+        var running = (java.util.concurrent.locks.ReentrantLock) ReflectionTestUtils.getField(service, "running");
+        Thread holder = new Thread(running::lock);
+        holder.start();
+        holder.join();
+        assertThrows(IllegalStateException.class, () -> service.redrive(null, 10));
+        verifyNoInteractions(consumerFactory);
+    }
+}
@@ -0,0 +1,80 @@
+package ar.edu.uade.catalogue.inventario;
+
+import ar.edu.uade.catalogue.model.ConsumedEventLog.Status;
+import ar.edu.uade.catalogue.repository.ConsumedEventLogWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class EventIdempotencyServiceTest {
+
+    @Mock
+    private ConsumedEventLogWriter logWriter;
+
+    private EventIdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new EventIdempotencyService(logWriter, 100, 0.01, 1000, 24, 7);
+    }
+
+    @Test
+    @DisplayName("shouldClaimThroughDatabaseEvenWhenFilterMisses")
+    void shouldClaimThroughDatabaseEvenWhenFilterMisses() {
+        // Filtro reconstruido vacío: "ev-other" lo procesó otra instancia antes del rebalance
+        when(logWriter.forEachEventIdSince(any(), any())).thenReturn(0L);
+        service.rebuild();
+        when(logWriter.claimWithoutAck("ev-other", "post: stock actualizado", "inventario", 0, 5L)).thenReturn(false);
+        when(logWriter.state("ev-other")).thenReturn(Optional.of(new ConsumedEventLogWriter.State(Status.PROCESSED, true)));
+
+        assertFalse(service.mightExist("ev-other"));
+        assertFalse(service.claim("ev-other", "post: stock actualizado", "inventario", 0, 5L));
+        assertFalse(service.claim("ev-other", "post: stock actualizado", "inventario", 0, 5L));
+        verify(logWriter, times(1)).claimWithoutAck(any(), any(), any(), any(), any());
+
+        EventIdempotencyService.Snapshot snapshot = service.snapshot();
+        assertEquals(1, snapshot.cacheHits());
+        assertEquals(1, snapshot.durableLookups());
+    }
+
+    @Test
+    @DisplayName("shouldProcessNewOrFailedClaimsAndRecordOutcome")
+    void shouldProcessNewOrFailedClaimsAndRecordOutcome() {
+        when(logWriter.claimWithoutAck(eq("ev-1"), any(), any(), any(), any())).thenReturn(true);
+        when(logWriter.claimWithoutAck(eq("ev-2"), any(), any(), any(), any())).thenReturn(false);
+        when(logWriter.state("ev-2")).thenReturn(Optional.of(new ConsumedEventLogWriter.State(Status.ERROR, true)));
+
+        assertTrue(service.mightExist("ev-1"));
+        assertTrue(service.claim("ev-1", "t", "inventario", 0, 5L));
+        assertTrue(service.claim("ev-2", "t", "inventario", 0, 6L));
+
+        service.recordProcessed("ev-1");
+        service.recordFailed("ev-2", "boom");
+        assertTrue(service.recentlyProcessed("ev-1"));
+        verify(logWriter).complete("ev-1", Status.PROCESSED, null);
+        verify(logWriter).complete("ev-2", Status.ERROR, "boom");
+    }
+
+    @Test
+    @DisplayName("shouldNeverReturnFalseNegativesWhileGrowing")
+    void shouldNeverReturnFalseNegativesWhileGrowing() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        IntStream.range(0, 5_000).forEach(i -> filter.put("ev-" + i));
+
+        assertTrue(filter.sliceCount() > 1);
+        assertTrue(IntStream.range(0, 5_000).allMatch(i -> filter.mightContain("ev-" + i)));
+        long falsePositives = IntStream.range(0, 10_000).filter(i -> filter.mightContain("otro-" + i)).count();
+        assertTrue(falsePositives < 300, "falsos positivos: " + falsePositives);
+    }
+}
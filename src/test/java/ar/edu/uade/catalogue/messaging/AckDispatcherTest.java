@@ -0,0 +1,62 @@
+package ar.edu.uade.catalogue.messaging;
+
+import ar.edu.uade.catalogue.repository.ConsumedEventLogWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class AckDispatcherTest {
+
+    @Mock
+    private CoreApiClient coreApiClient;
+
+    @Mock
+    private ConsumedEventLogWriter logWriter;
+
+    private AckDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        // Sin start(): los lotes se disparan a mano con dispatchOnce
+        dispatcher = new AckDispatcher(coreApiClient, logWriter, 3, 0, 4);
+    }
+
+    @Test
+    @DisplayName("shouldSendMicroBatchAndRecordAcksInOneUpdate")
+    void shouldSendMicroBatchAndRecordAcksInOneUpdate() throws Exception {
+        when(coreApiClient.ackEventAsync(anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        when(coreApiClient.ackEventAsync("ev-2"))
+                .thenReturn(CompletableFuture.failedFuture(new MiddlewareCircuitBreaker.OpenException("abierto")));
+        dispatcher.submit("ev-1");
+        dispatcher.submit("ev-2");
+        dispatcher.submit("ev-1");
+        dispatcher.submit("ev-3");
+
+        // batch-size 3: ev-1, ev-2 y el duplicado de ev-1 (un solo ACK); ev-3 queda para el próximo lote
+        assertEquals(2, dispatcher.dispatchOnce(0));
+
+        verify(coreApiClient, times(1)).ackEventAsync("ev-1");
+        verify(coreApiClient, never()).ackEventAsync("ev-3");
+        verify(logWriter).recordAcks(argThat(r -> r.size() == 2 && r.get(0).error() == null && r.get(1).error().contains("abierto")));
+        assertEquals(1, dispatcher.snapshot().queued());
+    }
+
+    @Test
+    @DisplayName("shouldLeaveOverflowToDurableRetryWithoutBlocking")
+    void shouldLeaveOverflowToDurableRetryWithoutBlocking() {
+        for (int i = 0; i < 5; i++) dispatcher.submit("ev-" + i);
+
+        assertEquals(1, dispatcher.snapshot().overflow());
+        assertEquals(4, dispatcher.snapshot().queued());
+        verifyNoInteractions(coreApiClient, logWriter);
+    }
+}
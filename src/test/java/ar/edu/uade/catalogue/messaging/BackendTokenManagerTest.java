@@ -0,0 +1,59 @@
+package ar.edu.uade.catalogue.messaging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class BackendTokenManagerTest {
+
+    @Mock
+    private KeycloakClient keycloakClient;
+
+    @InjectMocks
+    private BackendTokenManager tokenManager;
+
+    @Test
+    @DisplayName("shouldFetchTokenOnceForConcurrentCallers")
+    void shouldFetchTokenOnceForConcurrentCallers() {
+        when(keycloakClient.fetchClientCredentialsToken()).thenAnswer(inv -> {
+            Thread.sleep(50);
+            return new KeycloakClient.TokenResponse("tok", 300);
+        });
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<String>> callers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            callers.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return tokenManager.getAccessToken();
+            }));
+        }
+        start.countDown();
+
+        callers.forEach(c -> assertEquals("tok", c.join()));
+        verify(keycloakClient, times(1)).fetchClientCredentialsToken();
+    }
+
+    @Test
+    @DisplayName("shouldRetryOnceAndPropagateLastError")
+    void shouldRetryOnceAndPropagateLastError() {
+        when(keycloakClient.fetchClientCredentialsToken()).thenThrow(new IllegalStateException("keycloak caído"));
+
+        assertThrows(IllegalStateException.class, () -> tokenManager.getAccessToken());
+        verify(keycloakClient, times(2)).fetchClientCredentialsToken();
+    }
+}
@@ -0,0 +1,85 @@
+package ar.edu.uade.catalogue.messaging;
+
+import ar.edu.uade.catalogue.model.ConsumedEventLog.Status;
+import ar.edu.uade.catalogue.repository.ConsumedEventLogWriter;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class ConsumerHealthServiceTest {
+
+    @Mock
+    private ConsumedEventLogWriter logWriter;
+
+    @Mock
+    private KafkaListenerEndpointRegistry registry;
+
+    @Mock
+    private SalesEventsListener salesListener;
+
+    @InjectMocks
+    private ConsumerHealthService service;
+
+    private static Metric metric(Object value) {
+        Metric m = mock(Metric.class);
+        lenient().when(m.metricValue()).thenReturn(value);
+        return m;
+    }
+
+    private static MetricName lag(String partition) {
+        return new MetricName("records-lag", "consumer-fetch-manager-metrics", "", Map.of("topic", "ventas", "partition", partition));
+    }
+
+    @Test
+    @DisplayName("shouldServeCountsFromLastRefreshWithoutQueryingPerRequest")
+    void shouldServeCountsFromLastRefreshWithoutQueryingPerRequest() {
+        ReflectionTestUtils.setField(service, "salesTopic", "ventas");
+        when(logWriter.aggregate("ventas")).thenReturn(new ConsumedEventLogWriter.Aggregate(
+                Map.of(Status.PROCESSED, 90L, Status.ERROR, 4L, Status.PENDING, 6L), LocalDateTime.now().minusMinutes(5)));
+        when(registry.getAllListenerContainers()).thenReturn(List.of());
+        when(salesListener.snapshot()).thenReturn(new SalesEventsListener.Snapshot(3, 1, 0, 0, 0));
+
+        assertEquals(false, service.ventasHealth().get("countsReady"));
+        service.refresh();
+        service.ventasHealth();
+        Map<String, Object> health = service.ventasHealth();
+
+        verify(logWriter, times(1)).aggregate("ventas");
+        assertEquals(100L, health.get("total"));
+        assertEquals(90L, health.get("processed"));
+        assertEquals(4L, health.get("error"));
+        assertEquals(6L, health.get("pending"));
+        assertTrue((Long) health.get("oldestPendingAgeMs") >= 5 * 60_000L);
+        assertEquals(new SalesEventsListener.Snapshot(3, 1, 0, 0, 0), health.get("consumer"));
+    }
+
+    @Test
+    @DisplayName("shouldReportLagPerPartitionFromClientMetrics")
+    void shouldReportLagPerPartitionFromClientMetrics() {
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        when(container.isRunning()).thenReturn(true);
+        Map<MetricName, Metric> metrics = Map.of(
+                lag("0"), metric(12.0),
+                lag("1"), metric(Double.NaN),
+                new MetricName("records-consumed-rate", "consumer-fetch-manager-metrics", "", Map.of()), metric(5.0));
+        doReturn(Map.of("client-0", metrics)).when(container).metrics();
+        when(registry.getAllListenerContainers()).thenReturn(List.of(container));
+
+        assertEquals(Map.of("ventas-0", 12L), service.lagByPartition());
+    }
+}
@@ -0,0 +1,91 @@
+package ar.edu.uade.catalogue.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class CoreApiClientTest {
+
+    @Mock
+    private HttpClient httpClient;
+
+    @Mock
+    private BackendTokenManager tokenManager;
+
+    @Mock
+    private HttpResponse<String> response;
+
+    private CoreApiClient client;
+
+    @BeforeEach
+    void setUp() {
+        // Umbral 100 %: sólo abre si fallan todas las llamadas de la ventana
+        client = new CoreApiClient(httpClient, new ObjectMapper(), tokenManager,
+                new MiddlewareCircuitBreaker(4, 100, 2, 60_000, 1));
+        ReflectionTestUtils.setField(client, "intermediaryBaseUrl", "http://middleware:8090");
+        ReflectionTestUtils.setField(client, "clientId", "storage-app");
+        ReflectionTestUtils.setField(client, "maxPerRoute", 1);
+        ReflectionTestUtils.setField(client, "acquireTimeoutMs", 20L);
+        ReflectionTestUtils.setField(client, "requestTimeoutMs", 1000L);
+        lenient().when(tokenManager.getAccessToken()).thenReturn("token");
+    }
+
+    @Test
+    @DisplayName("shouldRethrowServerErrorAndReleaseWindow")
+    void shouldRethrowServerErrorAndReleaseWindow() {
+        when(response.statusCode()).thenReturn(503, 200);
+        when(httpClient.sendAsync(any(HttpRequest.class), ArgumentMatchers.<HttpResponse.BodyHandler<String>>any()))
+                .thenReturn(CompletableFuture.completedFuture(response));
+
+        assertThrows(HttpServerErrorException.class, () -> client.postEvent("ev-1", "PUT: Actualizar stock", Map.of("a", 1), 1L));
+        // Con ventana de 1, el segundo envío sólo pasa si el primero la liberó
+        assertDoesNotThrow(() -> client.ackEvent("ev-1"));
+        verify(httpClient, times(2)).sendAsync(any(HttpRequest.class), ArgumentMatchers.<HttpResponse.BodyHandler<String>>any());
+    }
+
+    @Test
+    @DisplayName("shouldApplyBackpressureWhenWindowIsFull")
+    void shouldApplyBackpressureWhenWindowIsFull() {
+        when(httpClient.sendAsync(any(HttpRequest.class), ArgumentMatchers.<HttpResponse.BodyHandler<String>>any()))
+                .thenReturn(new CompletableFuture<>());
+
+        CompletableFuture<Void> inFlight = client.postEventAsync("ev-1", "t", Map.of(), 1L);
+        CompletableFuture<Void> rejected = client.postEventAsync("ev-2", "t", Map.of(), 1L);
+
+        assertFalse(inFlight.isDone());
+        var ex = assertThrows(java.util.concurrent.CompletionException.class, rejected::join);
+        assertInstanceOf(ResourceAccessException.class, ex.getCause());
+        verify(httpClient, times(1)).sendAsync(any(HttpRequest.class), ArgumentMatchers.<HttpResponse.BodyHandler<String>>any());
+    }
+
+    @Test
+    @DisplayName("shouldFailFastWithoutCallingMiddlewareWhenCircuitIsOpen")
+    void shouldFailFastWithoutCallingMiddlewareWhenCircuitIsOpen() {
+        when(response.statusCode()).thenReturn(503);
+        when(httpClient.sendAsync(any(HttpRequest.class), ArgumentMatchers.<HttpResponse.BodyHandler<String>>any()))
+                .thenReturn(CompletableFuture.completedFuture(response));
+
+        assertThrows(HttpServerErrorException.class, () -> client.ackEvent("ev-1"));
+        assertThrows(HttpServerErrorException.class, () -> client.ackEvent("ev-2"));
+        assertThrows(MiddlewareCircuitBreaker.OpenException.class, () -> client.ackEvent("ev-3"));
+        verify(httpClient, times(2)).sendAsync(any(HttpRequest.class), ArgumentMatchers.<HttpResponse.BodyHandler<String>>any());
+    }
+}
@@ -0,0 +1,31 @@
+package ar.edu.uade.catalogue.messaging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventTypeNormalizerTest {
+
+    @Test
+    @DisplayName("shouldResolveAccentsCaseAndAliasesToCanonicalType")
+    void shouldResolveAccentsCaseAndAliasesToCanonicalType() {
+        assertEquals(EventType.COMPRA_PENDIENTE, EventTypeNormalizer.resolve("POST: Compra Pendiente").type());
+        assertEquals(EventType.STOCK_ROLLBACK, EventTypeNormalizer.resolve("StockRollback_CartCancelled").type());
+        assertEquals(EventType.REVIEW_CREADA, EventTypeNormalizer.resolve(" POST: Review creada ").type());
+        assertEquals(EventType.PRODUCTO_ELIMINADO, EventTypeNormalizer.resolve("DELETE: Producto eliminado").type());
+
+        EventTypeNormalizer.Resolved unknown = EventTypeNormalizer.resolve("PATCH: Descuento Actualizado ");
+        assertEquals(EventType.UNKNOWN, unknown.type());
+        assertEquals("patch: descuento actualizado", unknown.normalized());
+        assertEquals("", EventTypeNormalizer.normalize(null));
+    }
+
+    @Test
+    @DisplayName("shouldReturnSameCachedInstanceForRepeatedType")
+    void shouldReturnSameCachedInstanceForRepeatedType() {
+        EventTypeNormalizer.Resolved first = EventTypeNormalizer.resolve("DELETE: Compra cancelada");
+        assertSame(first, EventTypeNormalizer.resolve("DELETE: Compra cancelada"));
+        assertEquals("delete: compra cancelada", first.normalized());
+    }
+}
@@ -0,0 +1,199 @@
+package ar.edu.uade.catalogue.messaging;
+
+import ar.edu.uade.catalogue.model.Brand;
+import ar.edu.uade.catalogue.model.Category;
+import ar.edu.uade.catalogue.model.Product;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class InventoryEventPublisherTest {
+
+    @Mock
+    private EventTransport transport;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private MiddlewareRetryQueue retryQueue;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private InventoryEventPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new InventoryEventPublisher(transport, jdbcTemplate, objectMapper, new ProductPayloadWriter(objectMapper),
+                retryQueue);
+        ReflectionTestUtils.setField(publisher, "commEnabled", true);
+        ReflectionTestUtils.setField(publisher, "outboxEnabled", true);
+        ReflectionTestUtils.setField(publisher, "batchChunkSize", 2);
+    }
+
+    private Product product(int code) {
+        Product p = new Product();
+        p.setProductCode(code);
+        p.setName("Producto " + code);
+        p.setPrice(9.5f);
+        p.setStock(3);
+        Category c = new Category();
+        c.setCategoryCode(7);
+        p.setCategories(new ArrayList<>(List.of(c)));
+        Brand b = new Brand();
+        b.setBrandCode(4);
+        p.setBrand(b);
+        p.setFeatured(true);
+        return p;
+    }
+
+    private List<String> capturedPayloads(int times) {
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate, times(times)).update(anyString(), any(), any(), any(), payload.capture(), any(), any());
+        return payload.getAllValues().stream().map(String.class::cast).toList();
+    }
+
+    @Test
+    @DisplayName("shouldWriteProductPayloadWithContractAliases")
+    void shouldWriteProductPayloadWithContractAliases() throws Exception {
+        publisher.emitProductoActualizado(product(10));
+
+        JsonNode json = objectMapper.readTree(capturedPayloads(1).get(0));
+        assertEquals(10, json.get("productCode").asInt());
+        assertEquals(9.5, json.get("price").asDouble());
+        assertEquals(7, json.get("categories").get(0).asInt());
+        assertEquals(7, json.get("categoryCodes").get(0).asInt());
+        assertEquals(4, json.get("brandCode").asInt());
+        assertTrue(json.get("featured").asBoolean());
+        assertTrue(json.get("is_featured").asBoolean());
+        assertFalse(json.has("activated"));
+    }
+
+    @Test
+    @DisplayName("shouldSplitLargeBatchIntoSequencedChunks")
+    void shouldSplitLargeBatchIntoSequencedChunks() throws Exception {
+        publisher.emitAgregarProductosBatch(IntStream.rangeClosed(1, 5).mapToObj(this::product).toList());
+
+        List<String> payloads = capturedPayloads(3);
+        String batchId = objectMapper.readTree(payloads.get(0)).get("batchId").asText();
+        for (int seq = 0; seq < 3; seq++) {
+            JsonNode json = objectMapper.readTree(payloads.get(seq));
+            assertEquals(seq, json.get("seq").asInt());
+            assertEquals(3, json.get("chunks").asInt());
+            assertEquals(batchId, json.get("batchId").asText());
+            assertEquals(seq < 2 ? 2 : 1, json.get("count").asInt());
+            assertEquals(json.get("count").asInt(), json.get("items").size());
+        }
+        verifyNoInteractions(transport);
+    }
+
+    @Test
+    @DisplayName("shouldQueueDirectEventForRetryWhenMiddlewareFails")
+    void shouldQueueDirectEventForRetryWhenMiddlewareFails() {
+        ReflectionTestUtils.setField(publisher, "outboxEnabled", false);
+        when(transport.send(anyString(), anyString(), anyString(), anyString(), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(new MiddlewareCircuitBreaker.OpenException("abierto")));
+
+        assertDoesNotThrow(() -> publisher.emitActualizarStock(product(10)));
+
+        ArgumentCaptor<String> eventId = ArgumentCaptor.forClass(String.class);
+        verify(transport).send(eventId.capture(), eq("PUT: Actualizar stock"), eq("product:10"), anyString(), anyLong());
+        verify(retryQueue).enqueueEvent(eq(eventId.getValue()), eq("PUT: Actualizar stock"), eq("product:10"),
+                contains("\"productCode\":10"), anyLong());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("shouldSendOnlyChangedFieldsAsVersionedDelta")
+    void shouldSendOnlyChangedFieldsAsVersionedDelta() throws Exception {
+        ReflectionTestUtils.setField(publisher, "deltaEnabled", true);
+        ReflectionTestUtils.setField(publisher, "snapshotEvery", 50);
+        Product p = product(10);
+        p.setChangeVersion(4L);
+        when(jdbcTemplate.update(startsWith("UPDATE product"), eq(10))).thenReturn(1);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq(10))).thenReturn(5L);
+        var before = publisher.captureState(p);
+        p.setDiscount(0.2f);
+        p.setFeatured(false);
+
+        publisher.emitProductoActualizado(before, p);
+
+        ArgumentCaptor<Object> type = ArgumentCaptor.forClass(Object.class);
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate).update(anyString(), any(), type.capture(), any(), payload.capture(), any(), any());
+        assertEquals(InventoryEventPublisher.TYPE_PRODUCTO_DELTA, type.getValue());
+        JsonNode json = objectMapper.readTree((String) payload.getValue());
+        assertEquals(5, json.get("version").asInt());
+        assertEquals(5L, p.getChangeVersion());
+        assertEquals("[\"discount\",\"featured\"]", json.get("changed").toString());
+        assertEquals(0.2, json.get("discount").asDouble(), 1e-6);
+        assertFalse(json.get("is_featured").asBoolean());
+        assertFalse(json.has("name"));
+        assertFalse(json.has("categories"));
+    }
+
+    @Test
+    @DisplayName("shouldTakeDeltaVersionFromRowInsteadOfStaleEntity")
+    void shouldTakeDeltaVersionFromRowInsteadOfStaleEntity() throws Exception {
+        ReflectionTestUtils.setField(publisher, "deltaEnabled", true);
+        ReflectionTestUtils.setField(publisher, "snapshotEvery", 50);
+        Product p = product(10);
+        p.setChangeVersion(4L);
+        // Otra transacción ya llevó la fila a 8: esta modificación es la 9, no la 5
+        when(jdbcTemplate.update(startsWith("UPDATE product"), eq(10))).thenReturn(1);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq(10))).thenReturn(9L);
+        var before = publisher.captureState(p);
+        p.setStock(1);
+
+        publisher.emitProductoActualizado(before, p);
+
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate).update(anyString(), any(), any(), any(), payload.capture(), any(), any());
+        assertEquals(9, objectMapper.readTree((String) payload.getValue()).get("version").asInt());
+        assertEquals(9L, p.getChangeVersion());
+    }
+
+    @Test
+    @DisplayName("shouldSendFullSnapshotEverySnapshotEveryVersions")
+    void shouldSendFullSnapshotEverySnapshotEveryVersions() throws Exception {
+        ReflectionTestUtils.setField(publisher, "deltaEnabled", true);
+        ReflectionTestUtils.setField(publisher, "snapshotEvery", 3);
+        Product p = product(10);
+        p.setChangeVersion(1L);
+        when(jdbcTemplate.update(startsWith("UPDATE product"), eq(10))).thenReturn(1);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq(10))).thenReturn(2L, 3L, 4L);
+        for (int stock = 4; stock <= 6; stock++) {
+            var before = publisher.captureState(p);
+            p.setStock(stock);
+            publisher.emitProductoActualizado(before, p);
+        }
+        publisher.emitProductoActualizado(publisher.captureState(p), p);
+
+        ArgumentCaptor<Object> type = ArgumentCaptor.forClass(Object.class);
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate, times(3)).update(anyString(), any(), type.capture(), any(), payload.capture(), any(), any());
+        assertEquals(List.of(InventoryEventPublisher.TYPE_PRODUCTO_DELTA, InventoryEventPublisher.TYPE_PRODUCTO_ACTUALIZADO,
+                InventoryEventPublisher.TYPE_PRODUCTO_DELTA), type.getAllValues());
+        JsonNode snapshot = objectMapper.readTree((String) payload.getAllValues().get(1));
+        assertEquals(3, snapshot.get("version").asInt());
+        assertEquals("Producto 10", snapshot.get("name").asText());
+        assertEquals(4L, p.getChangeVersion());
+    }
+}
@@ -0,0 +1,66 @@
+package ar.edu.uade.catalogue.messaging;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaEventTransportTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MockProducer<String, String> producer;
+    private KafkaEventTransport transport;
+
+    @BeforeEach
+    void setUp() {
+        producer = new MockProducer<>(false, new StringSerializer(), new StringSerializer());
+        transport = new KafkaEventTransport(new KafkaTemplate<>(new MockProducerFactory<>(() -> producer)), objectMapper);
+        ReflectionTestUtils.setField(transport, "topic", "catalogo-eventos");
+        ReflectionTestUtils.setField(transport, "clientId", "storage-app");
+    }
+
+    @Test
+    @DisplayName("shouldProduceEnvelopeKeyedByAggregateWithRawPayload")
+    void shouldProduceEnvelopeKeyedByAggregateWithRawPayload() throws Exception {
+        CompletableFuture<Void> sent = transport.send("ev-1", "PUT: Actualizar stock", "product:10", "{\"stock\":3}", 1234L);
+        assertFalse(sent.isDone());
+
+        producer.completeNext();
+        sent.join();
+
+        ProducerRecord<String, String> record = producer.history().get(0);
+        assertEquals("catalogo-eventos", record.topic());
+        assertEquals("product:10", record.key());
+        assertEquals(1234L, record.timestamp());
+        assertEquals("ev-1", new String(record.headers().lastHeader(KafkaEventTransport.HEADER_EVENT_ID).value(), StandardCharsets.UTF_8));
+        JsonNode value = objectMapper.readTree(record.value());
+        assertEquals("PUT: Actualizar stock", value.get("type").asText());
+        assertEquals("storage-app", value.get("originModule").asText());
+        assertEquals(3, value.get("payload").get("stock").asInt());
+        assertTrue(transport.pipelined());
+    }
+
+    @Test
+    @DisplayName("shouldFailFutureWhenBrokerRejectsRecord")
+    void shouldFailFutureWhenBrokerRejectsRecord() {
+        CompletableFuture<Void> sent = transport.send("ev-1", "t", "batch", "{}", 1L);
+
+        producer.errorNext(new TimeoutException("broker caído"));
+
+        assertThrows(CompletionException.class, sent::join);
+    }
+}
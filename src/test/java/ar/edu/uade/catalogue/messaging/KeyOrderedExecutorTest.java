@@ -0,0 +1,78 @@
+package ar.edu.uade.catalogue.messaging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyOrderedExecutorTest {
+
+    private final KeyOrderedExecutor executor = new KeyOrderedExecutor(4, false);
+
+    @AfterEach
+    void tearDown() {
+        executor.stop();
+    }
+
+    private record Rec(int id, Set<String> keys) {}
+
+    @Test
+    @DisplayName("shouldKeepPollOrderPerKey")
+    void shouldKeepPollOrderPerKey() {
+        List<Rec> records = new ArrayList<>();
+        for (int i = 0; i < 40; i++) records.add(new Rec(i, Set.of("product:" + (i % 3))));
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+
+        int completed = executor.process(records, Rec::keys, r -> seen.add(r.id()));
+
+        assertEquals(records.size(), completed);
+        for (int k = 0; k < 3; k++) {
+            final int key = k;
+            List<Integer> lane = seen.stream().filter(id -> id % 3 == key).toList();
+            assertEquals(lane.stream().sorted().toList(), lane);
+        }
+    }
+
+    @Test
+    @DisplayName("shouldMergeLanesOfRecordTouchingSeveralProducts")
+    void shouldMergeLanesOfRecordTouchingSeveralProducts() {
+        List<Rec> records = List.of(
+                new Rec(0, Set.of("product:1")),
+                new Rec(1, Set.of("product:2")),
+                new Rec(2, Set.of("product:1", "product:2")),
+                new Rec(3, Set.of("product:2")));
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+
+        executor.process(records, Rec::keys, r -> seen.add(r.id()));
+
+        // Los cuatro comparten lane: orden del poll
+        assertEquals(List.of(0, 1, 2, 3), seen);
+    }
+
+    @Test
+    @DisplayName("shouldReturnFirstIncompleteIndexAndStopOnlyFailedLane")
+    void shouldReturnFirstIncompleteIndexAndStopOnlyFailedLane() {
+        List<Rec> records = List.of(
+                new Rec(0, Set.of("product:1")),
+                new Rec(1, Set.of("product:2")),
+                new Rec(2, Set.of("product:2")),
+                new Rec(3, Set.of("product:1")),
+                new Rec(4, Set.of()));
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+
+        int completed = executor.process(records, Rec::keys, r -> {
+            if (r.id() == 1) throw new IllegalStateException("falla");
+            seen.add(r.id());
+        });
+
+        assertEquals(1, completed);
+        assertFalse(seen.contains(2));
+        assertTrue(seen.containsAll(List.of(0, 3, 4)));
+    }
+}
@@ -0,0 +1,50 @@
+package ar.edu.uade.catalogue.messaging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MiddlewareCircuitBreakerTest {
+
+    @Test
+    @DisplayName("shouldOpenOnlyAfterMinimumCallsAndThresholdReached")
+    void shouldOpenOnlyAfterMinimumCallsAndThresholdReached() {
+        MiddlewareCircuitBreaker breaker = new MiddlewareCircuitBreaker(10, 50, 4, 60_000, 2);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(MiddlewareCircuitBreaker.State.CLOSED, breaker.state());
+
+        breaker.onSuccess();
+        assertEquals(MiddlewareCircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.snapshot().rejectedCalls());
+        assertEquals(1, breaker.snapshot().timesOpened());
+    }
+
+    @Test
+    @DisplayName("shouldCloseAfterSuccessfulProbesAndReopenOnFailedProbe")
+    void shouldCloseAfterSuccessfulProbesAndReopenOnFailedProbe() {
+        MiddlewareCircuitBreaker breaker = new MiddlewareCircuitBreaker(2, 50, 2, 0, 2);
+        breaker.onFailure();
+        breaker.onFailure();
+
+        // open.ms = 0: el siguiente pedido ya pasa a HALF_OPEN con dos permisos
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(MiddlewareCircuitBreaker.State.HALF_OPEN, breaker.state());
+        breaker.onSuccess();
+        breaker.onSuccess();
+        assertEquals(MiddlewareCircuitBreaker.State.CLOSED, breaker.state());
+
+        breaker.onFailure();
+        breaker.onFailure();
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(MiddlewareCircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(3, breaker.snapshot().timesOpened());
+    }
+}
@@ -0,0 +1,101 @@
+package ar.edu.uade.catalogue.messaging;
+
+import ar.edu.uade.catalogue.repository.ConsumedEventLogWriter;
+import ar.edu.uade.catalogue.repository.ConsumedEventLogWriter.AckResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class MiddlewareRetryQueueTest {
+
+    @Mock
+    private CoreApiClient coreApiClient;
+
+    @Mock
+    private EventTransport transport;
+
+    @Mock
+    private ConsumedEventLogWriter logWriter;
+
+    @TempDir
+    Path dir;
+
+    private MiddlewareRetryQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new MiddlewareRetryQueue(coreApiClient, transport, new MiddlewareCircuitBreaker(20, 50, 10, 30_000, 3),
+                logWriter, new ObjectMapper());
+        ReflectionTestUtils.setField(queue, "enabled", true);
+        ReflectionTestUtils.setField(queue, "capacity", 1);
+        ReflectionTestUtils.setField(queue, "batchSize", 10);
+        ReflectionTestUtils.setField(queue, "maxAttempts", 3);
+        ReflectionTestUtils.setField(queue, "backoffMs", 0L);
+        ReflectionTestUtils.setField(queue, "maxBackoffMs", 0L);
+        ReflectionTestUtils.setField(queue, "spillFile", dir.resolve("retry.ndjson"));
+    }
+
+    @Test
+    @DisplayName("shouldSpillOverflowToDiskAndReloadWhenThereIsRoom")
+    void shouldSpillOverflowToDiskAndReloadWhenThereIsRoom() throws Exception {
+        when(transport.send(anyString(), eq("PUT: Actualizar stock"), eq("product:1"), eq("{\"productCode\":1}"), eq(5L)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        queue.enqueueEvent("ev-1", "PUT: Actualizar stock", "product:1", "{\"productCode\":1}", 5L);
+        queue.enqueueEvent("ev-2", "PUT: Actualizar stock", "product:1", "{\"productCode\":1}", 5L);
+        assertEquals(1, queue.snapshot().inMemory());
+        assertEquals(1, queue.snapshot().spilled());
+        assertEquals(1, Files.readAllLines(dir.resolve("retry.ndjson")).size());
+
+        assertEquals(1, queue.drain());
+        assertEquals(1, queue.drain());
+        assertEquals(0, queue.snapshot().spilled());
+        assertFalse(Files.exists(dir.resolve("retry.ndjson")));
+        assertEquals(2, queue.snapshot().delivered());
+    }
+
+    @Test
+    @DisplayName("shouldDeliverSpilledLegacyAcksAndDropAfterMaxAttempts")
+    void shouldDeliverSpilledLegacyAcksAndDropAfterMaxAttempts() throws Exception {
+        when(coreApiClient.ackEventAsync("ok")).thenReturn(CompletableFuture.completedFuture(null));
+        when(coreApiClient.ackEventAsync("down"))
+                .thenReturn(CompletableFuture.failedFuture(new ResourceAccessException("timeout")));
+        ReflectionTestUtils.setField(queue, "capacity", 10);
+        // ACKs bajados a disco por una versión anterior: ya no se encolan, pero se vacían
+        ObjectMapper mapper = new ObjectMapper();
+        Files.write(dir.resolve("retry.ndjson"), List.of(
+                mapper.writeValueAsString(new MiddlewareRetryQueue.Pending(MiddlewareRetryQueue.Kind.ACK, "ok", null, null, null, 0L, 0, 0L)),
+                mapper.writeValueAsString(new MiddlewareRetryQueue.Pending(MiddlewareRetryQueue.Kind.ACK, "down", null, null, null, 0L, 0, 0L))));
+        queue.loadSpillCount();
+        queue.drain();
+
+        ArgumentCaptor<List<AckResult>> acks = ArgumentCaptor.forClass(List.class);
+        verify(logWriter).recordAcks(acks.capture());
+        assertEquals(Set.of(new AckResult("ok", null),
+                new AckResult("down", "org.springframework.web.client.ResourceAccessException: timeout")), Set.copyOf(acks.getValue()));
+
+        queue.drain();
+        queue.drain();
+        assertEquals(1, queue.snapshot().dropped());
+        assertEquals(0, queue.snapshot().inMemory());
+        verify(coreApiClient, times(3)).ackEventAsync("down");
+    }
+}
@@ -0,0 +1,219 @@
+package ar.edu.uade.catalogue.messaging;
+
+import ar.edu.uade.catalogue.model.OutboxEvent;
+import ar.edu.uade.catalogue.model.OutboxEvent.Status;
+import ar.edu.uade.catalogue.repository.OutboxEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class OutboxDispatcherTest {
+
+    @Mock
+    private OutboxEventRepository repo;
+
+    @Mock
+    private EventTransport transport;
+
+    private OutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new OutboxDispatcher(repo, transport, 2, false);
+        ReflectionTestUtils.setField(dispatcher, "enabled", true);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 500);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 20);
+        ReflectionTestUtils.setField(dispatcher, "backoffMs", 1000L);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffMs", 300000L);
+        ReflectionTestUtils.setField(dispatcher, "coalesceWindowMs", 2000L);
+        lenient().when(transport.send(anyString(), anyString(), anyString(), anyString(), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.stop();
+    }
+
+    private OutboxEvent event(long id, String key) {
+        return event(id, key, "POST: Producto creado");
+    }
+
+    private OutboxEvent event(long id, String key, String type) {
+        OutboxEvent e = new OutboxEvent();
+        ReflectionTestUtils.setField(e, "id", id);
+        e.setEventId("ev-" + id);
+        e.setEventType(type);
+        e.setAggregateKey(key);
+        e.setPayloadJson("{\"id\":" + id + "}");
+        e.setOccurredAt(1000L + id);
+        return e;
+    }
+
+    private void pending(OutboxEvent... events) {
+        when(repo.findDispatchable(any(), anyCollection(), eq(500))).thenReturn(List.of(events));
+    }
+
+    @Test
+    @DisplayName("shouldSendEventsInOrderPerKeyAndMarkThemSent")
+    void shouldSendEventsInOrderPerKeyAndMarkThemSent() {
+        pending(event(1, "product:1"), event(2, "product:2"), event(3, "product:1"));
+
+        assertEquals(3, dispatcher.drain());
+
+        InOrder order = inOrder(transport);
+        order.verify(transport).send(eq("ev-1"), anyString(), anyString(), anyString(), eq(1001L));
+        order.verify(transport).send(eq("ev-3"), anyString(), anyString(), anyString(), eq(1003L));
+        verify(transport).send(eq("ev-2"), anyString(), anyString(), anyString(), anyLong());
+        verify(repo).markSent(argThat(ids -> ids.size() == 3 && ids.containsAll(List.of(1L, 2L, 3L))), any());
+    }
+
+    @Test
+    @DisplayName("shouldHoldKeyAfterFailureAndScheduleBackoff")
+    void shouldHoldKeyAfterFailureAndScheduleBackoff() {
+        OutboxEvent failing = event(1, "product:1");
+        pending(failing, event(2, "product:2"), event(3, "product:1"));
+        lenient().when(transport.send(eq("ev-1"), anyString(), anyString(), anyString(), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(new ResourceAccessException("timeout")));
+
+        assertEquals(1, dispatcher.drain());
+
+        verify(transport, never()).send(eq("ev-3"), anyString(), anyString(), anyString(), anyLong());
+        verify(repo).markSent(eq(List.of(2L)), any());
+        verify(repo).save(failing);
+        assertEquals(1, failing.getAttempts());
+        assertEquals(Status.PENDING, failing.getStatus());
+        assertNotNull(failing.getNextAttemptAt());
+    }
+
+    @Test
+    @DisplayName("shouldNotSendBatchEventAheadOfBlockedKey")
+    void shouldNotSendBatchEventAheadOfBlockedKey() {
+        OutboxEvent notDue = event(1, "product:1");
+        notDue.setNextAttemptAt(java.time.LocalDateTime.now().plusMinutes(5));
+        pending(notDue, event(2, InventoryEventPublisher.BATCH_KEY), event(3, "product:2"));
+
+        assertEquals(0, dispatcher.drain());
+
+        verify(transport, never()).send(anyString(), anyString(), anyString(), anyString(), anyLong());
+        verify(repo, never()).markSent(any(), any());
+    }
+
+    @Test
+    @DisplayName("shouldMarkFailedOnClientError")
+    void shouldMarkFailedOnClientError() {
+        OutboxEvent rejected = event(1, "category:4");
+        pending(rejected);
+        when(transport.send(anyString(), anyString(), anyString(), anyString(), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", null, null, null)));
+
+        dispatcher.drain();
+
+        assertEquals(Status.FAILED, rejected.getStatus());
+        verify(repo).save(rejected);
+    }
+
+    @Test
+    @DisplayName("shouldCoalesceSnapshotsKeepingTransitions")
+    void shouldCoalesceSnapshotsKeepingTransitions() {
+        String stock = InventoryEventPublisher.TYPE_ACTUALIZAR_STOCK;
+        String update = InventoryEventPublisher.TYPE_PRODUCTO_ACTUALIZADO;
+        pending(event(1, "product:1", stock), event(2, "product:1", update), event(3, "product:1", stock),
+                event(4, "product:1", "PATCH: Producto desactivado"), event(5, "product:1", stock),
+                event(6, "product:1", stock));
+
+        assertEquals(4, dispatcher.drain());
+
+        InOrder order = inOrder(transport);
+        order.verify(transport).send(eq("ev-2"), anyString(), anyString(), anyString(), anyLong());
+        order.verify(transport).send(eq("ev-3"), anyString(), anyString(), anyString(), anyLong());
+        order.verify(transport).send(eq("ev-4"), anyString(), anyString(), anyString(), anyLong());
+        order.verify(transport).send(eq("ev-6"), anyString(), anyString(), anyString(), anyLong());
+        verify(transport, times(4)).send(anyString(), anyString(), anyString(), anyString(), anyLong());
+        verify(repo).markCoalesced(eq(List.of(1L, 5L)), any());
+    }
+
+    @Test
+    @DisplayName("shouldHoldKeyUntilCoalescingWindowElapses")
+    void shouldHoldKeyUntilCoalescingWindowElapses() {
+        OutboxEvent recent = event(1, "product:1", InventoryEventPublisher.TYPE_ACTUALIZAR_STOCK);
+        recent.setOccurredAt(System.currentTimeMillis());
+        pending(recent, event(2, "product:2"));
+
+        assertEquals(1, dispatcher.drain());
+
+        verify(transport, never()).send(eq("ev-1"), anyString(), anyString(), anyString(), anyLong());
+        verify(repo).markSent(eq(List.of(2L)), any());
+    }
+
+    @Test
+    @DisplayName("shouldPipelineKeyOnOrderedTransportAndStopAtFirstFailure")
+    void shouldPipelineKeyOnOrderedTransportAndStopAtFirstFailure() {
+        OutboxEvent failing = event(2, "product:1");
+        pending(event(1, "product:1"), failing, event(3, "product:1"));
+        when(transport.pipelined()).thenReturn(true);
+        when(transport.send(eq("ev-2"), anyString(), anyString(), anyString(), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(new ResourceAccessException("broker")));
+
+        assertEquals(1, dispatcher.drain());
+
+        // Los tres salen sin esperar confirmaciones; sólo el prefijo confirmado se marca SENT
+        verify(transport).send(eq("ev-3"), anyString(), anyString(), anyString(), anyLong());
+        verify(repo).markSent(eq(List.of(1L)), any());
+        assertEquals(1, failing.getAttempts());
+    }
+
+    private OutboxEvent batchEvent(long id, int... productCodes) {
+        OutboxEvent e = event(id, InventoryEventPublisher.BATCH_KEY, "PUT: Actualizar stock (batch)");
+        StringBuilder items = new StringBuilder();
+        for (int code : productCodes) items.append(items.isEmpty() ? "" : ",").append("{\"productCode\":").append(code).append('}');
+        e.setPayloadJson("{\"items\":[" + items + "]}");
+        return e;
+    }
+
+    @Test
+    @DisplayName("shouldHoldBatchOnlyBehindTheKeysItTouches")
+    void shouldHoldBatchOnlyBehindTheKeysItTouches() {
+        OutboxEvent notDue = event(1, "product:1");
+        notDue.setNextAttemptAt(java.time.LocalDateTime.now().plusMinutes(5));
+        pending(notDue, batchEvent(2, 3), event(3, "product:2"), batchEvent(4, 1, 2), event(5, "product:1"),
+                event(6, "product:4"));
+
+        assertEquals(3, dispatcher.drain());
+
+        // El batch 2 no toca product:1 y sale; el 4 sí: espera, y con él lo posterior de sus productos
+        InOrder order = inOrder(transport);
+        order.verify(transport).send(eq("ev-2"), anyString(), anyString(), anyString(), anyLong());
+        order.verify(transport).send(eq("ev-3"), anyString(), anyString(), anyString(), anyLong());
+        verify(transport).send(eq("ev-6"), anyString(), anyString(), anyString(), anyLong());
+        verify(transport, never()).send(eq("ev-4"), anyString(), anyString(), anyString(), anyLong());
+        verify(transport, never()).send(eq("ev-5"), anyString(), anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    @DisplayName("shouldLeaveKeysOfBatchInBackoffOutOfThePage")
+    void shouldLeaveKeysOfBatchInBackoffOutOfThePage() {
+        when(repo.findInBackoff(eq(InventoryEventPublisher.BATCH_KEY), any())).thenReturn(List.of(batchEvent(1, 7, 8)));
+        pending(event(2, "product:9"));
+
+        assertEquals(1, dispatcher.drain());
+
+        verify(repo).findDispatchable(any(), argThat(keys -> keys.size() == 2 && keys.containsAll(List.of("product:7", "product:8"))), eq(500));
+    }
+}
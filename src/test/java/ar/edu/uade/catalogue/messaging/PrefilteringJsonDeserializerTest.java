@@ -0,0 +1,78 @@
+package ar.edu.uade.catalogue.messaging;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefilteringJsonDeserializerTest {
+
+    private PrefilteringJsonDeserializer deserializer;
+
+    @BeforeEach
+    void setUp() {
+        deserializer = new PrefilteringJsonDeserializer();
+        deserializer.configure(Map.of(
+                PrefilteringJsonDeserializer.TOPICS_CONFIG, "ventas",
+                "spring.json.trusted.packages", "*",
+                "spring.json.use.type.headers", "false",
+                "spring.json.value.default.type", EventMessage.class.getName()), false);
+    }
+
+    private static byte[] json(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("shouldSkipUnhandledTypeWithoutFullDeserialization")
+    void shouldSkipUnhandledTypeWithoutFullDeserialization() {
+        RecordHeaders headers = new RecordHeaders();
+        Object value = deserializer.deserialize("ventas", headers, json(
+                "{\"eventId\":\"ev-1\",\"timestamp\":{\"a\":[1,2]},\"eventType\":\"POST: Compra pendiente\","
+                        + "\"payload\":{\"cart\":{\"items\":[]},\"type\":\"POST: Compra Confirmada\"}}"));
+
+        assertNull(value);
+        assertEquals("post: compra confirmada",
+                new String(headers.lastHeader(PrefilteringJsonDeserializer.HEADER_SKIPPED_TYPE).value(), StandardCharsets.UTF_8));
+        assertEquals("ev-1", new String(headers.lastHeader(PrefilteringJsonDeserializer.HEADER_SKIPPED_ID).value(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("shouldFullyDeserializeHandledTypesAndOtherTopics")
+    void shouldFullyDeserializeHandledTypesAndOtherTopics() {
+        RecordHeaders headers = new RecordHeaders();
+        Object handled = deserializer.deserialize("ventas", headers,
+                json("{\"eventId\":\"ev-2\",\"eventType\":\"DELETE: Compra cancelada\",\"payload\":{}}"));
+        assertInstanceOf(EventMessage.class, handled);
+        assertEquals("ev-2", ((EventMessage) handled).getEventId());
+        assertNull(headers.lastHeader(PrefilteringJsonDeserializer.HEADER_SKIPPED_TYPE));
+
+        Object otherTopic = deserializer.deserialize("inventario", new RecordHeaders(),
+                json("{\"eventId\":\"ev-3\",\"eventType\":\"POST: Compra confirmada\"}"));
+        assertInstanceOf(EventMessage.class, otherTopic);
+    }
+
+    @Test
+    @DisplayName("shouldGivePayloadTypePrecedenceOverTypeHeader")
+    void shouldGivePayloadTypePrecedenceOverTypeHeader() {
+        RecordHeaders skipped = new RecordHeaders();
+        skipped.add("eventType", json("POST: Compra confirmada"));
+        skipped.add("eventId", json("ev-4"));
+        assertNull(deserializer.deserialize("ventas", skipped, json("{\"eventType\":\"POST: Compra confirmada\",\"payload\":{}}")));
+        assertEquals("ev-4", new String(skipped.lastHeader(PrefilteringJsonDeserializer.HEADER_SKIPPED_ID).value(), StandardCharsets.UTF_8));
+
+        // El header no despachado no alcanza: el listener resolvería payload.type, que sí se despacha
+        RecordHeaders overridden = new RecordHeaders();
+        overridden.add("eventType", json("POST: Compra confirmada"));
+        overridden.add("eventId", json("ev-5"));
+        Object value = deserializer.deserialize("ventas", overridden, json(
+                "{\"eventId\":\"ev-5\",\"eventType\":\"POST: Compra confirmada\",\"payload\":{\"type\":\"DELETE: Compra cancelada\"}}"));
+        assertInstanceOf(EventMessage.class, value);
+        assertNull(overridden.lastHeader(PrefilteringJsonDeserializer.HEADER_SKIPPED_TYPE));
+    }
+}
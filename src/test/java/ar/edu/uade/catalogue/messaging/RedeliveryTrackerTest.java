@@ -0,0 +1,50 @@
+package ar.edu.uade.catalogue.messaging;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class RedeliveryTrackerTest {
+
+    @Mock
+    private Acknowledgment ack;
+
+    private final RedeliveryTracker tracker = new RedeliveryTracker();
+
+    private final List<ConsumerRecord<String, Object>> records = List.of(
+            new ConsumerRecord<>("ventas", 0, 10, "k", "a"),
+            new ConsumerRecord<>("ventas", 0, 11, "k", "b"));
+
+    @Test
+    @DisplayName("shouldHandStuckRecordToErrorHandlerAfterMaxRedeliveries")
+    void shouldHandStuckRecordToErrorHandlerAfterMaxRedeliveries() {
+        tracker.settle(records, 1, ack, 2, Duration.ZERO);
+        tracker.settle(records, 1, ack, 2, Duration.ZERO);
+        var ex = assertThrows(BatchListenerFailedException.class, () -> tracker.settle(records, 1, ack, 2, Duration.ZERO));
+
+        assertEquals(1, ex.getIndex());
+        verify(ack, times(2)).nack(1, Duration.ZERO);
+    }
+
+    @Test
+    @DisplayName("shouldRestartCountWhenPartitionMovesPastStuckOffset")
+    void shouldRestartCountWhenPartitionMovesPastStuckOffset() {
+        tracker.settle(records, 1, ack, 1, Duration.ZERO);
+        tracker.settle(records, 2, ack, 1, Duration.ZERO);
+        tracker.settle(records, 1, ack, 1, Duration.ZERO);
+
+        verify(ack).acknowledge();
+        verify(ack, times(2)).nack(1, Duration.ZERO);
+    }
+}
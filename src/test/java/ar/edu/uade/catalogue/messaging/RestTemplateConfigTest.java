@@ -0,0 +1,20 @@
+package ar.edu.uade.catalogue.messaging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpClient;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RestTemplateConfigTest {
+
+    @Test
+    @DisplayName("shouldPickHttpVersionFromMiddlewareUrlUnlessConfigured")
+    void shouldPickHttpVersionFromMiddlewareUrlUnlessConfigured() {
+        assertEquals(HttpClient.Version.HTTP_1_1, RestTemplateConfig.httpVersion("", "http://localhost:8090"));
+        assertEquals(HttpClient.Version.HTTP_2, RestTemplateConfig.httpVersion(null, "HTTPS://middleware.uade.edu.ar"));
+        assertEquals(HttpClient.Version.HTTP_2, RestTemplateConfig.httpVersion("HTTP_2", "http://localhost:8090"));
+        assertEquals(HttpClient.Version.HTTP_1_1, RestTemplateConfig.httpVersion(" HTTP_1_1 ", "https://middleware.uade.edu.ar"));
+    }
+}
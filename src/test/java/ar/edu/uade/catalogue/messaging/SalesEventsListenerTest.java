@@ -0,0 +1,185 @@
+package ar.edu.uade.catalogue.messaging;
+
+import ar.edu.uade.catalogue.inventario.EventIdempotencyService;
+import ar.edu.uade.catalogue.model.ConsumedEventLog.Status;
+import ar.edu.uade.catalogue.repository.ConsumedEventLogWriter;
+import ar.edu.uade.catalogue.service.InventoryOrderSyncService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class SalesEventsListenerTest {
+
+    @Mock
+    private InventoryOrderSyncService inventoryService;
+
+    @Mock
+    private AckDispatcher ackDispatcher;
+
+    @Mock
+    private ConsumedEventLogWriter logWriter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private Acknowledgment ack;
+
+    @Mock
+    private EventIdempotencyService idempotency;
+
+    private SalesEventsListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new SalesEventsListener(new ObjectMapper(), inventoryService, ackDispatcher,
+                logWriter, new TransactionTemplate(transactionManager), idempotency, new KeyOrderedExecutor(2, false));
+        lenient().when(idempotency.mightExist(anyString())).thenReturn(true);
+    }
+
+    private static ConsumerRecord<String, Object> record(long offset, String eventId, String type) {
+        String json = "{\"eventId\":\"" + eventId + "\",\"eventType\":\"" + type + "\",\"payload\":"
+                + "{\"cart\":{\"cartItems\":[{\"productCode\":111,\"quantity\":1}]}}}";
+        return new ConsumerRecord<>("ventas", 0, offset, "k", json);
+    }
+
+    @Test
+    @DisplayName("shouldApplyWholePollInOneTransactionAndAckOnce")
+    void shouldApplyWholePollInOneTransactionAndAckOnce() {
+        when(logWriter.states(anyCollection())).thenReturn(Map.of("ev-old", new ConsumedEventLogWriter.State(Status.PROCESSED, false)));
+
+        listener.onBatch(List.of(
+                record(1, "ev-1", "POST: Compra pendiente"),
+                record(2, "ev-old", "POST: Compra pendiente"),
+                record(3, "ev-1", "POST: Compra pendiente"),
+                record(4, "ev-2", "DELETE: Compra cancelada")), ack);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<InventoryOrderSyncService.StockChange>> changes = ArgumentCaptor.forClass(List.class);
+        verify(inventoryService).applyBatch(changes.capture());
+        assertEquals(List.of(InventoryOrderSyncService.Operation.RESERVE, InventoryOrderSyncService.Operation.CANCEL),
+                changes.getValue().stream().map(InventoryOrderSyncService.StockChange::operation).toList());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ConsumedEventLogWriter.Row>> rows = ArgumentCaptor.forClass(List.class);
+        verify(logWriter).writeAll(rows.capture());
+        assertEquals(List.of("ev-1", "ev-2"), rows.getValue().stream().map(ConsumedEventLogWriter.Row::eventId).toList());
+        assertTrue(rows.getValue().stream().allMatch(r -> r.status() == Status.PROCESSED && !r.existing()));
+
+        // El duplicado ya procesado sólo reintenta su ACK pendiente
+        verify(ackDispatcher).submit("ev-old");
+        verify(ackDispatcher).submit("ev-1");
+        verify(ackDispatcher).submit("ev-2");
+        verify(logWriter, never()).recordAcks(any());
+        verify(transactionManager).commit(any());
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    @DisplayName("shouldUpdateExistingRowEvenWhenBloomFilterMisses")
+    void shouldUpdateExistingRowEvenWhenBloomFilterMisses() {
+        // Falso negativo del Bloom filter (p. ej. tras reconstruirlo): la fila existe igual en la base
+        lenient().when(idempotency.mightExist(anyString())).thenReturn(false);
+        when(logWriter.states(anyCollection())).thenReturn(Map.of("ev-1", new ConsumedEventLogWriter.State(Status.ERROR, false)));
+
+        listener.onBatch(List.of(record(1, "ev-1", "POST: Compra pendiente")), ack);
+
+        verify(logWriter).states(argThat(ids -> ids.contains("ev-1")));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ConsumedEventLogWriter.Row>> rows = ArgumentCaptor.forClass(List.class);
+        verify(logWriter).writeAll(rows.capture());
+        assertEquals(1, rows.getValue().size());
+        assertTrue(rows.getValue().get(0).existing());
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    @DisplayName("shouldClaimAndCompleteSingleRecordWithTwoWrites")
+    void shouldClaimAndCompleteSingleRecordWithTwoWrites() {
+        when(logWriter.claim(any())).thenReturn(true);
+
+        listener.onMessage(record(1, "ev-1", "POST: Compra pendiente"), ack);
+
+        verify(logWriter).claim(argThat(r -> r.eventId().equals("ev-1") && r.status() == Status.PENDING && r.payloadJson() != null));
+        verify(inventoryService).reserveStock(any());
+        verify(logWriter).complete("ev-1", Status.PROCESSED, null);
+        verify(ackDispatcher).submit("ev-1");
+        verify(logWriter, never()).state(anyString());
+        verify(transactionManager).commit(any());
+        verify(idempotency).markProcessed("ev-1");
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    @DisplayName("shouldSkipAlreadyProcessedRecordAndOnlyRetryAck")
+    void shouldSkipAlreadyProcessedRecordAndOnlyRetryAck() {
+        when(logWriter.claim(any())).thenReturn(false);
+        when(logWriter.state("ev-1")).thenReturn(java.util.Optional.of(new ConsumedEventLogWriter.State(Status.PROCESSED, false)));
+
+        listener.onMessage(record(1, "ev-1", "POST: Compra pendiente"), ack);
+
+        verifyNoInteractions(inventoryService);
+        verify(ackDispatcher).submit("ev-1");
+        verify(logWriter, never()).complete(anyString(), any(), any());
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    @DisplayName("shouldDropRecentDuplicateWithoutTouchingDatabase")
+    void shouldDropRecentDuplicateWithoutTouchingDatabase() {
+        when(idempotency.recentlyProcessed("ev-1")).thenReturn(true);
+
+        listener.onMessage(record(1, "ev-1", "POST: Compra pendiente"), ack);
+
+        verifyNoInteractions(logWriter, inventoryService, ackDispatcher);
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    @DisplayName("shouldOnlyAckPrefilteredRecord")
+    void shouldOnlyAckPrefilteredRecord() {
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>("ventas", 0, 9L, "k", null);
+        record.headers().add(PrefilteringJsonDeserializer.HEADER_SKIPPED_TYPE, "post: compra confirmada".getBytes());
+        record.headers().add(PrefilteringJsonDeserializer.HEADER_SKIPPED_ID, "ev-9".getBytes());
+
+        listener.onMessage(record, ack);
+        listener.onBatch(List.of(record), ack);
+
+        verifyNoInteractions(logWriter, inventoryService, idempotency);
+        verify(ackDispatcher, times(2)).submit("ev-9");
+        verify(ack, times(2)).acknowledge();
+        assertEquals(2, listener.snapshot().prefiltered());
+    }
+
+    @Test
+    @DisplayName("shouldRollBackPartialCartAndRecordError")
+    void shouldRollBackPartialCartAndRecordError() {
+        when(logWriter.claim(any())).thenReturn(true);
+        doThrow(new IllegalStateException("db caída")).when(inventoryService).reserveStock(any());
+
+        listener.onMessage(record(1, "ev-1", "POST: Compra pendiente"), ack);
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(logWriter, never()).complete(anyString(), any(), any());
+        verify(logWriter).updateStatus(argThat(r -> r.eventId().equals("ev-1") && r.status() == Status.ERROR));
+        verify(ackDispatcher, never()).submit(anyString());
+        verify(ack).acknowledge();
+    }
+}
@@ -0,0 +1,74 @@
+package ar.edu.uade.catalogue.scheduler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class EventRetentionSchedulerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private EventRetentionScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new EventRetentionScheduler(jdbcTemplate, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "retentionDays", 30);
+    }
+
+    @Test
+    @DisplayName("shouldRollUpAndDeleteOneDayPerTransaction")
+    void shouldRollUpAndDeleteOneDayPerTransaction() {
+        LocalDate cutoff = LocalDate.now().minusDays(30);
+        Timestamp day1 = Timestamp.valueOf(cutoff.minusDays(5).atTime(10, 15));
+        Timestamp day2 = Timestamp.valueOf(cutoff.minusDays(1).atTime(23, 59));
+        when(jdbcTemplate.queryForObject(startsWith("SELECT MIN"), eq(Timestamp.class), any()))
+                .thenReturn(day1, day2, null);
+        when(jdbcTemplate.update(startsWith("INSERT INTO event_rollup"), any(Timestamp.class), any(Timestamp.class))).thenReturn(2);
+        when(jdbcTemplate.update(startsWith("DELETE FROM event"), any(Timestamp.class), any(Timestamp.class))).thenReturn(40, 7);
+
+        assertEquals(47, scheduler.rollup());
+
+        Timestamp from1 = Timestamp.valueOf(cutoff.minusDays(5).atStartOfDay());
+        Timestamp from2 = Timestamp.valueOf(cutoff.minusDays(1).atStartOfDay());
+        Timestamp to2 = Timestamp.valueOf(cutoff.atStartOfDay());
+        InOrder order = inOrder(jdbcTemplate, transactionManager);
+        order.verify(jdbcTemplate).update(startsWith("INSERT INTO event_rollup"), eq(from1), eq(Timestamp.valueOf(cutoff.minusDays(4).atStartOfDay())));
+        order.verify(jdbcTemplate).update(startsWith("DELETE FROM event"), eq(from1), any(Timestamp.class));
+        order.verify(transactionManager).commit(any());
+        order.verify(jdbcTemplate).update(startsWith("INSERT INTO event_rollup"), eq(from2), eq(to2));
+        order.verify(jdbcTemplate).update(startsWith("DELETE FROM event"), eq(from2), eq(to2));
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("shouldStopWhenDayWasAlreadyPurged")
+    void shouldStopWhenDayWasAlreadyPurged() {
+        Timestamp day = Timestamp.valueOf(LocalDate.now().minusDays(40).atTime(8, 0));
+        when(jdbcTemplate.queryForObject(startsWith("SELECT MIN"), eq(Timestamp.class), any())).thenReturn(day);
+        when(jdbcTemplate.update(anyString(), any(Timestamp.class), any(Timestamp.class))).thenReturn(0);
+
+        assertEquals(0, scheduler.rollup());
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Timestamp.class), any());
+    }
+}
@@ -0,0 +1,82 @@
+package ar.edu.uade.catalogue.scheduler;
+
+import ar.edu.uade.catalogue.messaging.AckDispatcher;
+import ar.edu.uade.catalogue.messaging.SalesEventsListener;
+import ar.edu.uade.catalogue.model.ConsumedEventLog.Status;
+import ar.edu.uade.catalogue.repository.ConsumedEventLogWriter;
+import ar.edu.uade.catalogue.repository.ConsumedEventLogWriter.Due;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class SalesEventsRetrySchedulerTest {
+
+    @Mock
+    private ConsumedEventLogWriter logWriter;
+
+    @Mock
+    private AckDispatcher ackDispatcher;
+
+    @Mock
+    private SalesEventsListener listener;
+
+    @InjectMocks
+    private SalesEventsRetryScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "maxAttempts", 5);
+        ReflectionTestUtils.setField(scheduler, "backoffMs", 1000L);
+        ReflectionTestUtils.setField(scheduler, "maxBackoffMs", 60_000L);
+        ReflectionTestUtils.setField(scheduler, "pageSize", 100);
+    }
+
+    private static Due due(String eventId, Status status, int attempts, boolean ackSent, int ackAttempts, String payload) {
+        return new Due(eventId, status, attempts, ackSent, ackAttempts, "ventas", 0, 7L, payload, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    @Test
+    @DisplayName("shouldRedriveFailedEventAndResubmitMissingAckAfterLeasing")
+    void shouldRedriveFailedEventAndResubmitMissingAckAfterLeasing() {
+        Due failed = due("ev-1", Status.ERROR, 2, false, 0, "{\"eventId\":\"ev-1\"}");
+        Due unacked = due("ev-2", Status.PROCESSED, 1, false, 1, null);
+        when(logWriter.due(any(), eq(100))).thenReturn(List.of(failed, unacked));
+        when(logWriter.reschedule(any(), any())).thenReturn(true);
+
+        assertEquals(2, scheduler.retryLoop());
+
+        // Backoff del tercer intento: entre 2 y 4 s
+        verify(logWriter).reschedule(eq(failed), argThat(next -> next.isAfter(LocalDateTime.now().plusSeconds(1))
+                && next.isBefore(LocalDateTime.now().plusSeconds(5))));
+        verify(listener).redrive("ventas", 0, 7L, "{\"eventId\":\"ev-1\"}");
+        verify(ackDispatcher).submit("ev-2");
+    }
+
+    @Test
+    @DisplayName("shouldParkExhaustedRowsAndSkipRowsLeasedElsewhere")
+    void shouldParkExhaustedRowsAndSkipRowsLeasedElsewhere() {
+        Due exhausted = due("ev-1", Status.ERROR, 5, false, 0, "{}");
+        Due taken = due("ev-2", Status.PENDING, 0, false, 0, "{}");
+        when(logWriter.due(any(), anyInt())).thenReturn(List.of(exhausted, taken));
+        when(logWriter.reschedule(eq(taken), any())).thenReturn(false);
+
+        assertEquals(0, scheduler.retryLoop());
+
+        verify(logWriter).reschedule(exhausted, null);
+        verifyNoInteractions(listener, ackDispatcher);
+    }
+}
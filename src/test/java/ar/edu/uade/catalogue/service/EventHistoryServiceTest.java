@@ -0,0 +1,76 @@
+package ar.edu.uade.catalogue.service;
+
+import ar.edu.uade.catalogue.repository.EventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class EventHistoryServiceTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Mock
+    private EventRepository eventRepository;
+
+    private EventHistoryService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new EventHistoryService(namedJdbcTemplate, eventRepository);
+        ReflectionTestUtils.setField(service, "maxPageSize", 3);
+    }
+
+    private static EventHistoryService.EventSummary summary(int id) {
+        return new EventHistoryService.EventSummary(id, "PUT: Actualizar stock", "put: actualizar stock", "product", 7, null, null);
+    }
+
+    @Test
+    @DisplayName("shouldFilterByIndexedColumnsAndReturnKeysetCursor")
+    void shouldFilterByIndexedColumnsAndReturnKeysetCursor() {
+        List<EventHistoryService.EventSummary> rows = IntStream.of(9, 8, 6, 5).mapToObj(EventHistoryServiceTest::summary).toList();
+        when(namedJdbcTemplate.query(anyString(), any(SqlParameterSource.class),
+                ArgumentMatchers.<RowMapper<EventHistoryService.EventSummary>>any())).thenReturn(rows);
+
+        var page = service.search("Product", 7, "PUT: Actualizar Stock", null, null, 10, 50);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(namedJdbcTemplate).query(sql.capture(), params.capture(), ArgumentMatchers.<RowMapper<EventHistoryService.EventSummary>>any());
+        assertFalse(sql.getValue().contains("payload"));
+        assertTrue(sql.getValue().contains("entity_type = :entityType AND entity_code = :entityCode AND normalized_type = :type"));
+        assertTrue(sql.getValue().endsWith("AND id < :before ORDER BY id DESC LIMIT :limit"));
+        MapSqlParameterSource p = (MapSqlParameterSource) params.getValue();
+        assertEquals("product", p.getValue("entityType"));
+        assertEquals("put: actualizar stock", p.getValue("type"));
+        // Página de 3 (tope max-page-size) + 1 para saber si sigue
+        assertEquals(4, p.getValue("limit"));
+        assertEquals(List.of(9, 8, 6), page.items().stream().map(EventHistoryService.EventSummary::id).toList());
+        assertEquals(6, page.nextCursor());
+    }
+
+    @Test
+    @DisplayName("shouldRejectEntityCodeWithoutEntityType")
+    void shouldRejectEntityCodeWithoutEntityType() {
+        assertThrows(IllegalArgumentException.class, () -> service.search(null, 7, null, null, null, null, 10));
+        assertThrows(IllegalArgumentException.class, () -> service.search("product", 7, null, null, null, null, 0));
+        verifyNoInteractions(namedJdbcTemplate);
+    }
+}
@@ -0,0 +1,76 @@
+package ar.edu.uade.catalogue.service;
+
+import ar.edu.uade.catalogue.model.Event;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class EventJournalTest {
+
+    @Mock
+    private org.springframework.jdbc.core.JdbcTemplate jdbcTemplate;
+
+    private EventJournal journal;
+
+    @AfterEach
+    void tearDown() {
+        if (journal != null) journal.stop();
+    }
+
+    @Test
+    @DisplayName("shouldWriteBufferedEventsAsMultiRowInserts")
+    void shouldWriteBufferedEventsAsMultiRowInserts() {
+        journal = new EventJournal(jdbcTemplate, 8, 2, 1000, EventJournal.Durability.ASYNC, 1000);
+
+        for (int i = 0; i < 5; i++) journal.append(new Event("T" + i, "{\"i\":" + i + "}"));
+        verifyNoInteractions(jdbcTemplate);
+
+        assertEquals(5, journal.flush());
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate, times(3)).update(sql.capture(), args.capture());
+        assertTrue(sql.getAllValues().get(0).endsWith("VALUES (?, ?, ?, ?, ?, ?, ?), (?, ?, ?, ?, ?, ?, ?)"));
+        assertEquals(List.of(14, 14, 7), args.getAllValues().stream().map(a -> a.length).toList());
+        assertEquals("T0", args.getAllValues().get(0)[0]);
+        assertEquals(5, journal.written());
+        assertEquals(0, journal.pending());
+    }
+
+    @Test
+    @DisplayName("shouldWriteOnCallerThreadWhenBufferIsFull")
+    void shouldWriteOnCallerThreadWhenBufferIsFull() {
+        journal = new EventJournal(jdbcTemplate, 2, 10, 1000, EventJournal.Durability.ASYNC, 1000);
+
+        journal.append(new Event("a", "{}"));
+        journal.append(new Event("b", "{}"));
+        journal.append(new Event("c", "{}"));
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).update(anyString(), args.capture());
+        assertEquals("c", args.getValue()[0]);
+        assertEquals(2, journal.pending());
+    }
+
+    @Test
+    @DisplayName("shouldWaitForFlushInSyncMode")
+    void shouldWaitForFlushInSyncMode() {
+        journal = new EventJournal(jdbcTemplate, 8, 10, 10_000, EventJournal.Durability.SYNC, 5000);
+        journal.start();
+
+        journal.append(new Event("sync", "{}"));
+
+        // El escritor se despierta al encolar: no espera el intervalo de flush
+        verify(jdbcTemplate).update(anyString(), any(Object[].class));
+        assertEquals(1, journal.written());
+    }
+}
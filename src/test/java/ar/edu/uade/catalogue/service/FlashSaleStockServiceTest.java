@@ -0,0 +1,235 @@
+package ar.edu.uade.catalogue.service;
+
+import ar.edu.uade.catalogue.model.Product;
+import ar.edu.uade.catalogue.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class FlashSaleStockServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private FlashSaleStockService flashSaleStockService;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(flashSaleStockService, "defaultStripes", 8);
+        ReflectionTestUtils.setField(flashSaleStockService, "maxStripes", 64);
+
+        product = new Product();
+        product.setProductCode(111);
+        product.setStock(100);
+        lenient().when(productRepository.findByProductCode(111)).thenReturn(Optional.of(product));
+    }
+
+    @Test
+    @DisplayName("shouldSplitStockAcrossStripesWhenStarted")
+    void shouldSplitStockAcrossStripesWhenStarted() {
+        var status = flashSaleStockService.start(111, 3);
+
+        assertEquals(3, status.stripes());
+        assertEquals(100, status.stock());
+        assertEquals(100, status.stripeStock().stream().mapToInt(Integer::intValue).sum());
+        assertTrue(flashSaleStockService.isActive(111));
+    }
+
+    @Test
+    @DisplayName("shouldTakeFromSiblingStripesWhenOneIsNotEnough")
+    void shouldTakeFromSiblingStripesWhenOneIsNotEnough() {
+        flashSaleStockService.start(111, 4);
+
+        assertEquals(10, flashSaleStockService.decrement(111, 90));
+        assertThrows(IllegalArgumentException.class, () -> flashSaleStockService.decrement(111, 11));
+        assertEquals(10, flashSaleStockService.currentStock(111));
+    }
+
+    @Test
+    @DisplayName("shouldNeverOversellUnderConcurrentDecrements")
+    void shouldNeverOversellUnderConcurrentDecrements() throws Exception {
+        flashSaleStockService.start(111, 8);
+        AtomicInteger sold = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 500; i++) {
+            pool.submit(() -> {
+                try {
+                    flashSaleStockService.decrement(111, 1);
+                    sold.incrementAndGet();
+                } catch (IllegalArgumentException ignored) { }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, sold.get());
+        assertEquals(0, flashSaleStockService.currentStock(111));
+    }
+
+    @Test
+    @DisplayName("shouldPersistMergedStockWhenSaleEnds")
+    void shouldPersistMergedStockWhenSaleEnds() {
+        flashSaleStockService.start(111, 4);
+        flashSaleStockService.decrement(111, 30);
+        flashSaleStockService.increment(111, 5);
+
+        var status = flashSaleStockService.end(111);
+
+        assertEquals(75, status.stock());
+        verify(productRepository).updateStockByProductCode(111, 75);
+        assertFalse(flashSaleStockService.isActive(111));
+        assertNull(flashSaleStockService.decrement(111, 1));
+    }
+
+    @Test
+    @DisplayName("shouldOverlayLiveStockOnReads")
+    void shouldOverlayLiveStockOnReads() {
+        flashSaleStockService.start(111, 2);
+        flashSaleStockService.decrement(111, 40);
+
+        Product read = new Product();
+        read.setProductCode(111);
+        read.setStock(100);
+        flashSaleStockService.applyLiveStock(read);
+
+        assertEquals(60, read.getStock());
+    }
+
+    // Simula el fin de una transacción: dispara las sincronizaciones registradas con el estado dado
+    private static void completeTransaction(boolean commit) {
+        var syncs = org.springframework.transaction.support.TransactionSynchronizationManager.getSynchronizations();
+        org.springframework.transaction.support.TransactionSynchronizationManager.clearSynchronization();
+        for (var sync : syncs) {
+            if (commit) sync.afterCommit();
+            sync.afterCompletion(commit ? org.springframework.transaction.support.TransactionSynchronization.STATUS_COMMITTED
+                    : org.springframework.transaction.support.TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+    }
+
+    @Test
+    @DisplayName("shouldFollowTransactionOutcomeForFlashSaleChanges")
+    void shouldFollowTransactionOutcomeForFlashSaleChanges() {
+        flashSaleStockService.start(111, 4);
+
+        org.springframework.transaction.support.TransactionSynchronizationManager.initSynchronization();
+        assertEquals(70, flashSaleStockService.decrementTransactional(111, 30));
+        assertTrue(flashSaleStockService.incrementAfterCommit(111, 5));
+        assertEquals(70, flashSaleStockService.currentStock(111));
+        completeTransaction(false);
+        // Rollback: el descuento vuelve y la reposición nunca se aplicó
+        assertEquals(100, flashSaleStockService.currentStock(111));
+
+        org.springframework.transaction.support.TransactionSynchronizationManager.initSynchronization();
+        flashSaleStockService.decrementTransactional(111, 30);
+        flashSaleStockService.incrementAfterCommit(111, 5);
+        completeTransaction(true);
+        assertEquals(75, flashSaleStockService.currentStock(111));
+    }
+
+    @Test
+    @DisplayName("shouldPersistFinalTotalAfterInFlightFlushWithoutBlockingOtherSales")
+    void shouldPersistFinalTotalAfterInFlightFlushWithoutBlockingOtherSales() throws Exception {
+        Product other = new Product();
+        other.setProductCode(222);
+        other.setStock(50);
+        when(productRepository.findByProductCode(222)).thenReturn(Optional.of(other));
+        flashSaleStockService.start(111, 2);
+        flashSaleStockService.decrement(111, 10);
+
+        // La escritura periódica de 111 queda colgada en la base
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch releaseWrite = new CountDownLatch(1);
+        doAnswer(inv -> {
+            writing.countDown();
+            assertTrue(releaseWrite.await(5, TimeUnit.SECONDS));
+            return 1;
+        }).when(productRepository).updateStockByProductCode(111, 90);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            pool.submit(flashSaleStockService::flush);
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+            // Otro SKU arranca y cierra sin esperar esa escritura
+            flashSaleStockService.start(222, 2);
+            assertEquals(50, flashSaleStockService.end(222).stock());
+
+            // El cierre de 111 espera la escritura en curso y persiste el total final después
+            flashSaleStockService.decrement(111, 5);
+            var ended = pool.submit(() -> flashSaleStockService.end(111));
+            Thread.sleep(100);
+            assertFalse(ended.isDone());
+            verify(productRepository, never()).updateStockByProductCode(111, 85);
+
+            releaseWrite.countDown();
+            assertEquals(85, ended.get(5, TimeUnit.SECONDS).stock());
+            InOrder order = inOrder(productRepository);
+            order.verify(productRepository).updateStockByProductCode(111, 90);
+            order.verify(productRepository).updateStockByProductCode(111, 85);
+            assertNull(flashSaleStockService.decrement(111, 1));
+        } finally {
+            releaseWrite.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("shouldParkClosingReadersUntilFinalTotalIsPersisted")
+    void shouldParkClosingReadersUntilFinalTotalIsPersisted() throws Exception {
+        flashSaleStockService.start(111, 2);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch releaseWrite = new CountDownLatch(1);
+        doAnswer(inv -> {
+            writing.countDown();
+            assertTrue(releaseWrite.await(5, TimeUnit.SECONDS));
+            return 1;
+        }).when(productRepository).updateStockByProductCode(111, 100);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            var ended = pool.submit(() -> flashSaleStockService.end(111));
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            var reader = pool.submit(() -> flashSaleStockService.decrement(111, 1));
+            Thread.sleep(100);
+            assertFalse(reader.isDone());
+
+            releaseWrite.countDown();
+            ended.get(5, TimeUnit.SECONDS);
+            // Con la venta cerrada el llamador sigue por la base
+            assertNull(reader.get(5, TimeUnit.SECONDS));
+        } finally {
+            releaseWrite.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("shouldAdjustProductRowWhenSaleEndedBeforeRollback")
+    void shouldAdjustProductRowWhenSaleEndedBeforeRollback() {
+        flashSaleStockService.start(111, 2);
+
+        org.springframework.transaction.support.TransactionSynchronizationManager.initSynchronization();
+        flashSaleStockService.decrementTransactional(111, 10);
+        flashSaleStockService.end(111);
+        completeTransaction(false);
+
+        verify(productRepository).updateStockByProductCode(111, 90);
+        verify(productRepository).addStockByProductCode(111, 10);
+    }
+}
@@ -21,6 +21,9 @@ class InventoryOrderSyncServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private FlashSaleStockService flashSaleStockService;
+
     @InjectMocks
     private InventoryOrderSyncService inventoryOrderSyncService;
 
@@ -212,4 +215,34 @@ class InventoryOrderSyncServiceTest {
         verifyNoInteractions(productRepository);
     }
 
+    // ----------------------------------------------------
+    // BATCH
+    // ----------------------------------------------------
+
+    @Test
+    @DisplayName("shouldApplyBatchWithSingleLookupAndSave")
+    void shouldApplyBatchWithSingleLookupAndSave() throws Exception {
+        Product other = new Product();
+        other.setProductCode(222);
+        other.setStock(1);
+        JsonNode reserve = objectMapper.readTree("""
+            { "cart": { "cartItems": [ { "productCode": 111, "quantity": 3 }, { "productCode": 222, "quantity": 5 } ] } }
+        """);
+        JsonNode rollback = objectMapper.readTree("""
+            { "cart": { "items": [ { "productCode": 111, "quantity": 1 } ] } }
+        """);
+        when(productRepository.findByProductCodeIn(anyCollection())).thenReturn(java.util.List.of(existingProduct, other));
+
+        int modified = inventoryOrderSyncService.applyBatch(java.util.List.of(
+                new InventoryOrderSyncService.StockChange(InventoryOrderSyncService.Operation.RESERVE, reserve),
+                new InventoryOrderSyncService.StockChange(InventoryOrderSyncService.Operation.ROLLBACK, rollback)));
+
+        assertEquals(1, modified);
+        assertEquals(8, existingProduct.getStock());
+        assertEquals(1, other.getStock());
+        verify(productRepository).findByProductCodeIn(anyCollection());
+        verify(productRepository).saveAll(anyCollection());
+        verify(productRepository, never()).findByProductCode(anyInt());
+        verify(productRepository, never()).save(any(Product.class));
+    }
 }
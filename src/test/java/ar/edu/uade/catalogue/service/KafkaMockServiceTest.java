@@ -83,6 +83,39 @@ class KafkaMockServiceTest {
         assertTrue(ex.getMessage().contains("Error serializando payload"));
     }
 
+    @Test
+    @DisplayName("shouldAppendToJournalInsteadOfSavingWhenJournalIsEnabled")
+    void shouldAppendToJournalInsteadOfSavingWhenJournalIsEnabled() throws Exception {
+        EventJournal journal = mock(EventJournal.class);
+        org.springframework.test.util.ReflectionTestUtils.setField(kafkaMockService, "eventJournal", journal);
+        when(objectMapper.writeValueAsString(any())).thenReturn("{\"ok\":true}");
+
+        Event result = kafkaMockService.sendEvent("JOURNAL", new Object());
+
+        assertEquals("JOURNAL", result.getType());
+        verify(journal).append(result);
+        verifyNoInteractions(eventRepository);
+    }
+
+    @Test
+    @DisplayName("shouldTagEntityAndNormalizedTypeFromPayload")
+    void shouldTagEntityAndNormalizedTypeFromPayload() throws Exception {
+        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
+        when(eventRepository.save(any(Event.class))).thenAnswer(inv -> inv.getArgument(0));
+        ar.edu.uade.catalogue.model.Product product = new ar.edu.uade.catalogue.model.Product();
+        product.setProductCode(42);
+
+        Event byEntity = kafkaMockService.sendEvent("PATCH: Descuento Actualizado", product);
+        Event byMap = kafkaMockService.sendEvent("PATCH: modificar un producto", java.util.Map.of("productCode", 7));
+        Event batch = kafkaMockService.sendEvent("PUT: Actualizar stock (batch)", java.util.Map.of("items", List.of()));
+
+        assertEquals("product", byEntity.getEntityType());
+        assertEquals(42, byEntity.getEntityCode());
+        assertEquals("patch: descuento actualizado", byEntity.getNormalizedType());
+        assertEquals(7, byMap.getEntityCode());
+        assertNull(batch.getEntityType());
+    }
+
     // ---------------------------------------------------------
     // getAll()
     // ---------------------------------------------------------
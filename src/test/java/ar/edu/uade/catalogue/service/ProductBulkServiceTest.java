@@ -0,0 +1,277 @@
+package ar.edu.uade.catalogue.service;
+
+import ar.edu.uade.catalogue.messaging.InventoryEventPublisher;
+import ar.edu.uade.catalogue.model.Product;
+import ar.edu.uade.catalogue.model.DTO.BulkRepriceDTO;
+import ar.edu.uade.catalogue.model.DTO.ProductPatchDTO;
+import ar.edu.uade.catalogue.repository.BrandRepository;
+import ar.edu.uade.catalogue.repository.CategoryRepository;
+import ar.edu.uade.catalogue.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class ProductBulkServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private FlashSaleStockService flashSaleStockService;
+
+    @Mock
+    private InventoryEventPublisher inventoryEventPublisher;
+
+    @Mock
+    private KafkaMockService kafkaMockService;
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private BrandRepository brandRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private ProductBulkService productBulkService;
+
+    @BeforeEach
+    void setUp() {
+        productBulkService = new ProductBulkService(jdbcTemplate, namedJdbcTemplate, transactionTemplate,
+                new ObjectMapper(), flashSaleStockService, inventoryEventPublisher, kafkaMockService,
+                productService, productRepository, categoryRepository, brandRepository, entityManager);
+        ReflectionTestUtils.setField(productBulkService, "chunkSize", 2);
+
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().doAnswer(inv -> { inv.<java.util.function.Consumer<Object>>getArgument(0).accept(null); return null; })
+                .when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubBatchUpdates() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(inv -> {
+                    Collection<Object> rows = inv.getArgument(1);
+                    int[] counts = new int[rows.size()];
+                    java.util.Arrays.fill(counts, 1);
+                    return rows.isEmpty() ? new int[0][] : new int[][]{counts};
+                });
+    }
+
+    @Test
+    @DisplayName("shouldApplyNdjsonInChunksAndEmitOneEventPerChunk")
+    void shouldApplyNdjsonInChunksAndEmitOneEventPerChunk() throws Exception {
+        stubBatchUpdates();
+
+        String body = """
+                {"productCode":1,"stock":10}
+                {"productCode":2,"delta":-3}
+                {"productCode":3,"stock":5}
+                """;
+        var result = productBulkService.applyStockAdjustments(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(3, result.totalRows());
+        assertEquals(2, result.chunks());
+        assertTrue(result.errors().isEmpty());
+        verify(jdbcTemplate, times(4)).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(namedJdbcTemplate, times(2)).query(anyString(), anyMap(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    @DisplayName("shouldReportInvalidRowsWithoutTouchingDatabase")
+    void shouldReportInvalidRowsWithoutTouchingDatabase() throws Exception {
+        String body = "[{\"productCode\":1,\"stock\":10,\"delta\":2},{\"stock\":4},{\"productCode\":3,\"stock\":-1}]";
+
+        var result = productBulkService.applyStockAdjustments(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(3, result.totalRows());
+        assertEquals(0, result.updated());
+        assertEquals(List.of(1, 2, 3), result.errors().stream().map(ProductService.BatchError::line).toList());
+        verifyNoInteractions(jdbcTemplate, inventoryEventPublisher, kafkaMockService);
+    }
+
+    @Test
+    @DisplayName("shouldReportFailedStockChunkAndContinueWithNext")
+    void shouldReportFailedStockChunkAndContinueWithNext() throws Exception {
+        // El primer chunk falla por lock timeout (rollback); el segundo confirma
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new CannotAcquireLockException("lock timeout"))
+                .thenReturn(new int[][]{{1}}, new int[0][]);
+
+        String body = """
+                {"productCode":1,"stock":10}
+                {"productCode":2,"delta":-3}
+                {"productCode":3,"stock":5}
+                """;
+        var result = productBulkService.applyStockAdjustments(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, result.chunks());
+        assertEquals(List.of(1, 2), result.errors().stream().map(ProductService.BatchError::line).toList());
+        assertTrue(result.errors().get(0).message().startsWith("Error al guardar el lote"));
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(namedJdbcTemplate).query(anyString(), eq(Map.of("codes", List.of(3))), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    @DisplayName("shouldRouteFlashSaleProductsToInMemoryCounters")
+    void shouldRouteFlashSaleProductsToInMemoryCounters() throws Exception {
+        when(flashSaleStockService.isActive(7)).thenReturn(true);
+        when(flashSaleStockService.decrementTransactional(7, 4)).thenReturn(96);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[0][]);
+
+        var result = productBulkService.applyStockAdjustments(
+                new ByteArrayInputStream("{\"productCode\":7,\"delta\":-4}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, result.updated());
+        verify(inventoryEventPublisher).emitActualizarStockBatch(List.of(Map.of("productCode", 7, "stock", 96)));
+        verifyNoInteractions(namedJdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("shouldDeferFlashSaleResetUntilChunkCommits")
+    void shouldDeferFlashSaleResetUntilChunkCommits() throws Exception {
+        when(flashSaleStockService.isActive(7)).thenReturn(true);
+        when(flashSaleStockService.setAfterCommit(7, 50)).thenReturn(true);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[0][]);
+
+        var result = productBulkService.applyStockAdjustments(
+                new ByteArrayInputStream("{\"productCode\":7,\"stock\":50}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, result.updated());
+        verify(flashSaleStockService, never()).set(anyInt(), anyInt());
+        verify(inventoryEventPublisher).emitActualizarStockBatch(List.of(Map.of("productCode", 7, "stock", 50)));
+    }
+
+    @Test
+    @DisplayName("shouldRejectRepriceWithoutSingleScope")
+    void shouldRejectRepriceWithoutSingleScope() {
+        var none = new BulkRepriceDTO(null, null, null, 10f, null, null);
+        var both = new BulkRepriceDTO(1, 2, null, 10f, null, null);
+
+        assertThrows(IllegalArgumentException.class, () -> productBulkService.reprice(none, true));
+        assertThrows(IllegalArgumentException.class, () -> productBulkService.reprice(both, true));
+        verifyNoInteractions(namedJdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("shouldPreviewRepriceWithoutUpdatingOrEmitting")
+    void shouldPreviewRepriceWithoutUpdatingOrEmitting() {
+        var preview = new ProductBulkService.RepricePreview(1, 10f, 0f, 10f, 10.99f, 0f, 10.99f);
+        when(namedJdbcTemplate.query(anyString(), any(SqlParameterSource.class), ArgumentMatchers.<RowMapper<ProductBulkService.RepricePreview>>any()))
+                .thenReturn(List.of(preview));
+
+        var result = productBulkService.reprice(new BulkRepriceDTO(null, 5, null, 10f, null, "NINETY_NINE"), true);
+
+        assertTrue(result.dryRun());
+        assertEquals(List.of(preview), result.items());
+        verify(namedJdbcTemplate, never()).update(anyString(), any(SqlParameterSource.class));
+        verifyNoInteractions(transactionTemplate, inventoryEventPublisher, kafkaMockService);
+    }
+
+    @Test
+    @DisplayName("shouldApplyRepriceAndEmitSingleBatchEvent")
+    void shouldApplyRepriceAndEmitSingleBatchEvent() {
+        var p1 = new ProductBulkService.RepricePreview(1, 10f, 0f, 10f, 11f, 0.2f, 8.8f);
+        var p2 = new ProductBulkService.RepricePreview(2, 20f, 0f, 20f, 22f, 0.2f, 17.6f);
+        when(namedJdbcTemplate.query(contains("FOR UPDATE"), any(SqlParameterSource.class), ArgumentMatchers.<RowMapper<ProductBulkService.RepricePreview>>any()))
+                .thenReturn(List.of(p1, p2));
+
+        var result = productBulkService.reprice(new BulkRepriceDTO(null, null, List.of(1, 2), 10f, 0.2f, null), false);
+
+        assertEquals(2, result.affected());
+        verify(namedJdbcTemplate).update(startsWith("UPDATE product SET price ="), any(SqlParameterSource.class));
+        verify(inventoryEventPublisher, times(1)).emitPreciosActualizadosBatch(argThat(items -> items.size() == 2));
+    }
+
+    private Product product(int code) {
+        Product p = new Product();
+        p.setProductCode(code);
+        p.setName("Producto " + code);
+        return p;
+    }
+
+    @Test
+    @DisplayName("shouldLoadChunkInOneQueryAndEmitSingleAggregatedEvent")
+    void shouldLoadChunkInOneQueryAndEmitSingleAggregatedEvent() throws Exception {
+        when(productRepository.findByProductCodeIn(any())).thenReturn(List.of(product(1), product(2)));
+        doAnswer(inv -> {
+            ProductPatchDTO patch = inv.getArgument(1);
+            if (patch.getActive() != null) inv.<Product>getArgument(0).setActive(patch.getActive());
+            return null;
+        }).when(productService).applyPatch(any(Product.class), any(ProductPatchDTO.class), any(), isNull());
+
+        var result = productBulkService.patchProducts(new ByteArrayInputStream(
+                "[{\"productCode\":1,\"stock\":3},{\"productCode\":2,\"active\":true}]".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, result.updated());
+        assertTrue(result.errors().isEmpty());
+        verify(productRepository, times(1)).findByProductCodeIn(any());
+        verify(productService, times(2)).applyPatch(any(Product.class), any(ProductPatchDTO.class), any(), isNull());
+        verify(productRepository).saveAll(argThat(it -> it.spliterator().getExactSizeIfKnown() == 2));
+        verify(inventoryEventPublisher, times(1)).emitProductosActualizadosBatch(argThat(l -> l.size() == 2), eq(Set.of(2)));
+    }
+
+    @Test
+    @DisplayName("shouldRevertInvalidPatchAndReportItsLine")
+    void shouldRevertInvalidPatchAndReportItsLine() throws Exception {
+        Product ok = product(1);
+        Product bad = product(2);
+        when(productRepository.findByProductCodeIn(any())).thenReturn(List.of(ok, bad));
+        lenient().doThrow(new IllegalArgumentException("Stock no puede ser negativo"))
+                .when(productService).applyPatch(same(bad), any(ProductPatchDTO.class), any(), isNull());
+
+        var result = productBulkService.patchProducts(new ByteArrayInputStream(
+                "{\"productCode\":1,\"stock\":3}\n{\"productCode\":2,\"stock\":-1}\n{\"productCode\":9}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, result.updated());
+        assertEquals(List.of(2, 3), result.errors().stream().map(ProductService.BatchError::line).toList());
+        verify(entityManager).refresh(bad);
+        verify(inventoryEventPublisher).emitProductosActualizadosBatch(eq(List.of(ok)), eq(Set.of()));
+    }
+}
@@ -3,6 +3,7 @@ package ar.edu.uade.catalogue.service;
 import ar.edu.uade.catalogue.messaging.InventoryEventPublisher;
 import ar.edu.uade.catalogue.model.*;
 import ar.edu.uade.catalogue.model.DTO.ProductDTO;
+import ar.edu.uade.catalogue.model.DTO.ProductPatchDTO;
 import ar.edu.uade.catalogue.repository.ProductRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,6 +11,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.IOException;
 import java.util.*;
@@ -26,6 +30,7 @@ class ProductServiceTest {
     @Mock private KafkaMockService kafkaMockService;
     @Mock private InventoryEventPublisher inventoryEventPublisher;
     @Mock private S3ImageService s3ImageService;
+    @Mock private FlashSaleStockService flashSaleStockService;
 
     @InjectMocks
     private ProductService productService;
@@ -121,7 +126,7 @@ class ProductServiceTest {
 
         assertEquals("iPhone 15", updated.getName());
         assertEquals(900f, updated.getPrice());
-        verify(inventoryEventPublisher).emitProductoActualizado(any(Product.class));
+        verify(inventoryEventPublisher).emitProductoActualizado(any(), any(Product.class));
         verify(kafkaMockService, atLeastOnce()).sendEvent(anyString(), any());
     }
 
@@ -165,7 +170,7 @@ class ProductServiceTest {
         Product result = productService.updateUnitPrice(999, 1200f);
 
         assertEquals(1200f, result.getUnitPrice());
-        verify(inventoryEventPublisher).emitProductoActualizado(result);
+        verify(inventoryEventPublisher).emitProductoActualizado(any(), eq(result));
         verify(kafkaMockService, atLeast(1)).sendEvent(anyString(), eq(result));
     }
 
@@ -226,4 +231,94 @@ class ProductServiceTest {
         assertEquals(4.9f, result.getCalification());
         verify(productRepository).save(result);
     }
+
+    // Flash sale real sobre el producto 999 (stock 5) y una transacción simulada en curso
+    private FlashSaleStockService startFlashSale() {
+        FlashSaleStockService flash = new FlashSaleStockService(productRepository);
+        ReflectionTestUtils.setField(flash, "defaultStripes", 2);
+        ReflectionTestUtils.setField(flash, "maxStripes", 64);
+        lenient().when(productRepository.findByProductCode(999)).thenReturn(Optional.of(existing));
+        flash.start(999, null);
+        ReflectionTestUtils.setField(productService, "flashSaleStockService", flash);
+        TransactionSynchronizationManager.initSynchronization();
+        return flash;
+    }
+
+    private static void rollBack() {
+        var syncs = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (var sync : syncs) sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+    }
+
+    @Test
+    @DisplayName("shouldReturnFlashSaleUnitsWhenSaleRollsBack")
+    void shouldReturnFlashSaleUnitsWhenSaleRollsBack() {
+        FlashSaleStockService flash = startFlashSale();
+        doThrow(new IllegalStateException("outbox caído")).when(inventoryEventPublisher).emitActualizarStock(any(Product.class));
+
+        assertThrows(IllegalStateException.class, () -> productService.updateStockPostSale(999, 2));
+        assertEquals(3, flash.currentStock(999));
+        rollBack();
+
+        assertEquals(5, flash.currentStock(999));
+    }
+
+    @Test
+    @DisplayName("shouldNotReplenishFlashSaleWhenCancelationRollsBack")
+    void shouldNotReplenishFlashSaleWhenCancelationRollsBack() {
+        FlashSaleStockService flash = startFlashSale();
+        doThrow(new IllegalStateException("outbox caído")).when(inventoryEventPublisher).emitActualizarStock(any(Product.class));
+
+        assertThrows(IllegalStateException.class, () -> productService.updateStockPostCancelation(999, 2));
+        rollBack();
+
+        assertEquals(5, flash.currentStock(999));
+    }
+
+    @Test
+    @DisplayName("shouldKeepFlashSaleStockWhenStockUpdateRollsBack")
+    void shouldKeepFlashSaleStockWhenStockUpdateRollsBack() {
+        FlashSaleStockService flash = startFlashSale();
+        doThrow(new IllegalStateException("outbox caído")).when(inventoryEventPublisher).emitActualizarStock(any(Product.class));
+
+        assertThrows(IllegalStateException.class, () -> productService.updateStock(999, 50));
+        rollBack();
+
+        assertEquals(5, flash.currentStock(999));
+    }
+
+    @Test
+    @DisplayName("shouldKeepFlashSaleStockWhenProductUpdateFailsValidation")
+    void shouldKeepFlashSaleStockWhenProductUpdateFailsValidation() throws IOException {
+        FlashSaleStockService flash = startFlashSale();
+        when(s3ImageService.fromUrlToS3(anyString())).thenReturn("https://s3.aws.com/" + "x".repeat(3000));
+
+        assertThrows(IllegalArgumentException.class, () -> productService.updateProduct(dto));
+        rollBack();
+
+        assertEquals(5, flash.currentStock(999));
+    }
+
+    @Test
+    @DisplayName("shouldApplyPatchedFlashSaleStockOnlyOnCommit")
+    void shouldApplyPatchedFlashSaleStockOnlyOnCommit() throws IOException {
+        FlashSaleStockService flash = startFlashSale();
+        ProductPatchDTO patch = new ProductPatchDTO();
+        patch.setProductCode(999);
+        patch.setStock(40);
+        when(productRepository.save(any(Product.class))).thenThrow(new IllegalStateException("lock timeout"));
+
+        assertThrows(IllegalStateException.class, () -> productService.patchProduct(patch, null));
+        rollBack();
+        assertEquals(5, flash.currentStock(999));
+
+        // El mismo patch aplicado en un chunk que confirma sí llega al contador
+        TransactionSynchronizationManager.initSynchronization();
+        productService.applyPatch(existing, patch, mock(ProductService.PatchLookups.class), null);
+        assertEquals(5, flash.currentStock(999));
+        var syncs = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        syncs.forEach(TransactionSynchronization::afterCommit);
+        assertEquals(40, flash.currentStock(999));
+    }
 }
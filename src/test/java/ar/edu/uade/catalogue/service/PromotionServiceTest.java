@@ -0,0 +1,121 @@
+package ar.edu.uade.catalogue.service;
+
+import ar.edu.uade.catalogue.model.Promotion;
+import ar.edu.uade.catalogue.model.Promotion.Status;
+import ar.edu.uade.catalogue.model.DTO.PromotionDTO;
+import ar.edu.uade.catalogue.repository.PromotionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
+class PromotionServiceTest {
+
+    @Mock
+    private PromotionRepository promotionRepository;
+
+    @Mock
+    private ProductBulkService productBulkService;
+
+    @InjectMocks
+    private PromotionService promotionService;
+
+    private Promotion promotion;
+
+    @BeforeEach
+    void setUp() {
+        promotion = new Promotion();
+        promotion.setId(1L);
+        promotion.setDiscount(0.3f);
+        promotion.setStartAt(LocalDateTime.now().minusMinutes(1));
+        promotion.setEndAt(LocalDateTime.now().plusHours(1));
+        promotion.setProductCodes(Set.of(100, 200));
+        lenient().when(promotionRepository.findById(1L)).thenReturn(Optional.of(promotion));
+        lenient().when(promotionRepository.save(any(Promotion.class))).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    @Test
+    @DisplayName("shouldSnapshotPreviousDiscountsAndApplyPromotionOnActivate")
+    void shouldSnapshotPreviousDiscountsAndApplyPromotionOnActivate() {
+        when(promotionRepository.transition(1L, Status.SCHEDULED, Status.ACTIVATING)).thenReturn(1);
+        when(productBulkService.readDiscounts(promotion.getProductCodes())).thenReturn(Map.of(100, 0f, 200, 0.1f));
+        when(productBulkService.applyDiscounts(anyMap(), isNull(), anyString())).thenReturn(2);
+
+        assertTrue(promotionService.activate(1L));
+
+        assertEquals(Map.of(100, 0f, 200, 0.1f), promotion.getPreviousDiscounts());
+        verify(productBulkService).applyDiscounts(eq(Map.of(100, 0.3f, 200, 0.3f)), isNull(), anyString());
+        verify(promotionRepository).transition(1L, Status.ACTIVATING, Status.ACTIVE);
+    }
+
+    @Test
+    @DisplayName("shouldSkipActivationWhenAnotherInstanceClaimedIt")
+    void shouldSkipActivationWhenAnotherInstanceClaimedIt() {
+        when(promotionRepository.transition(1L, Status.SCHEDULED, Status.ACTIVATING)).thenReturn(0);
+
+        assertFalse(promotionService.activate(1L));
+        verifyNoInteractions(productBulkService);
+    }
+
+    @Test
+    @DisplayName("shouldRestorePreviousDiscountsOnlyWhereStillPromotedOnFinish")
+    void shouldRestorePreviousDiscountsOnlyWhereStillPromotedOnFinish() {
+        promotion.setPreviousDiscounts(new HashMap<>(Map.of(100, 0f, 200, 0.1f)));
+        when(promotionRepository.transition(1L, Status.ACTIVE, Status.ENDING)).thenReturn(1);
+
+        assertTrue(promotionService.finish(1L, Status.ENDED));
+
+        verify(productBulkService).applyDiscounts(eq(Map.of(100, 0f, 200, 0.1f)), eq(Map.of(100, 0.3f, 200, 0.3f)), anyString());
+        verify(promotionRepository).transition(1L, Status.ENDING, Status.ENDED);
+    }
+
+    @Test
+    @DisplayName("shouldRejectPromotionWithEndBeforeStart")
+    void shouldRejectPromotionWithEndBeforeStart() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        PromotionDTO dto = new PromotionDTO("Hot Sale", 20f, start, start.minusHours(1), null, 5, null);
+
+        assertThrows(IllegalArgumentException.class, () -> promotionService.create(dto));
+        verify(promotionRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("shouldReturnToScheduledWhenActivationFails")
+    void shouldReturnToScheduledWhenActivationFails() {
+        when(promotionRepository.transition(1L, Status.SCHEDULED, Status.ACTIVATING)).thenReturn(1);
+        when(productBulkService.readDiscounts(any())).thenReturn(Map.of(100, 0f));
+        when(productBulkService.applyDiscounts(anyMap(), isNull(), anyString())).thenThrow(new IllegalStateException("db down"));
+
+        assertThrows(IllegalStateException.class, () -> promotionService.activate(1L));
+        verify(promotionRepository).transition(1L, Status.ACTIVATING, Status.SCHEDULED);
+        verify(promotionRepository, never()).transition(1L, Status.ACTIVATING, Status.ACTIVE);
+    }
+
+    @Test
+    @DisplayName("shouldReleaseClaimsAbandonedByCrashedInstance")
+    void shouldReleaseClaimsAbandonedByCrashedInstance() {
+        ReflectionTestUtils.setField(promotionService, "staleClaimMs", 60_000L);
+        when(promotionRepository.releaseStale(eq(Status.ACTIVATING), eq(Status.SCHEDULED), any(), any())).thenReturn(1);
+        when(promotionRepository.releaseStale(eq(Status.ENDING), eq(Status.ACTIVE), any(), any())).thenReturn(2);
+
+        assertEquals(3, promotionService.releaseStaleClaims());
+
+        ArgumentCaptor<LocalDateTime> before = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(promotionRepository).releaseStale(eq(Status.ACTIVATING), eq(Status.SCHEDULED), before.capture(), any());
+        assertTrue(before.getValue().isBefore(LocalDateTime.now().minusSeconds(59)));
+    }
+}